@@ -0,0 +1,75 @@
+#!/bin/bash
+# Нагрузочный тест смешанного трафика: параллельные выгрузки + обычные запросы API.
+# Показывает, как выгрузки влияют на задержку API (до и после перехода на виртуальные потоки).
+#
+# Использование: ./load_test.sh [секунд] [потоков_выгрузки] [потоков_api]
+# Данные заранее создаются fill_db.sh; сравнение — запуск сервера на Java 17 и на Java 21 (mvn -Pjava21).
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+DURATION=${1:-30}
+EXPORT_WORKERS=${2:-20}
+API_WORKERS=${3:-20}
+OUT_DIR=$(mktemp -d)
+
+echo "=== Авторизация ==="
+
+LOGIN_RESP=$(curl -s -X POST "$BASE_URL/auth/login" \
+  -H "Content-Type: application/json" \
+  -d "{
+    \"username\": \"${LOAD_USER:-admin_test}\",
+    \"password\": \"${LOAD_PASSWORD:-password123}\"
+  }")
+
+TOKEN=$(echo "$LOGIN_RESP" | grep -o '"accessToken":"[^"]*"' | cut -d'"' -f4)
+
+if [ -z "$TOKEN" ]; then
+    echo "Не удалось получить токен авторизации. Скрипт остановлен."
+    exit 1
+fi
+
+AUTH_H="Authorization: Bearer $TOKEN"
+END=$(( $(date +%s) + DURATION ))
+
+# Один рабочий: крутит запрос до истечения времени, пишет "код время" в свой файл
+worker() {
+  local url=$1 out=$2
+  while [ "$(date +%s)" -lt "$END" ]; do
+    curl -s -o /dev/null -H "$AUTH_H" -w "%{http_code} %{time_total}\n" "$BASE_URL$url" >> "$out"
+  done
+}
+
+echo "=== Нагрузка: $DURATION с, выгрузок $EXPORT_WORKERS, запросов API $API_WORKERS ==="
+
+for i in $(seq 1 "$EXPORT_WORKERS"); do
+  worker "/api/export/statistics/excel" "$OUT_DIR/export_$i.log" &
+done
+for i in $(seq 1 "$API_WORKERS"); do
+  # Без If-None-Match, чтобы каждый запрос доходил до БД
+  worker "/api/grades?page=0&size=20" "$OUT_DIR/api_$i.log" &
+done
+wait
+
+# Итог по типу запроса: количество, ошибки, p50/p95/max и пропускная способность
+report() {
+  local name=$1 pattern=$2
+  cat "$OUT_DIR"/$pattern > "$OUT_DIR/$name.all" 2>/dev/null
+  local total errors
+  total=$(wc -l < "$OUT_DIR/$name.all")
+  errors=$(awk '$1 != 200' "$OUT_DIR/$name.all" | wc -l)
+  if [ "$total" -eq 0 ]; then
+    echo "$name: нет ответов"
+    return
+  fi
+  awk '{print $2}' "$OUT_DIR/$name.all" | sort -n > "$OUT_DIR/$name.sorted"
+  local p50 p95 max
+  p50=$(sed -n "$(( (total * 50 + 99) / 100 ))p" "$OUT_DIR/$name.sorted")
+  p95=$(sed -n "$(( (total * 95 + 99) / 100 ))p" "$OUT_DIR/$name.sorted")
+  max=$(tail -n 1 "$OUT_DIR/$name.sorted")
+  echo "$name: запросов $total, ошибок $errors, $(( total / DURATION )) rps, p50 ${p50}s, p95 ${p95}s, max ${max}s"
+}
+
+echo "=== Результаты ==="
+report "export" "export_*.log"
+report "api" "api_*.log"
+
+rm -rf "$OUT_DIR"
\ No newline at end of file
@@ -0,0 +1,218 @@
+package com.assxmblxr.backend.analytics;
+
+import com.assxmblxr.backend.entity.AttendanceStatus;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Индекс посещаемости на сжатых битовых картах. Элемент карты — id записи посещаемости;
+ * карты заведены на статус, на пару статус+дата, на учащегося и на предмет, так что
+ * вопросы вида «кто отсутствовал в эти дни» или «сколько пропусков у учащегося по предмету»
+ * сводятся к OR/AND карт и подсчёту мощности. Каждая запись стоит порядка 2 байт
+ * в каждой из четырёх карт и ещё 21 байт на её столбцы, по которым изменённая запись
+ * убирается только из своих карт.
+ */
+public class AttendanceIndex {
+  private static final AttendanceStatus[] STATUSES = AttendanceStatus.values();
+  /** Статусы, которые считаются пропуском */
+  public static final Set<AttendanceStatus> ABSENCES = EnumSet.of(AttendanceStatus.ABSENT, AttendanceStatus.EXCUSED);
+
+  private final StampedLock lock = new StampedLock();
+  private Maps data = new Maps();
+
+  /** Приёмник строк при полной загрузке */
+  public interface Sink {
+    void record(long attendanceId, long studentId, long subjectId, LocalDate date, AttendanceStatus status);
+
+    void studentGroup(long studentId, long groupId);
+  }
+
+  // ── запись ────────────────────────────────────────────────────────────────
+
+  public void reload(Consumer<Sink> source) {
+    Maps fresh = new Maps();
+    source.accept(fresh);
+    long stamp = lock.writeLock();
+    try {
+      data = fresh;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /** Добавляет запись или переносит её, если запись с этим id уже проиндексирована */
+  public void upsert(long attendanceId, long studentId, long subjectId, LocalDate date, AttendanceStatus status) {
+    long stamp = lock.writeLock();
+    try {
+      data.record(attendanceId, studentId, subjectId, date, status);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void remove(long attendanceId) {
+    long stamp = lock.writeLock();
+    try {
+      data.remove(row(attendanceId));
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void setStudentGroup(long studentId, long groupId) {
+    long stamp = lock.writeLock();
+    try {
+      data.studentGroup(studentId, groupId);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // ── чтение ────────────────────────────────────────────────────────────────
+
+  /** Число записей учащегося с одним из статусов; subjectId == null — по всем предметам */
+  public long count(long studentId, Long subjectId, Set<AttendanceStatus> statuses) {
+    long stamp = lock.readLock();
+    try {
+      CompressedBitmap student = data.byStudent.get(studentId);
+      if (student == null) return 0;
+      CompressedBitmap matching = student.and(data.statuses(statuses));
+      if (subjectId == null) return matching.cardinality();
+      CompressedBitmap subject = data.bySubject.get(subjectId);
+      return subject != null ? matching.andCardinality(subject) : 0;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Учащиеся, у которых есть записи с одним из статусов в любой из дат, и число таких записей.
+   * @param groupId только учащиеся этой группы; null — все
+   */
+  public Map<Long, Long> studentsWith(Set<AttendanceStatus> statuses, Collection<LocalDate> dates, Long groupId) {
+    long stamp = lock.readLock();
+    try {
+      List<CompressedBitmap> parts = new ArrayList<>();
+      for (AttendanceStatus status : statuses) {
+        Map<Integer, CompressedBitmap> byDate = data.byStatusDate.get(status.ordinal());
+        for (LocalDate date : dates) {
+          CompressedBitmap b = byDate.get((int) date.toEpochDay());
+          if (b != null) parts.add(b);
+        }
+      }
+      CompressedBitmap matching = CompressedBitmap.or(parts);
+      Map<Long, Long> result = new LinkedHashMap<>();
+      if (matching.isEmpty()) return result;
+      for (Map.Entry<Long, CompressedBitmap> e : data.byStudent.entrySet()) {
+        if (groupId != null && !groupId.equals(data.groupOfStudent.get(e.getKey()))) continue;
+        long n = matching.andCardinality(e.getValue());
+        if (n > 0) result.put(e.getKey(), n);
+      }
+      return result;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /** Приблизительный объём индекса в памяти */
+  public long sizeInBytes() {
+    long stamp = lock.readLock();
+    try {
+      return data.sizeInBytes();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private static int row(long attendanceId) {
+    return Math.toIntExact(attendanceId);
+  }
+
+  /** Изменяется только под эксклюзивной блокировкой */
+  private static final class Maps implements Sink {
+    final CompressedBitmap[] byStatus = new CompressedBitmap[STATUSES.length];
+    /** ordinal статуса -> epochDay -> записи */
+    final List<Map<Integer, CompressedBitmap>> byStatusDate = new ArrayList<>();
+    final Map<Long, CompressedBitmap> byStudent = new HashMap<>();
+    final Map<Long, CompressedBitmap> bySubject = new HashMap<>();
+    final Map<Long, Long> groupOfStudent = new HashMap<>();
+    /** Столбцы записей по номеру строки; statusOf — ordinal статуса + 1, 0 — строки в индексе нет */
+    long[] studentOf = new long[1024];
+    long[] subjectOf = new long[1024];
+    int[] dayOf = new int[1024];
+    byte[] statusOf = new byte[1024];
+
+    Maps() {
+      for (int i = 0; i < STATUSES.length; i++) {
+        byStatus[i] = new CompressedBitmap();
+        byStatusDate.add(new HashMap<>());
+      }
+    }
+
+    @Override
+    public void record(long attendanceId, long studentId, long subjectId, LocalDate date, AttendanceStatus status) {
+      int row = row(attendanceId);
+      remove(row);
+      int day = (int) date.toEpochDay();
+      byStatus[status.ordinal()].add(row);
+      byStatusDate.get(status.ordinal()).computeIfAbsent(day, k -> new CompressedBitmap()).add(row);
+      byStudent.computeIfAbsent(studentId, k -> new CompressedBitmap()).add(row);
+      bySubject.computeIfAbsent(subjectId, k -> new CompressedBitmap()).add(row);
+
+      if (row >= statusOf.length) grow(row);
+      studentOf[row] = studentId;
+      subjectOf[row] = subjectId;
+      dayOf[row] = day;
+      statusOf[row] = (byte) (status.ordinal() + 1);
+    }
+
+    @Override
+    public void studentGroup(long studentId, long groupId) {
+      groupOfStudent.put(studentId, groupId);
+    }
+
+    /** Удаляет запись из карт её статуса, даты, учащегося и предмета; новой записи нет ни в одной */
+    void remove(int row) {
+      if (row >= statusOf.length || statusOf[row] == 0) return;
+      int status = statusOf[row] - 1;
+      byStatus[status].remove(row);
+      removeFrom(byStatusDate.get(status), dayOf[row], row);
+      removeFrom(byStudent, studentOf[row], row);
+      removeFrom(bySubject, subjectOf[row], row);
+      statusOf[row] = 0;
+    }
+
+    private static <K> void removeFrom(Map<K, CompressedBitmap> bitmaps, K key, int row) {
+      CompressedBitmap b = bitmaps.get(key);
+      if (b == null) return;
+      b.remove(row);
+      if (b.isEmpty()) bitmaps.remove(key);
+    }
+
+    private void grow(int row) {
+      int capacity = Math.max(row + 1, statusOf.length * 2);
+      studentOf = Arrays.copyOf(studentOf, capacity);
+      subjectOf = Arrays.copyOf(subjectOf, capacity);
+      dayOf = Arrays.copyOf(dayOf, capacity);
+      statusOf = Arrays.copyOf(statusOf, capacity);
+    }
+
+    CompressedBitmap statuses(Set<AttendanceStatus> statuses) {
+      List<CompressedBitmap> parts = new ArrayList<>();
+      for (AttendanceStatus status : statuses) parts.add(byStatus[status.ordinal()]);
+      return CompressedBitmap.or(parts);
+    }
+
+    long sizeInBytes() {
+      long bytes = 0;
+      for (CompressedBitmap b : byStatus) bytes += b.sizeInBytes();
+      for (Map<Integer, CompressedBitmap> m : byStatusDate) for (CompressedBitmap b : m.values()) bytes += b.sizeInBytes();
+      for (CompressedBitmap b : byStudent.values()) bytes += b.sizeInBytes();
+      for (CompressedBitmap b : bySubject.values()) bytes += b.sizeInBytes();
+      return bytes + 21L * statusOf.length;
+    }
+  }
+}
\ No newline at end of file
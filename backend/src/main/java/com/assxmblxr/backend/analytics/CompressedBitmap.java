@@ -0,0 +1,397 @@
+package com.assxmblxr.backend.analytics;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Сжатое множество неотрицательных int по схеме Roaring: значения делятся на блоки
+ * по старшим 16 битам, блок хранится отсортированным массивом char, пока в нём не больше
+ * 4096 значений (2 байта на значение), и битовой картой на 8 КБ, когда плотнее.
+ * Пересечение, объединение и мощность пересечения считаются поблочно.
+ * <p>
+ * Не потокобезопасно: синхронизацию обеспечивает владелец.
+ */
+public final class CompressedBitmap {
+  /** Граница, за которой битовая карта блока компактнее массива */
+  private static final int MAX_ARRAY = 4096;
+
+  private char[] keys = new char[4];
+  private Container[] containers = new Container[4];
+  private int size;
+
+  public void add(int value) {
+    char high = high(value);
+    int i = find(high);
+    if (i >= 0) {
+      containers[i] = containers[i].add((char) value);
+    } else {
+      insertAt(-i - 1, high, new ArrayContainer().add((char) value));
+    }
+  }
+
+  public void remove(int value) {
+    int i = find(high(value));
+    if (i < 0) return;
+    Container c = containers[i].remove((char) value);
+    if (c.cardinality() == 0) removeAt(i);
+    else containers[i] = c;
+  }
+
+  public boolean contains(int value) {
+    int i = find(high(value));
+    return i >= 0 && containers[i].contains((char) value);
+  }
+
+  public long cardinality() {
+    long n = 0;
+    for (int i = 0; i < size; i++) n += containers[i].cardinality();
+    return n;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public CompressedBitmap and(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0, j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) i++;
+      else if (keys[i] > other.keys[j]) j++;
+      else {
+        Container c = containers[i].and(other.containers[j]);
+        if (c.cardinality() > 0) result.append(keys[i], c);
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  public CompressedBitmap or(CompressedBitmap other) {
+    CompressedBitmap result = new CompressedBitmap();
+    int i = 0, j = 0;
+    while (i < size || j < other.size) {
+      if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+        result.append(keys[i], containers[i].copy());
+        i++;
+      } else if (i == size || keys[i] > other.keys[j]) {
+        result.append(other.keys[j], other.containers[j].copy());
+        j++;
+      } else {
+        result.append(keys[i], containers[i].or(other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /** Мощность пересечения без построения самого пересечения */
+  public long andCardinality(CompressedBitmap other) {
+    long n = 0;
+    int i = 0, j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) i++;
+      else if (keys[i] > other.keys[j]) j++;
+      else n += containers[i++].andCardinality(other.containers[j++]);
+    }
+    return n;
+  }
+
+  public static CompressedBitmap or(Iterable<CompressedBitmap> bitmaps) {
+    CompressedBitmap result = new CompressedBitmap();
+    for (CompressedBitmap b : bitmaps) result = result.or(b);
+    return result;
+  }
+
+  /** Значения по возрастанию */
+  public void forEach(IntConsumer action) {
+    for (int i = 0; i < size; i++) containers[i].forEach(keys[i] << 16, action);
+  }
+
+  /** Приблизительный объём в памяти */
+  public long sizeInBytes() {
+    long bytes = 16 + keys.length * 2L + containers.length * 4L;
+    for (int i = 0; i < size; i++) bytes += containers[i].sizeInBytes();
+    return bytes;
+  }
+
+  // ── блоки ─────────────────────────────────────────────────────────────────
+
+  private static char high(int value) {
+    if (value < 0) throw new IllegalArgumentException("Отрицательное значение: " + value);
+    return (char) (value >>> 16);
+  }
+
+  private int find(char high) {
+    return Arrays.binarySearch(keys, 0, size, high);
+  }
+
+  private void insertAt(int i, char high, Container c) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      containers = Arrays.copyOf(containers, size * 2);
+    }
+    System.arraycopy(keys, i, keys, i + 1, size - i);
+    System.arraycopy(containers, i, containers, i + 1, size - i);
+    keys[i] = high;
+    containers[i] = c;
+    size++;
+  }
+
+  private void append(char high, Container c) {
+    insertAt(size, high, c);
+  }
+
+  private void removeAt(int i) {
+    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+    System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+    containers[--size] = null;
+  }
+
+  private abstract static class Container {
+    /** Добавление и удаление могут сменить представление блока — результат заменяет блок */
+    abstract Container add(char v);
+    abstract Container remove(char v);
+    abstract boolean contains(char v);
+    abstract int cardinality();
+    abstract Container and(Container other);
+    abstract Container or(Container other);
+    abstract int andCardinality(Container other);
+    abstract Container copy();
+    abstract void forEach(int base, IntConsumer action);
+    abstract long sizeInBytes();
+  }
+
+  private static final class ArrayContainer extends Container {
+    private char[] values;
+    private int cardinality;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char v) {
+      int i = Arrays.binarySearch(values, 0, cardinality, v);
+      if (i >= 0) return this;
+      if (cardinality == MAX_ARRAY) return toBitmap().add(v);
+      i = -i - 1;
+      if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(MAX_ARRAY, Math.max(4, cardinality * 2)));
+      System.arraycopy(values, i, values, i + 1, cardinality - i);
+      values[i] = v;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char v) {
+      int i = Arrays.binarySearch(values, 0, cardinality, v);
+      if (i < 0) return this;
+      System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+      cardinality--;
+      return this;
+    }
+
+    @Override
+    boolean contains(char v) {
+      return Arrays.binarySearch(values, 0, cardinality, v) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+      char[] result = new char[Math.min(cardinality, other.cardinality())];
+      int n = 0;
+      if (other instanceof ArrayContainer a) {
+        int i = 0, j = 0;
+        while (i < cardinality && j < a.cardinality) {
+          if (values[i] < a.values[j]) i++;
+          else if (values[i] > a.values[j]) j++;
+          else { result[n++] = values[i++]; j++; }
+        }
+      } else {
+        for (int i = 0; i < cardinality; i++) if (other.contains(values[i])) result[n++] = values[i];
+      }
+      return new ArrayContainer(result, n);
+    }
+
+    @Override
+    Container or(Container other) {
+      if (!(other instanceof ArrayContainer a)) return other.or(this);
+      char[] result = new char[cardinality + a.cardinality];
+      int i = 0, j = 0, n = 0;
+      while (i < cardinality || j < a.cardinality) {
+        if (j == a.cardinality || (i < cardinality && values[i] < a.values[j])) result[n++] = values[i++];
+        else if (i == cardinality || values[i] > a.values[j]) result[n++] = a.values[j++];
+        else { result[n++] = values[i++]; j++; }
+      }
+      ArrayContainer merged = new ArrayContainer(result, n);
+      return n > MAX_ARRAY ? merged.toBitmap() : merged;
+    }
+
+    @Override
+    int andCardinality(Container other) {
+      int n = 0;
+      if (other instanceof ArrayContainer a) {
+        int i = 0, j = 0;
+        while (i < cardinality && j < a.cardinality) {
+          if (values[i] < a.values[j]) i++;
+          else if (values[i] > a.values[j]) j++;
+          else { n++; i++; j++; }
+        }
+      } else {
+        for (int i = 0; i < cardinality; i++) if (other.contains(values[i])) n++;
+      }
+      return n;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < cardinality; i++) action.accept(base | values[i]);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 24 + values.length * 2L;
+    }
+
+    private BitmapContainer toBitmap() {
+      BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < cardinality; i++) bitmap.add(values[i]);
+      return bitmap;
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer() {
+      this(new long[1024], 0);
+    }
+
+    private BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char v) {
+      long bit = 1L << v;
+      if ((words[v >>> 6] & bit) == 0) {
+        words[v >>> 6] |= bit;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char v) {
+      long bit = 1L << v;
+      if ((words[v >>> 6] & bit) == 0) return this;
+      words[v >>> 6] &= ~bit;
+      cardinality--;
+      return cardinality <= MAX_ARRAY ? toArray() : this;
+    }
+
+    @Override
+    boolean contains(char v) {
+      return (words[v >>> 6] & (1L << v)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer) return other.and(this);
+      long[] theirs = ((BitmapContainer) other).words;
+      long[] result = new long[1024];
+      int n = 0;
+      for (int i = 0; i < 1024; i++) {
+        result[i] = words[i] & theirs[i];
+        n += Long.bitCount(result[i]);
+      }
+      BitmapContainer bitmap = new BitmapContainer(result, n);
+      return n <= MAX_ARRAY ? bitmap.toArray() : bitmap;
+    }
+
+    @Override
+    Container or(Container other) {
+      BitmapContainer result = (BitmapContainer) copy();
+      if (other instanceof ArrayContainer a) {
+        for (int i = 0; i < a.cardinality; i++) result.add(a.values[i]);
+        return result;
+      }
+      long[] theirs = ((BitmapContainer) other).words;
+      int n = 0;
+      for (int i = 0; i < 1024; i++) {
+        result.words[i] |= theirs[i];
+        n += Long.bitCount(result.words[i]);
+      }
+      result.cardinality = n;
+      return result;
+    }
+
+    @Override
+    int andCardinality(Container other) {
+      if (other instanceof ArrayContainer) return other.andCardinality(this);
+      long[] theirs = ((BitmapContainer) other).words;
+      int n = 0;
+      for (int i = 0; i < 1024; i++) n += Long.bitCount(words[i] & theirs[i]);
+      return n;
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    void forEach(int base, IntConsumer action) {
+      for (int i = 0; i < 1024; i++) {
+        long word = words[i];
+        while (word != 0) {
+          action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 24 + 8 * 1024;
+    }
+
+    private ArrayContainer toArray() {
+      char[] values = new char[cardinality];
+      int n = 0;
+      for (int i = 0; i < 1024; i++) {
+        long word = words[i];
+        while (word != 0) {
+          values[n++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayContainer(values, n);
+    }
+  }
+}
\ No newline at end of file
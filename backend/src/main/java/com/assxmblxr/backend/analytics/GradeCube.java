@@ -0,0 +1,300 @@
+package com.assxmblxr.backend.analytics;
+
+import com.assxmblxr.backend.entity.WorkType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Все оценки школы в памяти в виде параллельных массивов примитивов: код учащегося,
+ * код предмета, балл, вид работы, день (epochDay). Id учащихся, групп и предметов
+ * заменены плотными кодами, так что одна оценка занимает около 20 байт, а проход
+ * по всей истории — один цикл по массивам без аллокаций и без обращений к БД.
+ * <p>
+ * Группа берётся текущая, как в SQL-аналитике (students.group_id). Записи идут под
+ * эксклюзивной блокировкой; чтения сначала выполняются оптимистично и повторяются
+ * под разделяемой блокировкой, только если за время прохода была запись.
+ */
+public class GradeCube {
+  /** epochDay оценки без даты; в срезы с диапазоном дат такие оценки не попадают */
+  private static final int NO_DATE = Integer.MIN_VALUE;
+  /** Коды среза: измерение не ограничено / значения нет в кубе, срез заведомо пуст */
+  private static final int ANY = -1;
+  private static final int NOTHING = -2;
+
+  private final StampedLock lock = new StampedLock();
+  private Columns data = new Columns();
+
+  /** Приёмник строк при полной загрузке */
+  public interface Sink {
+    void grade(long gradeId, long studentId, long subjectId, int grade, WorkType workType, LocalDate date);
+
+    void studentGroup(long studentId, long groupId);
+  }
+
+  public record SubjectTotal(long subjectId, long count, long sum) {
+    public double average() {
+      return (double) sum / count;
+    }
+  }
+
+  // ── запись ────────────────────────────────────────────────────────────────
+
+  /**
+   * Полностью заменяет содержимое. Новые колонки строятся без блокировки,
+   * читатели до конца загрузки видят старые данные.
+   */
+  public void reload(Consumer<Sink> source) {
+    Columns fresh = new Columns();
+    source.accept(fresh);
+    long stamp = lock.writeLock();
+    try {
+      data = fresh;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /** Добавляет оценку или заменяет существующую с тем же id */
+  public void upsert(long gradeId, long studentId, long subjectId, int grade, WorkType workType, LocalDate date) {
+    write(c -> c.grade(gradeId, studentId, subjectId, grade, workType, date));
+  }
+
+  public void remove(long gradeId) {
+    write(c -> c.remove(gradeId));
+  }
+
+  /** Удаляет все оценки учащегося (каскад при удалении учащегося) */
+  public void removeStudent(long studentId) {
+    write(c -> c.removeStudent(studentId));
+  }
+
+  public void setStudentGroup(long studentId, long groupId) {
+    write(c -> c.studentGroup(studentId, groupId));
+  }
+
+  private void write(Consumer<Columns> change) {
+    long stamp = lock.writeLock();
+    try {
+      change.accept(data);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // ── чтение ────────────────────────────────────────────────────────────────
+
+  public int size() {
+    return read(c -> c.size);
+  }
+
+  /** Гистограмма оценок среза по видам работ; пустые параметры не ограничивают срез */
+  public GradeHistogram histogram(Long studentId, Long groupId, Long subjectId, LocalDate from, LocalDate to) {
+    return read(c -> {
+      GradeHistogram result = new GradeHistogram();
+      Slice slice = Slice.of(c, studentId, groupId, subjectId, from, to);
+      if (slice.isEmpty()) return result;
+      int[] student = c.student, day = c.day, groupOf = c.groupOfStudent;
+      short[] subject = c.subject;
+      byte[] grade = c.grade, workType = c.workType;
+      for (int i = 0, n = c.size; i < n; i++) {
+        if (slice.matches(student[i], subject[i], day[i], groupOf)) result.add(workType[i], grade[i]);
+      }
+      return result;
+    });
+  }
+
+  /** Количество и сумма оценок по предметам среза в порядке первого появления предмета */
+  public List<SubjectTotal> totalsBySubject(Long studentId, Long groupId) {
+    return read(c -> {
+      Slice slice = Slice.of(c, studentId, groupId, null, null, null);
+      if (slice.isEmpty()) return List.of();
+      long[] counts = new long[c.subjectCount], sums = new long[c.subjectCount];
+      int[] student = c.student, day = c.day, groupOf = c.groupOfStudent;
+      short[] subject = c.subject;
+      byte[] grade = c.grade;
+      for (int i = 0, n = c.size; i < n; i++) {
+        if (slice.matches(student[i], subject[i], day[i], groupOf)) {
+          counts[subject[i]]++;
+          sums[subject[i]] += grade[i];
+        }
+      }
+      List<SubjectTotal> result = new ArrayList<>();
+      for (int s = 0; s < counts.length; s++) {
+        if (counts[s] > 0) result.add(new SubjectTotal(c.subjectIds[s], counts[s], sums[s]));
+      }
+      return result;
+    });
+  }
+
+  /**
+   * Оптимистичное чтение: проход без блокировки, затем проверка, что записей не было.
+   * Если запись успела перестроить массивы, проход мог упасть на границе массива —
+   * в обоих случаях он повторяется под разделяемой блокировкой.
+   */
+  private <T> T read(Function<Columns, T> query) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        T result = query.apply(data);
+        if (lock.validate(stamp)) return result;
+      } catch (IndexOutOfBoundsException e) {
+        // гонка с записью, результат всё равно отброшен бы
+      }
+    }
+    stamp = lock.readLock();
+    try {
+      return query.apply(data);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /** Фильтр среза, переведённый в коды куба */
+  private record Slice(int student, int group, int subject, boolean dated, int fromDay, int toDay) {
+
+    static Slice of(Columns c, Long studentId, Long groupId, Long subjectId, LocalDate from, LocalDate to) {
+      return new Slice(codeOf(c.studentCodes, studentId), codeOf(c.groupCodes, groupId),
+              codeOf(c.subjectCodes, subjectId), from != null || to != null,
+              from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE + 1,
+              to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE);
+    }
+
+    private static int codeOf(Map<Long, Integer> codes, Long id) {
+      if (id == null) return ANY;
+      Integer code = codes.get(id);
+      return code != null ? code : NOTHING;
+    }
+
+    boolean isEmpty() {
+      return student == NOTHING || group == NOTHING || subject == NOTHING;
+    }
+
+    boolean matches(int studentCode, short subjectCode, int epochDay, int[] groupOf) {
+      if (student != ANY && studentCode != student) return false;
+      if (subject != ANY && subjectCode != subject) return false;
+      if (group != ANY && (studentCode >= groupOf.length || groupOf[studentCode] != group)) return false;
+      return !dated || (epochDay != NO_DATE && epochDay >= fromDay && epochDay <= toDay);
+    }
+  }
+
+  // ── колонки ───────────────────────────────────────────────────────────────
+
+  /**
+   * Изменяется только под эксклюзивной блокировкой. Словари кодов — ConcurrentHashMap,
+   * чтобы оптимистичное чтение могло искать в них одновременно с записью.
+   */
+  private static final class Columns implements Sink {
+    int size;
+    long[] id = new long[1024];
+    int[] student = new int[1024];
+    short[] subject = new short[1024];
+    byte[] grade = new byte[1024];
+    byte[] workType = new byte[1024];
+    int[] day = new int[1024];
+    final Map<Long, Integer> rowById = new HashMap<>();
+
+    final Map<Long, Integer> studentCodes = new ConcurrentHashMap<>();
+    /** Код группы по коду учащегося; -1 — группа неизвестна */
+    int[] groupOfStudent = new int[0];
+    int studentCount;
+    final Map<Long, Integer> groupCodes = new ConcurrentHashMap<>();
+    int groupCount;
+    final Map<Long, Integer> subjectCodes = new ConcurrentHashMap<>();
+    long[] subjectIds = new long[16];
+    int subjectCount;
+
+    @Override
+    public void grade(long gradeId, long studentId, long subjectId, int value, WorkType type, LocalDate date) {
+      if (value < 0 || value > GradeHistogram.MAX_GRADE) throw new IllegalArgumentException("Оценка вне диапазона: " + value);
+      Integer existing = rowById.get(gradeId);
+      int row;
+      if (existing != null) {
+        row = existing;
+      } else {
+        if (size == id.length) grow();
+        row = size++;
+        id[row] = gradeId;
+        rowById.put(gradeId, row);
+      }
+      student[row] = studentCode(studentId);
+      subject[row] = subjectCode(subjectId);
+      grade[row] = (byte) value;
+      workType[row] = (byte) GradeHistogram.slotOf(type);
+      day[row] = date != null ? (int) date.toEpochDay() : NO_DATE;
+    }
+
+    @Override
+    public void studentGroup(long studentId, long groupId) {
+      int code = studentCode(studentId);
+      groupOfStudent[code] = groupCodes.computeIfAbsent(groupId, k -> groupCount++);
+    }
+
+    /** Последняя строка переносится на место удалённой */
+    void remove(long gradeId) {
+      Integer row = rowById.remove(gradeId);
+      if (row != null) removeRow(row);
+    }
+
+    void removeStudent(long studentId) {
+      Integer code = studentCodes.get(studentId);
+      if (code == null) return;
+      for (int row = size - 1; row >= 0; row--) {
+        if (student[row] == code) {
+          rowById.remove(id[row]);
+          removeRow(row);
+        }
+      }
+    }
+
+    private void removeRow(int row) {
+      int last = --size;
+      if (row == last) return;
+      id[row] = id[last];
+      student[row] = student[last];
+      subject[row] = subject[last];
+      grade[row] = grade[last];
+      workType[row] = workType[last];
+      day[row] = day[last];
+      rowById.put(id[row], row);
+    }
+
+    private int studentCode(long studentId) {
+      return studentCodes.computeIfAbsent(studentId, k -> {
+        if (studentCount == groupOfStudent.length) {
+          int[] grown = Arrays.copyOf(groupOfStudent, Math.max(16, studentCount * 2));
+          Arrays.fill(grown, studentCount, grown.length, -1);
+          groupOfStudent = grown;
+        }
+        return studentCount++;
+      });
+    }
+
+    private short subjectCode(long subjectId) {
+      return (short) (int) subjectCodes.computeIfAbsent(subjectId, k -> {
+        if (subjectCount == Short.MAX_VALUE) throw new IllegalStateException("Слишком много предметов для куба оценок");
+        if (subjectCount == subjectIds.length) subjectIds = Arrays.copyOf(subjectIds, subjectCount * 2);
+        subjectIds[subjectCount] = subjectId;
+        return subjectCount++;
+      });
+    }
+
+    private void grow() {
+      int capacity = id.length * 2;
+      id = Arrays.copyOf(id, capacity);
+      student = Arrays.copyOf(student, capacity);
+      subject = Arrays.copyOf(subject, capacity);
+      grade = Arrays.copyOf(grade, capacity);
+      workType = Arrays.copyOf(workType, capacity);
+      day = Arrays.copyOf(day, capacity);
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.assxmblxr.backend.analytics;
+
+import com.assxmblxr.backend.entity.WorkType;
+
+/**
+ * Количество оценок каждого балла 0–10 отдельно по видам работ. Оценки целые,
+ * поэтому среднее, разброс и перцентили считаются по гистограмме точно —
+ * так же, как avg, stddev_samp и percentile_cont в PostgreSQL.
+ */
+public final class GradeHistogram {
+  public static final int MAX_GRADE = 10;
+  /** Слот 0 — оценки без вида работы, слот i — WorkType с ordinal i - 1 */
+  static final int SLOTS = WorkType.values().length + 1;
+
+  private final long[][] counts = new long[SLOTS][MAX_GRADE + 1];
+
+  void add(int slot, int grade) {
+    counts[slot][grade]++;
+  }
+
+  static int slotOf(WorkType workType) {
+    return workType == null ? 0 : workType.ordinal() + 1;
+  }
+
+  /** Гистограмма всех оценок: элемент i — число оценок i */
+  public long[] buckets() {
+    long[] merged = new long[MAX_GRADE + 1];
+    for (long[] slot : counts) {
+      for (int g = 0; g <= MAX_GRADE; g++) merged[g] += slot[g];
+    }
+    return merged;
+  }
+
+  /** Гистограмма одного вида работ; null — оценки без вида работы */
+  public long[] buckets(WorkType workType) {
+    return counts[slotOf(workType)].clone();
+  }
+
+  // ── статистики по гистограмме ─────────────────────────────────────────────
+
+  public static long count(long[] buckets) {
+    long n = 0;
+    for (long c : buckets) n += c;
+    return n;
+  }
+
+  public static Double average(long[] buckets) {
+    long n = 0, sum = 0;
+    for (int g = 0; g < buckets.length; g++) { n += buckets[g]; sum += g * buckets[g]; }
+    return n == 0 ? null : (double) sum / n;
+  }
+
+  /** Выборочное стандартное отклонение; null, если оценок меньше двух */
+  public static Double stddev(long[] buckets) {
+    long n = count(buckets);
+    if (n < 2) return null;
+    double mean = average(buckets);
+    double squares = 0;
+    for (int g = 0; g < buckets.length; g++) squares += buckets[g] * (g - mean) * (g - mean);
+    return Math.sqrt(squares / (n - 1));
+  }
+
+  public static Integer min(long[] buckets) {
+    for (int g = 0; g < buckets.length; g++) if (buckets[g] > 0) return g;
+    return null;
+  }
+
+  public static Integer max(long[] buckets) {
+    for (int g = buckets.length - 1; g >= 0; g--) if (buckets[g] > 0) return g;
+    return null;
+  }
+
+  /** Непрерывный перцентиль с линейной интерполяцией между соседними значениями (как percentile_cont) */
+  public static Double percentile(long[] buckets, double p) {
+    long n = count(buckets);
+    if (n == 0) return null;
+    double position = p * (n - 1);
+    long lower = (long) Math.floor(position);
+    int lowerValue = valueAt(buckets, lower);
+    if (lower + 1 >= n) return (double) lowerValue;
+    int upperValue = valueAt(buckets, lower + 1);
+    return lowerValue + (position - lower) * (upperValue - lowerValue);
+  }
+
+  /** Значение с номером rank (с нуля) в отсортированной выборке */
+  private static int valueAt(long[] buckets, long rank) {
+    long seen = 0;
+    for (int g = 0; g < buckets.length; g++) {
+      seen += buckets[g];
+      if (rank < seen) return g;
+    }
+    throw new IllegalArgumentException("rank " + rank + " out of range");
+  }
+}
\ No newline at end of file
@@ -3,14 +3,17 @@ package com.assxmblxr.backend.components;
 import com.assxmblxr.backend.dto.StudentRequest;
 import com.assxmblxr.backend.entity.Group;
 import com.assxmblxr.backend.entity.Student;
+import com.assxmblxr.backend.events.GraduatesDetectedEvent;
 import com.assxmblxr.backend.service.GroupService;
 import com.assxmblxr.backend.service.StudentService;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -20,10 +23,13 @@ import java.util.regex.Pattern;
 public class AutoGradeUpdate {
   private final GroupService groupService;
   private final StudentService studentService;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public AutoGradeUpdate(GroupService groupService, StudentService studentService) {
+  public AutoGradeUpdate(GroupService groupService, StudentService studentService,
+                         ApplicationEventPublisher eventPublisher) {
     this.groupService = groupService;
     this.studentService = studentService;
+    this.eventPublisher = eventPublisher;
   }
 
   /**
@@ -56,10 +62,13 @@ public class AutoGradeUpdate {
    * Обновляет всех студентов в базе.
    * Для каждого студента проверяет инкрементированное название группы
    * и, если такая группа существует, обновляет его через StudentService.
+   * О выпускниках (следующей группы нет) фронт получает уведомление после коммита.
    */
   @Transactional
   public void updateAllStudents() {
     List<Student> students = studentService.getStudents();
+    List<Long> graduateIds = new ArrayList<>();
+    List<String> graduateNames = new ArrayList<>();
 
     for (Student student : students) {
       String newGradeName = autoGrade(student.getGroup().getName());
@@ -79,8 +88,14 @@ public class AutoGradeUpdate {
         log.info("Студент '{}' перемещён в группу '{}'", student.getFullname(), newGradeName);
       } else {
         log.info("Студен '{}' - выпускник, группы '{}' не существует", student.getFullname(), newGradeName);
-        // TODO: сделать удаление и отправку уведомления на фронт о выпустившихся учащихся
+        // TODO: сделать удаление выпустившихся учащихся
+        graduateIds.add(student.getId());
+        graduateNames.add(student.getFullname());
       }
     }
+
+    if (!graduateIds.isEmpty()) {
+      eventPublisher.publishEvent(new GraduatesDetectedEvent(graduateIds, graduateNames));
+    }
   }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.assxmblxr.backend.components;
+
+import com.assxmblxr.backend.entity.*;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики изменений по таблицам (сущностям). Каждый коммит, затронувший сущность,
+ * увеличивает её счётчик; по набору счётчиков строится строгий ETag для GET-ответов.
+ * Счётчики живут в памяти, поэтому в ETag входит метка запуска — после рестарта
+ * старые ETag клиентов гарантированно не совпадут.
+ * <p>
+ * Часть данных пересчитывается из других таблиц без события своей сущности — ответ,
+ * который их читает, зависит и от источников: см. {@link #withSources}.
+ */
+@Component
+public class ChangeTracker {
+  /** Сущность -> сущности, из которых пересчитываются её поля */
+  private static final Map<Class<?>, Set<Class<?>>> DERIVED_FROM = Map.of(
+          // amount группы пересчитывается при любом изменении учащихся
+          Group.class, Set.of(Student.class),
+          StudentRisk.class, Set.of(Grade.class, Attendance.class, Student.class));
+
+  private final String bootMark = Long.toString(System.currentTimeMillis(), 36);
+  private final Map<Class<?>, AtomicLong> counters = new ConcurrentHashMap<>();
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    changed(event.entityType());
+  }
+
+  /**
+   * Отмечает изменение таблицы, которую пишут в обход событий сущностей, —
+   * например, предрассчитанных статусов риска.
+   */
+  public void changed(Class<?> entityType) {
+    counter(entityType).incrementAndGet();
+  }
+
+  public long version(Class<?> entityType) {
+    return counter(entityType).get();
+  }
+
+  /** Строгий ETag (в кавычках) для ответа, зависящего от указанных сущностей. */
+  public String etag(Class<?>... entityTypes) {
+    StringBuilder sb = new StringBuilder("\"").append(bootMark);
+    for (Class<?> type : entityTypes) sb.append('.').append(version(type));
+    return sb.append('"').toString();
+  }
+
+  private AtomicLong counter(Class<?> entityType) {
+    return counters.computeIfAbsent(entityType, k -> new AtomicLong());
+  }
+
+  /** Сущности вместе с теми, из которых пересчитываются их поля; порядок — как в аргументе */
+  public static Set<Class<?>> withSources(Collection<Class<?>> entityTypes) {
+    Set<Class<?>> result = new LinkedHashSet<>(entityTypes);
+    for (Class<?> type : entityTypes) result.addAll(DERIVED_FROM.getOrDefault(type, Set.of()));
+    return result;
+  }
+}
\ No newline at end of file
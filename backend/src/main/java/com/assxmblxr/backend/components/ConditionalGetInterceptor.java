@@ -0,0 +1,49 @@
+package com.assxmblxr.backend.components;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Условный GET для редко меняющихся справочников. ETag вычисляется по счётчикам
+ * {@link ChangeTracker} до вызова контроллера: если клиент прислал совпадающий
+ * If-None-Match, отвечаем 304 и сервис вообще не вызывается.
+ */
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+  private final ChangeTracker changeTracker;
+  private final Class<?>[] dependsOn;
+
+  public ConditionalGetInterceptor(ChangeTracker changeTracker, Class<?>... dependsOn) {
+    this.changeTracker = changeTracker;
+    this.dependsOn = dependsOn;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (!HttpMethod.GET.matches(request.getMethod())) return true;
+
+    String etag = changeTracker.etag(dependsOn);
+    response.setHeader(HttpHeaders.ETAG, etag);
+    // no-cache: клиент хранит ответ, но каждый раз перепроверяет его по ETag
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+    if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return false;
+    }
+    return true;
+  }
+
+  private boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.equals("*")) return true;
+      if (tag.startsWith("W/")) tag = tag.substring(2);
+      if (tag.equals(etag)) return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,110 @@
+package com.assxmblxr.backend.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничивает число одновременно выданных соединений честным (FIFO) семафором.
+ * С виртуальными потоками конкурентных запросов становится намного больше, чем
+ * соединений в пуле Hikari; очередь на семафоре дешевле и справедливее, чем толпа
+ * потоков, одновременно ожидающих внутри пула. Разрешение возвращается при close().
+ * <p>
+ * close() закрывает сам пул: Spring вызывает его при остановке контекста, как вызвал бы
+ * у незавёрнутого HikariDataSource. Метрики и health Spring Boot добираются до пула через unwrap.
+ */
+public class BoundedDataSource extends DelegatingDataSource implements Closeable {
+  private final Semaphore permits;
+  private final int maxConcurrent;
+  private final long acquireTimeoutMs;
+
+  public BoundedDataSource(DataSource target, int maxConcurrent, long acquireTimeoutMs) {
+    super(target);
+    this.permits = new Semaphore(maxConcurrent, true);
+    this.maxConcurrent = maxConcurrent;
+    this.acquireTimeoutMs = acquireTimeoutMs;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    acquire();
+    try {
+      return releasingOnClose(obtainTargetDataSource().getConnection());
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    acquire();
+    try {
+      return releasingOnClose(obtainTargetDataSource().getConnection(username, password));
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (obtainTargetDataSource() instanceof AutoCloseable target) {
+      try {
+        target.close();
+      } catch (IOException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  /** Сколько соединений может быть выдано одновременно */
+  public int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  /** Сколько потоков сейчас ждут соединения — для диагностики под нагрузкой */
+  public int getQueueLength() {
+    return permits.getQueueLength();
+  }
+
+  private void acquire() throws SQLException {
+    try {
+      if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new SQLTransientConnectionException(
+                "Не удалось получить соединение с БД за " + acquireTimeoutMs + " мс");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLTransientConnectionException("Ожидание соединения с БД прервано", e);
+    }
+  }
+
+  private Connection releasingOnClose(Connection target) {
+    AtomicBoolean released = new AtomicBoolean();
+    return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+              boolean closing = "close".equals(method.getName()) && released.compareAndSet(false, true);
+              try {
+                return method.invoke(target, args);
+              } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+              } finally {
+                if (closing) permits.release();
+              }
+            });
+  }
+}
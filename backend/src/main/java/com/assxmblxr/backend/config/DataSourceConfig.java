@@ -29,6 +29,7 @@ public class DataSourceConfig {
     dataSource.setDriverClassName("org.postgresql.Driver");
 
     log.info("application.yml is configured");
-    return dataSource;
+    // Не больше одновременных захватов, чем соединений в пуле; ждать столько же, сколько ждал бы Hikari
+    return new BoundedDataSource(dataSource, dataSource.getMaximumPoolSize(), dataSource.getConnectionTimeout());
   }
 }
\ No newline at end of file
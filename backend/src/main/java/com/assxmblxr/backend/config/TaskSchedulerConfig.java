@@ -1,16 +1,23 @@
 package com.assxmblxr.backend.config;
 
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 public class TaskSchedulerConfig {
   @Bean
-  public ThreadPoolTaskScheduler threadPoolTaskScheduler() {
+  public ThreadPoolTaskScheduler threadPoolTaskScheduler(Environment environment) {
     ThreadPoolTaskScheduler ts = new ThreadPoolTaskScheduler();
     ts.setPoolSize(2);
     ts.setThreadNamePrefix("dynamic-scheduler-");
+    if (Threading.VIRTUAL.isActive(environment)) {
+      // Java 21+ и spring.threads.virtual.enabled: задания не держат платформенные потоки на JDBC
+      ts.setThreadFactory(new VirtualThreadTaskExecutor("dynamic-scheduler-").getVirtualThreadFactory());
+    }
     ts.initialize();
     return ts;
   }
@@ -0,0 +1,44 @@
+package com.assxmblxr.backend.config;
+
+import com.assxmblxr.backend.components.ChangeTracker;
+import com.assxmblxr.backend.components.ConditionalGetInterceptor;
+import com.assxmblxr.backend.entity.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+  private final ChangeTracker changeTracker;
+
+  /**
+   * ETag/304 для справочников и аналитики. Для каждого пути указываются все сущности,
+   * данные которых попадают в ответ (например, в расписании — названия групп и предметов);
+   * источники пересчитываемых полей добавляет {@link ChangeTracker#withSources}.
+   */
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(conditionalGet(Schedule.class, Group.class, Subject.class, Teacher.class))
+            .addPathPatterns("/api/schedule/**");
+    registry.addInterceptor(conditionalGet(Subject.class, Teacher.class))
+            .addPathPatterns("/api/subjects/**");
+    registry.addInterceptor(conditionalGet(Teacher.class, Subject.class))
+            .addPathPatterns("/api/teachers/**");
+    registry.addInterceptor(conditionalGet(Group.class))
+            .addPathPatterns("/api/groups/**");
+    registry.addInterceptor(conditionalGet(Grade.class, Attendance.class, Student.class, Group.class, Subject.class,
+                    StudentRisk.class))
+            .addPathPatterns("/api/analytics/**");
+    registry.addInterceptor(conditionalGet(Grade.class, Attendance.class, Student.class, Group.class, Subject.class))
+            .addPathPatterns("/api/journal/**");
+  }
+
+  private ConditionalGetInterceptor conditionalGet(Class<?>... dependsOn) {
+    return new ConditionalGetInterceptor(changeTracker,
+            ChangeTracker.withSources(List.of(dependsOn)).toArray(Class<?>[]::new));
+  }
+}
@@ -1,17 +1,35 @@
 package com.assxmblxr.backend.controller;
 
+import com.assxmblxr.backend.dto.AbsentStudentResponse;
+import com.assxmblxr.backend.dto.GradeDistributionResponse;
 import com.assxmblxr.backend.dto.GroupAnalyticsResponse;
+import com.assxmblxr.backend.dto.PageResponse;
 import com.assxmblxr.backend.dto.StudentAnalyticsResponse;
+import com.assxmblxr.backend.dto.StudentRiskResponse;
+import com.assxmblxr.backend.dto.TrendPeriod;
+import com.assxmblxr.backend.dto.TrendResponse;
+import com.assxmblxr.backend.entity.AttendanceStatus;
+import com.assxmblxr.backend.entity.RiskLevel;
 import com.assxmblxr.backend.service.AnalyticsService;
+import com.assxmblxr.backend.service.RiskScoringService;
+import com.assxmblxr.backend.service.TrendService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/analytics")
 @RequiredArgsConstructor
 public class AnalyticsController {
   private final AnalyticsService analyticsService;
+  private final TrendService trendService;
+  private final RiskScoringService riskScoringService;
 
   /** GET /api/analytics/student/{id} — успеваемость и посещаемость студента */
   @GetMapping("/student/{id}")
@@ -24,4 +42,78 @@ public class AnalyticsController {
   public ResponseEntity<GroupAnalyticsResponse> getGroupAnalytics(@PathVariable Long id) {
     return ResponseEntity.ok(analyticsService.getGroupAnalytics(id));
   }
+
+  /**
+   * GET /api/analytics/grades/distribution — гистограмма, перцентили и разбивка по видам работ.
+   * Срез задаётся любым сочетанием studentId, groupId, subjectId и диапазона дат.
+   */
+  @GetMapping("/grades/distribution")
+  public ResponseEntity<GradeDistributionResponse> getGradeDistribution(
+          @RequestParam(required = false) Long studentId,
+          @RequestParam(required = false) Long groupId,
+          @RequestParam(required = false) Long subjectId,
+          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+    try {
+      return ResponseEntity.ok(analyticsService.getGradeDistribution(studentId, groupId, subjectId, from, to));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  /**
+   * GET /api/analytics/attendance/absent?dates=2025-09-01,2025-09-02 — кто отсутствовал в эти дни.
+   * statuses по умолчанию ABSENT и EXCUSED; groupId ограничивает группой.
+   */
+  @GetMapping("/attendance/absent")
+  public ResponseEntity<List<AbsentStudentResponse>> getAbsentStudents(
+          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Set<LocalDate> dates,
+          @RequestParam(required = false) Set<AttendanceStatus> statuses,
+          @RequestParam(required = false) Long groupId) {
+    try {
+      return ResponseEntity.ok(analyticsService.getAbsentStudents(dates, statuses, groupId));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  /**
+   * GET /api/analytics/at-risk — учащиеся с предрассчитанным статусом риска.
+   * По умолчанию HIGH и MEDIUM, сначала самые серьёзные.
+   */
+  @GetMapping("/at-risk")
+  public ResponseEntity<PageResponse<StudentRiskResponse>> getAtRisk(
+          @RequestParam(required = false) Set<RiskLevel> levels,
+          @RequestParam(required = false) Long groupId,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam(defaultValue = "50") int size,
+          @RequestParam(defaultValue = "severity") String sort,
+          @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
+    if (page < 0 || size < 1 || size > 500) return ResponseEntity.badRequest().build();
+    try {
+      return ResponseEntity.ok(riskScoringService.getAtRisk(levels, groupId, page, size, sort, direction));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  /**
+   * GET /api/analytics/trend — средний балл и доля присутствий по неделям или месяцам
+   * со скользящим окном из window периодов. Срез — как у распределения оценок.
+   */
+  @GetMapping("/trend")
+  public ResponseEntity<TrendResponse> getTrend(
+          @RequestParam(required = false) Long studentId,
+          @RequestParam(required = false) Long groupId,
+          @RequestParam(required = false) Long subjectId,
+          @RequestParam(defaultValue = "WEEK") TrendPeriod period,
+          @RequestParam(defaultValue = "4") int window,
+          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+    try {
+      return ResponseEntity.ok(trendService.getTrend(studentId, groupId, subjectId, period, window, from, to));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
 }
\ No newline at end of file
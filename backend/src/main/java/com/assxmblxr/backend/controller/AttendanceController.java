@@ -4,6 +4,7 @@ import com.assxmblxr.backend.dto.AttendanceRequest;
 import com.assxmblxr.backend.dto.AttendanceResponse;
 import com.assxmblxr.backend.dto.PageResponse;
 import com.assxmblxr.backend.exceptions.AttendanceException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.service.AttendanceService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -86,6 +88,9 @@ public class AttendanceController {
       return ResponseEntity.ok(attendanceService.update(id, request));
     } catch (AttendanceException e) {
       return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on attendance {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
     } catch (Exception e) {
       log.error("Error updating attendance: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
@@ -0,0 +1,37 @@
+package com.assxmblxr.backend.controller;
+
+import com.assxmblxr.backend.events.EventStreamHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+public class EventStreamController {
+  private final EventStreamHub eventStreamHub;
+
+  /**
+   * GET /api/events/stream?groupId=1&groupId=2&subjectId=3 — поток SSE с событиями
+   * "change", "graduates" и "resync". EventSource не умеет заголовки, поэтому токен
+   * можно передать параметром access_token.
+   */
+  @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter stream(
+          @RequestParam(name = "groupId", required = false) List<Long> groupIds,
+          @RequestParam(name = "subjectId", required = false) List<Long> subjectIds,
+          Authentication authentication
+  ) {
+    return eventStreamHub.subscribe(authentication.getName(),
+            groupIds != null ? Set.copyOf(groupIds) : Set.of(),
+            subjectIds != null ? Set.copyOf(subjectIds) : Set.of());
+  }
+}
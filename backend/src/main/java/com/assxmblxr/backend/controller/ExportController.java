@@ -1,16 +1,29 @@
 package com.assxmblxr.backend.controller;
 
+import com.assxmblxr.backend.dto.ExportJobRequest;
 import com.assxmblxr.backend.dto.GradeResponse;
+import com.assxmblxr.backend.export.CsvExportService;
+import com.assxmblxr.backend.export.ExportJobService;
+import com.assxmblxr.backend.export.ExportKind;
 import com.assxmblxr.backend.service.ExportService;
 import com.assxmblxr.backend.service.GradeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @RestController
@@ -18,7 +31,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ExportController {
 
+  static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+  private final ExportJobService exportJobService;
   private final ExportService exportService;
+  private final CsvExportService csvExportService;
   private final GradeService  gradeService;
 
   // ── Grades: по группе + предмет ──────────────────────────────────────────
@@ -31,73 +48,156 @@ public class ExportController {
   }
 
   @GetMapping("/grades/excel")
-  public ResponseEntity<byte[]> exportGradesExcel(
-          @RequestParam Long groupId, @RequestParam Long subjectId) {
+  public ResponseEntity<Resource> exportGradesExcel(
+          @RequestParam Long groupId, @RequestParam Long subjectId,
+          Authentication authentication) {
     try {
-      return xlsxResponse(exportService.exportGradesToExcel(groupId, subjectId), "grades.xlsx");
-    } catch (Exception e) { log.error("Grades Excel error", e); return ResponseEntity.internalServerError().build(); }
+      return xlsxResponse(render(ExportKind.GRADES_EXCEL, groupId, subjectId, null, authentication), "grades.xlsx");
+    } catch (Exception e) { return failed("Grades Excel error", e); }
   }
 
   @GetMapping("/grades/pdf")
-  public ResponseEntity<byte[]> exportGradesPdf(
-          @RequestParam Long groupId, @RequestParam Long subjectId) {
+  public ResponseEntity<Resource> exportGradesPdf(
+          @RequestParam Long groupId, @RequestParam Long subjectId,
+          Authentication authentication) {
     try {
-      return pdfResponse(exportService.exportGradesToPdf(groupId, subjectId), "grades.pdf");
-    } catch (Exception e) { log.error("Grades PDF error", e); return ResponseEntity.internalServerError().build(); }
+      return pdfResponse(render(ExportKind.GRADES_PDF, groupId, subjectId, null, authentication), "grades.pdf");
+    } catch (Exception e) { return failed("Grades PDF error", e); }
   }
 
   // ── Grades: по учащемуся ─────────────────────────────────────────────────
 
   @GetMapping("/grades/student/excel")
-  public ResponseEntity<byte[]> exportGradesByStudentExcel(
+  public ResponseEntity<Resource> exportGradesByStudentExcel(
           @RequestParam Long studentId,
-          @RequestParam(required = false) Long subjectId) {
+          @RequestParam(required = false) Long subjectId,
+          Authentication authentication) {
     try {
-      return xlsxResponse(exportService.exportGradesByStudentToExcel(studentId, subjectId), "grades_student.xlsx");
-    } catch (Exception e) { log.error("Student grades Excel error", e); return ResponseEntity.internalServerError().build(); }
+      return xlsxResponse(render(ExportKind.STUDENT_GRADES_EXCEL, null, subjectId, studentId, authentication), "grades_student.xlsx");
+    } catch (Exception e) { return failed("Student grades Excel error", e); }
   }
 
   @GetMapping("/grades/student/pdf")
-  public ResponseEntity<byte[]> exportGradesByStudentPdf(
+  public ResponseEntity<Resource> exportGradesByStudentPdf(
           @RequestParam Long studentId,
-          @RequestParam(required = false) Long subjectId) {
+          @RequestParam(required = false) Long subjectId,
+          Authentication authentication) {
     try {
-      return pdfResponse(exportService.exportGradesByStudentToPdf(studentId, subjectId), "grades_student.pdf");
-    } catch (Exception e) { log.error("Student grades PDF error", e); return ResponseEntity.internalServerError().build(); }
+      return pdfResponse(render(ExportKind.STUDENT_GRADES_PDF, null, subjectId, studentId, authentication), "grades_student.pdf");
+    } catch (Exception e) { return failed("Student grades PDF error", e); }
+  }
+
+  // ── Grades: вся школа, лист на группу × предмет ─────────────────────────
+
+  @GetMapping("/grades/school/excel")
+  public ResponseEntity<Resource> exportSchoolGradesExcel(Authentication authentication) {
+    try {
+      return xlsxResponse(render(ExportKind.SCHOOL_GRADES_EXCEL, null, null, null, authentication), "grades_school.xlsx");
+    } catch (Exception e) { return failed("School grades Excel error", e); }
+  }
+
+  // ── Табели: ZIP по группе или всей школе ─────────────────────────────────
+
+  @GetMapping("/report-cards/zip")
+  public ResponseEntity<StreamingResponseBody> exportReportCards(
+          @RequestParam(required = false) Long groupId) {
+    return streamingResponse(out -> exportService.writeReportCardsZip(groupId, out),
+            "report_cards.zip", MediaType.parseMediaType("application/zip"));
   }
 
   // ── Statistics ────────────────────────────────────────────────────────────
 
   @GetMapping("/statistics/excel")
-  public ResponseEntity<byte[]> exportStatisticsExcel(
-          @RequestParam(required = false) Long groupId) {
+  public ResponseEntity<Resource> exportStatisticsExcel(
+          @RequestParam(required = false) Long groupId,
+          Authentication authentication) {
     try {
-      return xlsxResponse(exportService.exportStatisticsToExcel(groupId), "statistics.xlsx");
-    } catch (Exception e) { log.error("Statistics Excel error", e); return ResponseEntity.internalServerError().build(); }
+      return xlsxResponse(render(ExportKind.STATISTICS_EXCEL, groupId, null, null, authentication), "statistics.xlsx");
+    } catch (Exception e) { return failed("Statistics Excel error", e); }
   }
 
   @GetMapping("/statistics/pdf")
-  public ResponseEntity<byte[]> exportStatisticsPdf(
-          @RequestParam(required = false) Long groupId) {
+  public ResponseEntity<Resource> exportStatisticsPdf(
+          @RequestParam(required = false) Long groupId,
+          Authentication authentication) {
     try {
-      return pdfResponse(exportService.exportStatisticsToPdf(groupId), "statistics.pdf");
-    } catch (Exception e) { log.error("Statistics PDF error", e); return ResponseEntity.internalServerError().build(); }
+      return pdfResponse(render(ExportKind.STATISTICS_PDF, groupId, null, null, authentication), "statistics.pdf");
+    } catch (Exception e) { return failed("Statistics PDF error", e); }
+  }
+
+  // ── CSV: потоковая выгрузка полной истории ───────────────────────────────
+
+  @GetMapping("/grades/csv")
+  public ResponseEntity<StreamingResponseBody> exportGradesCsv(
+          @RequestParam(required = false) Long groupId,
+          @RequestParam(required = false) Long subjectId) {
+    return streamingResponse(out -> csvExportService.writeGrades(groupId, subjectId, out), "grades.csv", CSV);
+  }
+
+  @GetMapping("/attendance/csv")
+  public ResponseEntity<StreamingResponseBody> exportAttendanceCsv(
+          @RequestParam(required = false) Long groupId,
+          @RequestParam(required = false) Long subjectId) {
+    return streamingResponse(out -> csvExportService.writeAttendance(groupId, subjectId, out), "attendance.csv", CSV);
   }
 
   // ── helpers ───────────────────────────────────────────────────────────────
 
-  private ResponseEntity<byte[]> xlsxResponse(byte[] data, String filename) {
+  /**
+   * Повторные выгрузки по неизменившимся данным отдаются из кэша готовых файлов, остальные
+   * строятся очередью выгрузок; файл читается с диска при отправке ответа, а не в память.
+   */
+  private ExportJobService.Rendered render(ExportKind kind, Long groupId, Long subjectId, Long studentId,
+                                           Authentication authentication) throws IOException, TimeoutException {
+    ExportJobRequest request = new ExportJobRequest();
+    request.setKind(kind);
+    request.setGroupId(groupId);
+    request.setSubjectId(subjectId);
+    request.setStudentId(studentId);
+    return exportJobService.renderNow(request, authentication.getName());
+  }
+
+  private ResponseEntity<Resource> xlsxResponse(ExportJobService.Rendered file, String filename) {
+    return fileResponse(file, filename, MediaType.parseMediaType(
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+  }
+
+  private ResponseEntity<Resource> fileResponse(ExportJobService.Rendered file, String filename, MediaType contentType) {
     return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-            .contentType(MediaType.parseMediaType(
-                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-            .body(data);
+            .contentType(contentType)
+            .contentLength(file.size())
+            .body(new InputStreamResource(file.content()));
   }
 
-  private ResponseEntity<byte[]> pdfResponse(byte[] data, String filename) {
+  /** Очередь выгрузок заполнена или выгрузка не успела — клиент может повторить позже */
+  private ResponseEntity<Resource> failed(String what, Exception e) {
+    if (e instanceof RejectedExecutionException || e instanceof TimeoutException) {
+      log.warn("{}: {}", what, e instanceof TimeoutException ? "timed out" : "export queue is full");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+    }
+    log.error(what, e);
+    return ResponseEntity.internalServerError().build();
+  }
+
+  /** Тело пишется после возврата из метода, поэтому ошибки генерации только логируются */
+  static ResponseEntity<StreamingResponseBody> streamingResponse(StreamingResponseBody body, String filename,
+                                                                 MediaType contentType) {
+    StreamingResponseBody logged = out -> {
+      try {
+        body.writeTo(out);
+      } catch (Exception e) {
+        log.error("Streaming export {} failed: {}", filename, e.getMessage(), e);
+        throw e;
+      }
+    };
     return ResponseEntity.ok()
             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-            .contentType(MediaType.APPLICATION_PDF)
-            .body(data);
+            .contentType(contentType)
+            .body(logged);
+  }
+
+  private ResponseEntity<Resource> pdfResponse(ExportJobService.Rendered file, String filename) {
+    return fileResponse(file, filename, MediaType.APPLICATION_PDF);
   }
 }
\ No newline at end of file
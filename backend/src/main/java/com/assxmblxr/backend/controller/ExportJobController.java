@@ -0,0 +1,98 @@
+package com.assxmblxr.backend.controller;
+
+import com.assxmblxr.backend.dto.ExportJobRequest;
+import com.assxmblxr.backend.dto.ExportJobResponse;
+import com.assxmblxr.backend.exceptions.ExportException;
+import com.assxmblxr.backend.export.ExportJob;
+import com.assxmblxr.backend.export.ExportJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Фоновые выгрузки: POST ставит задание и сразу отвечает 202 с его id,
+ * о готовности клиент узнаёт опросом GET /{id} или событием "export" из /api/events/stream.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/exports")
+@RequiredArgsConstructor
+public class ExportJobController {
+  // Атрибуты Tomcat для отдачи файла через sendfile (ядро копирует файл в сокет без JVM)
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final ExportJobService exportJobService;
+
+  /** POST /api/exports — {"kind": "STATISTICS_EXCEL", "groupId": 1} */
+  @PostMapping
+  public ResponseEntity<ExportJobResponse> submit(@Valid @RequestBody ExportJobRequest request,
+                                                  Authentication authentication) {
+    try {
+      ExportJob job = exportJobService.submit(request, authentication.getName());
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(toResponse(job));
+    } catch (ExportException | IllegalArgumentException e) {
+      log.warn("Export rejected: {}", e.getMessage());
+      return ResponseEntity.badRequest().build();
+    } catch (RejectedExecutionException e) {
+      log.warn("Export queue is full");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+    }
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<ExportJobResponse> status(@PathVariable String id, Authentication authentication) {
+    return findOwn(id, authentication)
+            .map(job -> ResponseEntity.ok(toResponse(job)))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  /** GET /api/exports/{id}/file — готовый файл; 409, пока задание не завершено успешно */
+  @GetMapping("/{id}/file")
+  public ResponseEntity<Resource> download(@PathVariable String id, Authentication authentication,
+                                           HttpServletRequest request) {
+    Optional<ExportJob> found = findOwn(id, authentication);
+    if (found.isEmpty()) return ResponseEntity.notFound().build();
+    ExportJob job = found.get();
+    if (job.getStatus() != ExportJob.Status.DONE) return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    if (!Files.exists(job.getFile())) return ResponseEntity.notFound().build();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getKind().fileName() + "\"");
+    headers.setContentType(MediaType.parseMediaType(job.getKind().contentType()));
+    headers.setContentLength(job.getSize());
+
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, job.getFile().toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, 0L);
+      request.setAttribute(SENDFILE_END, job.getSize());
+      return ResponseEntity.ok().headers(headers).build();
+    }
+    return ResponseEntity.ok().headers(headers).body(new FileSystemResource(job.getFile()));
+  }
+
+  /** Чужие задания не видны: отвечаем так же, как на несуществующие */
+  private Optional<ExportJob> findOwn(String id, Authentication authentication) {
+    return exportJobService.find(id).filter(job -> job.isWatchedBy(authentication.getName()));
+  }
+
+  private ExportJobResponse toResponse(ExportJob job) {
+    return new ExportJobResponse(job.getId(), job.getKind().name(), job.getStatus().name(),
+            job.getKind().fileName(), job.getSize(), job.getError(), job.getCreatedAt(), job.getFinishedAt());
+  }
+}
@@ -1,19 +1,26 @@
 package com.assxmblxr.backend.controller;
 
 import com.assxmblxr.backend.dto.*;
+import com.assxmblxr.backend.exceptions.QueryCostException;
+import com.assxmblxr.backend.export.CsvExportService;
+import com.assxmblxr.backend.filter.EntityFlattener;
 import com.assxmblxr.backend.filter.EntityRegistry;
+import com.assxmblxr.backend.filter.SqlExplainer;
 import com.assxmblxr.backend.repository.GenericFilterRepository;
 import com.assxmblxr.backend.service.ExportService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.*;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.lang.reflect.Field;
-import java.time.LocalDate;
 import java.util.*;
 
 @Slf4j
@@ -24,23 +31,35 @@ public class FilterController {
 
   private final GenericFilterRepository filterRepository;
   private final ExportService exportService;
+  private final CsvExportService csvExportService;
 
   @PostMapping("/execute")
   public ResponseEntity<PageResponse<Map<String, Object>>> execute(
           @RequestBody FilterExecuteRequest request
   ) {
-    Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
+    if (request.getPage() < 0) return ResponseEntity.badRequest().build();
     int size = request.getSize() > 0 ? request.getSize() : 50;
     Pageable pageable = PageRequest.of(request.getPage(), size);
 
-    Page<Object> result = filterRepository.filter(entityClass, request.getBlocks(), pageable);
-
-    List<Map<String, Object>> content = result.getContent().stream()
-            .map(FilterController::flatten)
-            .toList();
+    Page<Map<String, Object>> result;
+    try {
+      Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
+      if (request.isAggregate()) {
+        result = filterRepository.aggregate(entityClass, request, pageable);
+      } else {
+        EntityRegistry.checkSortable(entityClass, request.getSort());
+        result = filterRepository.filter(entityClass, request.getBlocks(), request.getSort(), pageable)
+                .map(EntityFlattener::flatten);
+      }
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      // ошибки в программе фильтра репозиторий отдаёт обёрнутыми в InvalidDataAccessApiUsageException
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
+    }
 
     return ResponseEntity.ok(new PageResponse<>(
-            content,
+            result.getContent(),
             result.getNumber(),
             result.getSize(),
             result.getTotalElements(),
@@ -49,16 +68,47 @@ public class FilterController {
     ));
   }
 
+  /**
+   * POST /api/v1/filters/explain?analyze= — SQL, который выполнил бы execute, и план PostgreSQL:
+   * стоимость, оценка строк, индексы. EXPLAIN ANALYZE действительно выполняет запрос,
+   * поэтому {@code analyze=true} доступен только администратору.
+   */
+  @PostMapping("/explain")
+  public ResponseEntity<FilterExplainResponse> explain(@RequestBody FilterExecuteRequest request,
+                                                       @RequestParam(defaultValue = "false") boolean analyze,
+                                                       Authentication authentication) {
+    if (analyze && authentication.getAuthorities().stream().noneMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()))) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    if (request.getPage() < 0) return ResponseEntity.badRequest().build();
+    int size = request.getSize() > 0 ? request.getSize() : 50;
+    Pageable pageable = PageRequest.of(request.getPage(), size);
+
+    List<SqlExplainer.Plan> plans;
+    try {
+      Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
+      if (!request.isAggregate()) EntityRegistry.checkSortable(entityClass, request.getSort());
+      plans = filterRepository.explain(entityClass, request, pageable, analyze);
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
+    }
+
+    List<FilterExplainResponse.QueryPlan> queries = new ArrayList<>();
+    for (int i = 0; i < plans.size(); i++) {
+      SqlExplainer.Plan plan = plans.get(i);
+      queries.add(new FilterExplainResponse.QueryPlan(i == 0 ? "data" : "count", plan.sql(), plan.parameters(),
+              plan.totalCost(), plan.rows(), plan.indexes(), plan.executionTimeMs(), plan.root()));
+    }
+    return ResponseEntity.ok(new FilterExplainResponse(queries));
+  }
+
   /** POST /api/v1/filters/export/excel — экспорт результатов фильтрации в Excel */
   @PostMapping("/export/excel")
   public ResponseEntity<byte[]> exportExcel(@RequestBody FilterExecuteRequest request) {
     try {
-      Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
-      Pageable pageable = PageRequest.of(0, Integer.MAX_VALUE);
-      Page<Object> result = filterRepository.filter(entityClass, request.getBlocks(), pageable);
-
-      List<Map<String, Object>> rows = result.getContent().stream()
-              .map(FilterController::flatten).toList();
+      List<Map<String, Object>> rows = allRows(request);
 
       byte[] data = exportService.exportFilterResultsToExcel(request.getRootEntity(), rows);
       return ResponseEntity.ok()
@@ -66,95 +116,70 @@ public class FilterController {
               .contentType(MediaType.parseMediaType(
                       "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
               .body(data);
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
     } catch (Exception e) {
       log.error("Filter Excel export error: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
     }
   }
 
+  /** POST /api/v1/filters/export/csv — потоковый экспорт результатов фильтрации в CSV без лимита строк */
+  @PostMapping("/export/csv")
+  public ResponseEntity<StreamingResponseBody> exportCsv(@RequestBody FilterExecuteRequest request) {
+    StreamingResponseBody body;
+    try {
+      Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
+      if (!request.isAggregate()) EntityRegistry.checkSortable(entityClass, request.getSort());
+      body = csvExportService.filterResults(request);
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
+    }
+    return ExportController.streamingResponse(body, "filter_results.csv", ExportController.CSV);
+  }
+
   /** POST /api/v1/filters/export/pdf — экспорт результатов фильтрации в PDF */
   @PostMapping("/export/pdf")
   public ResponseEntity<byte[]> exportPdf(@RequestBody FilterExecuteRequest request) {
     try {
-      Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
-      Pageable pageable = PageRequest.of(0, Integer.MAX_VALUE);
-      Page<Object> result = filterRepository.filter(entityClass, request.getBlocks(), pageable);
-
-      List<Map<String, Object>> rows = result.getContent().stream()
-              .map(FilterController::flatten).toList();
+      List<Map<String, Object>> rows = allRows(request);
 
       byte[] data = exportService.exportFilterResultsToPdf(request.getRootEntity(), rows);
       return ResponseEntity.ok()
               .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"filter_results.pdf\"")
               .contentType(MediaType.APPLICATION_PDF)
               .body(data);
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
     } catch (Exception e) {
       log.error("Filter PDF export error: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
     }
   }
 
-  // ── flatten helpers ───────────────────────────────────────────────────────
-
-  private static Map<String, Object> flatten(Object entity) {
-    return flatten(entity, new HashSet<>());
-  }
-
-  private static Map<String, Object> flatten(Object obj, Set<Integer> visited) {
-    if (obj == null) return Map.of();
-    int identity = System.identityHashCode(obj);
-    if (visited.contains(identity)) return Map.of();
-    visited.add(identity);
-
-    Map<String, Object> map = new LinkedHashMap<>();
-    Class<?> cls = obj.getClass();
-
-    while (cls != null && cls != Object.class) {
-      for (Field field : cls.getDeclaredFields()) {
-        if (field.getName().startsWith("$$") || field.getName().equals("serialVersionUID")) continue;
-        field.setAccessible(true);
-        try {
-          Object value = field.get(obj);
-          if (value == null) {
-            map.put(field.getName(), null);
-          } else if (isScalar(value)) {
-            map.put(field.getName(), value);
-          } else if (value instanceof Collection<?> col) {
-            map.put(field.getName() + "_count", col.size());
-          } else {
-            Map<String, Object> nested = flattenNested(value, visited);
-            nested.forEach((k, v) -> map.put(field.getName() + "_" + k, v));
-          }
-        } catch (Exception ignored) {}
-      }
-      cls = cls.getSuperclass();
+  /** Все строки результата для выгрузки: сущности в плоском виде или группы агрегатного запроса */
+  private List<Map<String, Object>> allRows(FilterExecuteRequest request) {
+    Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
+    Pageable pageable = PageRequest.of(0, Integer.MAX_VALUE);
+    if (request.isAggregate()) {
+      return filterRepository.aggregate(entityClass, request, pageable).getContent();
     }
-    return map;
+    return filterRepository.filter(entityClass, request.getBlocks(), request.getSort(), pageable)
+            .getContent().stream().map(EntityFlattener::flatten).toList();
   }
 
-  private static Map<String, Object> flattenNested(Object obj, Set<Integer> visited) {
-    Map<String, Object> result = new LinkedHashMap<>();
-    int identity = System.identityHashCode(obj);
-    if (visited.contains(identity)) return result;
-    visited.add(identity);
-    Class<?> cls = obj.getClass();
-    while (cls != null && cls != Object.class) {
-      for (Field field : cls.getDeclaredFields()) {
-        if (field.getName().startsWith("$$") || field.getName().equals("serialVersionUID")) continue;
-        field.setAccessible(true);
-        try {
-          Object value = field.get(obj);
-          if (value != null && isScalar(value)) result.put(field.getName(), value);
-        } catch (Exception ignored) {}
-      }
-      cls = cls.getSuperclass();
+  /** 503 с Retry-After, если занята очередь тяжёлых запросов; 422, если запрос надо сузить */
+  private static <T> ResponseEntity<T> rejected(RuntimeException e) {
+    log.warn("Filter query rejected: {}", e.getMessage());
+    if (e instanceof QueryCostException cost && cost.isRetryable()) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
     }
-    return result;
-  }
-
-  private static boolean isScalar(Object v) {
-    return v instanceof Number || v instanceof String
-            || v instanceof Boolean || v instanceof LocalDate
-            || v instanceof Enum<?>;
+    return ResponseEntity.unprocessableEntity().build();
   }
 }
\ No newline at end of file
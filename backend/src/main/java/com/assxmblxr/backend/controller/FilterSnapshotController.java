@@ -0,0 +1,171 @@
+package com.assxmblxr.backend.controller;
+
+import com.assxmblxr.backend.dto.FilterExecuteRequest;
+import com.assxmblxr.backend.dto.FilterSnapshotResponse;
+import com.assxmblxr.backend.dto.FilterSortDto;
+import com.assxmblxr.backend.dto.PageResponse;
+import com.assxmblxr.backend.exceptions.FilterSnapshotException;
+import com.assxmblxr.backend.exceptions.QueryCostException;
+import com.assxmblxr.backend.filter.ResultSnapshot;
+import com.assxmblxr.backend.service.ExportService;
+import com.assxmblxr.backend.service.FilterSnapshotService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Снимки результатов фильтрации: POST выполняет фильтр один раз и запоминает id строк,
+ * страницы, сортировки и выгрузки снимка читают строки по id без повторного фильтра.
+ * Сортировка передаётся как в Spring Data: {@code sort=field} или {@code sort=field,desc}.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/filters/snapshots")
+@RequiredArgsConstructor
+public class FilterSnapshotController {
+  private final FilterSnapshotService snapshotService;
+  private final ExportService exportService;
+
+  /** POST /api/v1/filters/snapshots — тело как у /api/v1/filters/execute, page и size не нужны */
+  @PostMapping
+  public ResponseEntity<FilterSnapshotResponse> create(@RequestBody FilterExecuteRequest request,
+                                                       Authentication authentication) {
+    try {
+      ResultSnapshot snapshot = snapshotService.create(request, authentication.getName());
+      return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(snapshot));
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
+    }
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<PageResponse<Map<String, Object>>> page(@PathVariable String id,
+                                                                @RequestParam(defaultValue = "0") int page,
+                                                                @RequestParam(defaultValue = "50") int size,
+                                                                Sort sort,
+                                                                Authentication authentication) {
+    if (page < 0 || size < 1) return ResponseEntity.badRequest().build();
+    Page<Map<String, Object>> result;
+    try {
+      result = snapshotService.page(id, authentication.getName(), page, size, sortKeys(sort));
+    } catch (FilterSnapshotException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
+    }
+
+    return ResponseEntity.ok(new PageResponse<>(
+            result.getContent(),
+            result.getNumber(),
+            result.getSize(),
+            result.getTotalElements(),
+            result.getTotalPages(),
+            result.isLast()
+    ));
+  }
+
+  /** GET /api/v1/filters/snapshots/{id}/info — размер и срок жизни снимка */
+  @GetMapping("/{id}/info")
+  public ResponseEntity<FilterSnapshotResponse> info(@PathVariable String id, Authentication authentication) {
+    try {
+      return ResponseEntity.ok(toResponse(snapshotService.get(id, authentication.getName())));
+    } catch (FilterSnapshotException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  @GetMapping("/{id}/export/excel")
+  public ResponseEntity<byte[]> exportExcel(@PathVariable String id, Sort sort, Authentication authentication) {
+    try {
+      ResultSnapshot snapshot = snapshotService.get(id, authentication.getName());
+      List<Map<String, Object>> rows = snapshotService.allRows(id, authentication.getName(), sortKeys(sort));
+
+      byte[] data = exportService.exportFilterResultsToExcel(snapshot.getRootEntity(), rows);
+      return ResponseEntity.ok()
+              .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"filter_results.xlsx\"")
+              .contentType(MediaType.parseMediaType(
+                      "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+              .body(data);
+    } catch (FilterSnapshotException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
+    } catch (Exception e) {
+      log.error("Snapshot Excel export error: {}", e.getMessage(), e);
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @GetMapping("/{id}/export/pdf")
+  public ResponseEntity<byte[]> exportPdf(@PathVariable String id, Sort sort, Authentication authentication) {
+    try {
+      ResultSnapshot snapshot = snapshotService.get(id, authentication.getName());
+      List<Map<String, Object>> rows = snapshotService.allRows(id, authentication.getName(), sortKeys(sort));
+
+      byte[] data = exportService.exportFilterResultsToPdf(snapshot.getRootEntity(), rows);
+      return ResponseEntity.ok()
+              .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"filter_results.pdf\"")
+              .contentType(MediaType.APPLICATION_PDF)
+              .body(data);
+    } catch (FilterSnapshotException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      return rejected(e);
+    } catch (Exception e) {
+      log.error("Snapshot PDF export error: {}", e.getMessage(), e);
+      return ResponseEntity.internalServerError().build();
+    }
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> delete(@PathVariable String id, Authentication authentication) {
+    return snapshotService.delete(id, authentication.getName())
+            ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+  }
+
+  private FilterSnapshotResponse toResponse(ResultSnapshot snapshot) {
+    return new FilterSnapshotResponse(snapshot.getId(), snapshot.getRootEntity(), snapshot.size(),
+            snapshot.getCreatedAt(), snapshot.getLastAccess().plus(snapshotService.getTtl()));
+  }
+
+  private static List<FilterSortDto> sortKeys(Sort sort) {
+    List<FilterSortDto> keys = new ArrayList<>();
+    for (Sort.Order order : sort) {
+      FilterSortDto key = new FilterSortDto();
+      key.setField(order.getProperty());
+      key.setDirection(order.getDirection().name());
+      keys.add(key);
+    }
+    return keys;
+  }
+
+  /** 503 с Retry-After, если занята очередь тяжёлых запросов; 422, если запрос надо сузить */
+  private static <T> ResponseEntity<T> rejected(RuntimeException e) {
+    log.warn("Filter snapshot rejected: {}", e.getMessage());
+    if (e instanceof QueryCostException cost && cost.isRetryable()) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
+    }
+    return ResponseEntity.unprocessableEntity().build();
+  }
+}
\ No newline at end of file
@@ -4,12 +4,14 @@ import com.assxmblxr.backend.dto.GradeRequest;
 import com.assxmblxr.backend.dto.GradeResponse;
 import com.assxmblxr.backend.dto.PageResponse;
 import com.assxmblxr.backend.exceptions.GradeException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.service.GradeService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 @Slf4j
@@ -64,6 +66,9 @@ public class GradeController {
       return ResponseEntity.ok(gradeService.updateGrade(id, request));
     } catch (GradeException e) {
       return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on grade {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
     } catch (Exception e) {
       log.error("Error updating grade: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
@@ -2,10 +2,12 @@ package com.assxmblxr.backend.controller;
 
 import com.assxmblxr.backend.entity.Group;
 import com.assxmblxr.backend.exceptions.GroupException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.service.GroupService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -50,6 +52,9 @@ public class GroupController {
       return ResponseEntity.ok(groupService.updateGroup(id, group));
     } catch (GroupException e) {
       return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on group {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
     }
   }
 
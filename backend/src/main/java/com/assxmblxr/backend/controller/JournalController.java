@@ -0,0 +1,41 @@
+package com.assxmblxr.backend.controller;
+
+import com.assxmblxr.backend.dto.JournalMatrixResponse;
+import com.assxmblxr.backend.exceptions.GroupException;
+import com.assxmblxr.backend.exceptions.SubjectException;
+import com.assxmblxr.backend.service.JournalMatrixService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/journal")
+@RequiredArgsConstructor
+public class JournalController {
+  private final JournalMatrixService journalMatrixService;
+
+  /**
+   * GET /api/journal/matrix?groupId=&subjectId=&from=&to=
+   * Весь журнал группы по предмету за период (не больше года) одним ответом.
+   */
+  @GetMapping("/matrix")
+  public ResponseEntity<JournalMatrixResponse> getMatrix(
+          @RequestParam Long groupId,
+          @RequestParam Long subjectId,
+          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+    try {
+      return ResponseEntity.ok(journalMatrixService.getMatrix(groupId, subjectId, from, to));
+    } catch (GroupException | SubjectException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.assxmblxr.backend.controller;
+
+import com.assxmblxr.backend.dto.PageResponse;
+import com.assxmblxr.backend.dto.SavedFilterExecuteRequest;
+import com.assxmblxr.backend.dto.SavedFilterRequest;
+import com.assxmblxr.backend.dto.SavedFilterResponse;
+import com.assxmblxr.backend.entity.SavedFilter;
+import com.assxmblxr.backend.exceptions.QueryCostException;
+import com.assxmblxr.backend.exceptions.SavedFilterException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
+import com.assxmblxr.backend.service.SavedFilterService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сохранённые фильтры текущего пользователя. Программа проверяется при сохранении,
+ * выполнение по id принимает только значения слотов {@code ${name}} и страницу.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/filters/saved")
+@RequiredArgsConstructor
+public class SavedFilterController {
+  private final SavedFilterService savedFilterService;
+
+  @GetMapping
+  public ResponseEntity<List<SavedFilterResponse>> getOwn(Authentication authentication) {
+    return ResponseEntity.ok(savedFilterService.getOwn(authentication.getName()).stream()
+            .map(this::toResponse)
+            .toList());
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<SavedFilterResponse> get(@PathVariable Long id, Authentication authentication) {
+    try {
+      return ResponseEntity.ok(toResponse(savedFilterService.get(id, authentication.getName())));
+    } catch (SavedFilterException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  @PostMapping
+  public ResponseEntity<SavedFilterResponse> create(@Valid @RequestBody SavedFilterRequest request,
+                                                    Authentication authentication) {
+    try {
+      SavedFilter saved = savedFilterService.create(request, authentication.getName());
+      return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(saved));
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      log.warn("Saved filter rejected: {}", e.getMessage());
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @PutMapping("/{id}")
+  public ResponseEntity<SavedFilterResponse> update(@PathVariable Long id, @Valid @RequestBody SavedFilterRequest request,
+                                                    Authentication authentication) {
+    try {
+      return ResponseEntity.ok(toResponse(savedFilterService.update(id, request, authentication.getName())));
+    } catch (SavedFilterException e) {
+      return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on saved filter {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      log.warn("Saved filter rejected: {}", e.getMessage());
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> delete(@PathVariable Long id, Authentication authentication) {
+    return savedFilterService.delete(id, authentication.getName())
+            ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+  }
+
+  /** POST /api/v1/filters/saved/{id}/execute — {"parameters": {"from": "2025-09-01"}, "page": 0, "size": 50} */
+  @PostMapping("/{id}/execute")
+  public ResponseEntity<PageResponse<Map<String, Object>>> execute(@PathVariable Long id,
+                                                                   @RequestBody SavedFilterExecuteRequest request,
+                                                                   Authentication authentication) {
+    Page<Map<String, Object>> result;
+    try {
+      result = savedFilterService.execute(id, request, authentication.getName());
+    } catch (SavedFilterException e) {
+      return ResponseEntity.notFound().build();
+    } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (QueryCostException | QueryTimeoutException e) {
+      log.warn("Saved filter {} rejected: {}", id, e.getMessage());
+      if (e instanceof QueryCostException cost && cost.isRetryable()) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
+      }
+      return ResponseEntity.unprocessableEntity().build();
+    }
+
+    return ResponseEntity.ok(new PageResponse<>(
+            result.getContent(),
+            result.getNumber(),
+            result.getSize(),
+            result.getTotalElements(),
+            result.getTotalPages(),
+            result.isLast()
+    ));
+  }
+
+  private SavedFilterResponse toResponse(SavedFilter filter) {
+    List<String> parameters = filter.getParameters().isEmpty()
+            ? List.of() : Arrays.asList(filter.getParameters().split(","));
+    return new SavedFilterResponse(filter.getId(), filter.getName(), filter.getRootEntity(),
+            savedFilterService.read(filter), parameters, filter.isCacheResults(),
+            filter.getCreatedAt(), filter.getUpdatedAt(), filter.getVersion());
+  }
+}
\ No newline at end of file
@@ -4,12 +4,14 @@ import com.assxmblxr.backend.dto.ScheduleRequest;
 import com.assxmblxr.backend.dto.ScheduleResponse;
 import com.assxmblxr.backend.entity.DayOfWeek;
 import com.assxmblxr.backend.exceptions.ScheduleException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.service.ScheduleService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -59,6 +61,9 @@ public class ScheduleController {
       return ResponseEntity.ok(scheduleService.update(id, request));
     } catch (ScheduleException e) {
       return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on schedule {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
     } catch (Exception e) {
       log.error("Error updating schedule: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
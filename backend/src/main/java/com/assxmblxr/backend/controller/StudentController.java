@@ -4,6 +4,7 @@ import com.assxmblxr.backend.dto.StudentRequest;
 import com.assxmblxr.backend.dto.StudentResponse;
 import com.assxmblxr.backend.entity.Student;
 import com.assxmblxr.backend.exceptions.StudentException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.service.StudentService;
 
 import jakarta.validation.Valid;
@@ -11,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -78,6 +80,9 @@ public class StudentController {
     } catch (StudentException e) {
       log.error("Student with id {} not found", id);
       return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on student {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
     } catch (Exception e) {
       log.error("Error updating student: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
@@ -94,7 +99,8 @@ public class StudentController {
             student.getBirthdate(),
             student.getAge(),
             student.getGroup() != null ? student.getGroup().getId() : null,
-            student.getGroup() != null ? student.getGroup().getName() : null
+            student.getGroup() != null ? student.getGroup().getName() : null,
+            student.getVersion()
     );
   }
 }
\ No newline at end of file
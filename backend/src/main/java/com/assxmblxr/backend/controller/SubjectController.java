@@ -2,6 +2,7 @@ package com.assxmblxr.backend.controller;
 
 import com.assxmblxr.backend.dto.SubjectDTO;
 import com.assxmblxr.backend.exceptions.SubjectException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.service.SubjectService;
 
 import jakarta.validation.Valid;
@@ -9,6 +10,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Collections;
@@ -51,6 +53,9 @@ public class SubjectController {
     } catch (SubjectException e) {
       log.error("Subject with id {} not found", id);
       return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on subject {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
     } catch (Exception e) {
       log.error("GOT AN ERROR WHEN UPDATING SUBJECT: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
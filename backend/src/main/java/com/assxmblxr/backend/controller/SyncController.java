@@ -0,0 +1,30 @@
+package com.assxmblxr.backend.controller;
+
+import com.assxmblxr.backend.dto.JournalDeltaResponse;
+import com.assxmblxr.backend.service.JournalSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncController {
+  private final JournalSyncService journalSyncService;
+
+  /**
+   * GET /api/sync/journal?since=&limit=
+   * Первый запрос без since: resetRequired = true и токен, с которого продолжать после полной загрузки.
+   * Далее since = token из прошлого ответа; при hasMore = true запрашивать сразу ещё.
+   */
+  @GetMapping("/journal")
+  public ResponseEntity<JournalDeltaResponse> getJournalDelta(
+          @RequestParam(required = false) Long since,
+          @RequestParam(defaultValue = "1000") int limit
+  ) {
+    return ResponseEntity.ok(journalSyncService.getDelta(since, limit));
+  }
+}
@@ -3,10 +3,12 @@ package com.assxmblxr.backend.controller;
 import com.assxmblxr.backend.dto.TeacherRequest;
 import com.assxmblxr.backend.dto.TeacherResponse;
 import com.assxmblxr.backend.exceptions.TeacherException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.service.TeacherService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Collections;
@@ -49,6 +51,9 @@ public class TeacherController {
     } catch (TeacherException e) {
       log.error("Teacher with id {} not found", id);
       return ResponseEntity.notFound().build();
+    } catch (VersionConflictException | ObjectOptimisticLockingFailureException e) {
+      log.warn("Version conflict on teacher {}: {}", id, e.getMessage());
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
     } catch (Exception e) {
       log.error("GOT AN ERROR WHEN UPDATING TEACHER: {}", e.getMessage(), e);
       return ResponseEntity.internalServerError().build();
@@ -0,0 +1,26 @@
+package com.assxmblxr.backend.controller;
+
+import com.assxmblxr.backend.service.DataVersionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/versions")
+@RequiredArgsConstructor
+public class VersionController {
+  private final DataVersionService dataVersionService;
+
+  /**
+   * GET /api/versions — токены версий по каждой сущности, например {"Grade": "1520-1733-48", ...}.
+   * Клиент сравнивает их с сохранёнными и перезапрашивает только изменившиеся таблицы.
+   */
+  @GetMapping
+  public ResponseEntity<Map<String, String>> getVersions() {
+    return ResponseEntity.ok(dataVersionService.getAllVersions());
+  }
+}
@@ -0,0 +1,15 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AbsentStudentResponse {
+  private Long studentId;
+  private String studentName;
+  private Long groupId;
+  private String groupName;
+  /** Сколько записей с запрошенными статусами приходится на запрошенные даты */
+  private long count;
+}
\ No newline at end of file
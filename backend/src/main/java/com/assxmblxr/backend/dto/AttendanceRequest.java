@@ -25,4 +25,7 @@ public class AttendanceRequest {
   private AttendanceStatus status;
 
   private String note;
+
+  /** Версия, с которой клиент начинал правку; при расхождении вернётся 409 Conflict */
+  private Long version;
 }
\ No newline at end of file
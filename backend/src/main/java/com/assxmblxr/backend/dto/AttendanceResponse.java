@@ -17,4 +17,5 @@ public class AttendanceResponse {
   private LocalDate attendanceDate;
   private AttendanceStatus status;
   private String note;
+  private Long version;
 }
\ No newline at end of file
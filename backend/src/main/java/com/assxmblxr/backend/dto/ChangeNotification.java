@@ -0,0 +1,22 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Уведомление push-канала об изменении: что изменилось, без самих данных.
+ * Клиент по нему догружает нужное (например, через /api/sync/journal).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeNotification {
+  private String entity;
+  private Long id;
+  private String operation;
+  private Set<Long> groupIds;
+  private Set<Long> subjectIds;
+}
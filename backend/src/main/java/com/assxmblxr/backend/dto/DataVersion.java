@@ -0,0 +1,25 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * «Отпечаток» состояния таблицы: число строк, максимальный id и сумма версий.
+ * Вставка увеличивает max id (IDENTITY не переиспользует значения), удаление без
+ * вставок уменьшает count, изменение увеличивает сумму версий — поэтому любое
+ * изменение таблицы меняет отпечаток. Считается одним агрегатным запросом.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataVersion {
+  private long count;
+  private long maxId;
+  private long versionSum;
+
+  /** Компактное строковое представление для ETag, ключей кэша и delta sync */
+  public String token() {
+    return count + "-" + maxId + "-" + versionSum;
+  }
+}
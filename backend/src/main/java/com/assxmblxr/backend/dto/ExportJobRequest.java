@@ -0,0 +1,20 @@
+package com.assxmblxr.backend.dto;
+
+import com.assxmblxr.backend.export.ExportKind;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Запрос на фоновую выгрузку. Какие параметры обязательны, зависит от вида:
+ * GRADES_* — groupId и subjectId, STUDENT_GRADES_* — studentId, FILTER_* — filter;
+ * STATISTICS_* и REPORT_CARDS_ZIP принимают необязательный groupId (без него — вся школа).
+ */
+@Data
+public class ExportJobRequest {
+  @NotNull(message = "Вид выгрузки обязателен")
+  private ExportKind kind;
+  private Long groupId;
+  private Long subjectId;
+  private Long studentId;
+  private FilterExecuteRequest filter;
+}
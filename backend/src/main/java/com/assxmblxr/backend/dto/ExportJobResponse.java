@@ -0,0 +1,21 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobResponse {
+  private String id;
+  private String kind;
+  private String status;
+  private String fileName;
+  private long size;
+  private String error;
+  private Instant createdAt;
+  private Instant finishedAt;
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.Data;
+
+/**
+ * Агрегат в выборке фильтра: COUNT, AVG, MIN или MAX по пути поля.
+ * У COUNT поле можно не указывать — тогда считаются строки корневой сущности.
+ * {@code alias} — имя столбца в ответе и в условиях HAVING.
+ */
+@Data
+public class FilterAggregateDto {
+  private String function;
+  private String field;
+  private String alias;
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.assxmblxr.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.util.List;
 
@@ -7,6 +8,22 @@ import java.util.List;
 public class FilterExecuteRequest {
   private String rootEntity;
   private List<FilterBlockDto> blocks;
+  /**
+   * Ключи сортировки; к ним всегда добавляется id, так что порядок страниц стабилен.
+   * В агрегатном запросе ключи — имена столбцов результата, по умолчанию порядок групп.
+   */
+  private List<FilterSortDto> sort;
+  /** Пути группировки; вместе с aggregates превращают выборку сущностей в отчёт по группам */
+  private List<String> groupBy;
+  private List<FilterAggregateDto> aggregates;
+  /** Программа блоков над псевдонимами агрегатов — условие HAVING */
+  private List<FilterBlockDto> having;
   private int page;
   private int size;
+
+  /** Запрос возвращает группы и агрегаты, а не строки сущностей */
+  @JsonIgnore
+  public boolean isAggregate() {
+    return (groupBy != null && !groupBy.isEmpty()) || (aggregates != null && !aggregates.isEmpty());
+  }
 }
\ No newline at end of file
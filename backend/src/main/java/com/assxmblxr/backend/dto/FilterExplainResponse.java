@@ -0,0 +1,36 @@
+package com.assxmblxr.backend.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Планы запросов фильтра: запрос страницы и, если он нужен, подсчёт строк.
+ * Для каждого — SQL с параметрами в порядке знаков {@code ?}, оценки PostgreSQL,
+ * используемые индексы и дерево плана как его отдаёт EXPLAIN (FORMAT JSON).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilterExplainResponse {
+  private List<QueryPlan> queries;
+
+  @Data
+  @AllArgsConstructor
+  public static class QueryPlan {
+    /** data — запрос страницы, count — подсчёт строк или групп */
+    private String purpose;
+    private String sql;
+    private List<Object> parameters;
+    private double totalCost;
+    private double estimatedRows;
+    private Set<String> indexes;
+    /** Только с analyze=true */
+    private Double executionTimeMs;
+    private JsonNode plan;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class FilterSnapshotResponse {
+  private String id;
+  private String rootEntity;
+  /** Число строк в снимке */
+  private int total;
+  private Instant createdAt;
+  /** Когда снимок удалится, если к нему не обращаться; каждое обращение продлевает срок */
+  private Instant expiresAt;
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.Data;
+
+/** Ключ сортировки результатов фильтрации: путь поля и направление ASC/DESC (по умолчанию ASC) */
+@Data
+public class FilterSortDto {
+  private String field;
+  private String direction;
+}
\ No newline at end of file
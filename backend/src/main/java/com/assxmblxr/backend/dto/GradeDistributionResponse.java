@@ -0,0 +1,43 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class GradeDistributionResponse {
+  /** Параметры среза; null — без ограничения */
+  private Long studentId;
+  private Long groupId;
+  private Long subjectId;
+  private LocalDate from;
+  private LocalDate to;
+
+  private long count;
+  private Double average;
+  /** Выборочное стандартное отклонение */
+  private Double stddev;
+  private Integer min;
+  private Integer max;
+  private Double median;
+  /** Перцентили: "p10", "p25", "p50", "p75", "p90" -> значение */
+  private Map<String, Double> percentiles;
+  /** Гистограмма: элемент i — количество оценок i (0–10) */
+  private List<Long> histogram;
+  /** Разбивка по видам работ */
+  private List<WorkTypeStats> byWorkType;
+
+  @Data
+  @AllArgsConstructor
+  public static class WorkTypeStats {
+    /** Имя WorkType; null — оценки без вида работы */
+    private String workType;
+    private long count;
+    private Double average;
+    private Double median;
+  }
+}
\ No newline at end of file
@@ -31,4 +31,7 @@ public class GradeRequest {
   private LocalDate gradeDate;
 
   private String comment;
+
+  /** Версия, с которой клиент начинал правку; при расхождении вернётся 409 Conflict */
+  private Long version;
 }
\ No newline at end of file
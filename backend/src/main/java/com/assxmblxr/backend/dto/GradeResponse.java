@@ -18,4 +18,5 @@ public class GradeResponse {
   private WorkType workType;
   private LocalDate gradeDate;
   private String comment;
+  private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Изменения журнала после клиентского токена. Строки из grades/attendance/schedule —
+ * актуальное состояние (upsert), deleted* — id удалённых строк (tombstones).
+ * Если resetRequired = true, клиент должен перезагрузить журнал целиком и продолжить с token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalDeltaResponse {
+  private long token;
+  private boolean resetRequired;
+  /** Ответ обрезан по limit — стоит сразу запросить следующую порцию с новым token */
+  private boolean hasMore;
+
+  private List<GradeResponse> grades = new ArrayList<>();
+  private List<AttendanceResponse> attendance = new ArrayList<>();
+  private List<ScheduleResponse> schedule = new ArrayList<>();
+
+  private List<Long> deletedGrades = new ArrayList<>();
+  private List<Long> deletedAttendance = new ArrayList<>();
+  private List<Long> deletedSchedule = new ArrayList<>();
+}
@@ -0,0 +1,59 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Журнал группы по предмету за период в колоночном виде. Строки и столбцы заданы
+ * словарями (учащиеся, даты), ячейки — параллельными массивами индексов в эти словари,
+ * а вид работы и статус посещаемости — индексами в workTypes и statuses.
+ * Одна оценка занимает в JSON несколько чисел вместо объекта с десятком полей.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalMatrixResponse {
+  private Long groupId;
+  private Long subjectId;
+  private LocalDate from;
+  private LocalDate to;
+
+  /** Строки: учащиеся группы по алфавиту */
+  private long[] studentIds;
+  private List<String> studentNames;
+  /** Столбцы: даты, на которые есть оценки или отметки посещаемости, по возрастанию */
+  private List<LocalDate> dates;
+  /** Словари кодов: имена WorkType и AttendanceStatus по индексу */
+  private List<String> workTypes;
+  private List<String> statuses;
+
+  private GradeCells grades;
+  private AttendanceCells attendance;
+
+  /** Оценки; в одной ячейке их может быть несколько. workType = -1 — без вида работы */
+  @Data
+  @AllArgsConstructor
+  public static class GradeCells {
+    private int[] student;
+    private int[] date;
+    private int[] grade;
+    private int[] workType;
+    private long[] id;
+    private long[] version;
+  }
+
+  /** Отметки посещаемости; в ячейке не больше одной */
+  @Data
+  @AllArgsConstructor
+  public static class AttendanceCells {
+    private int[] student;
+    private int[] date;
+    private int[] status;
+    private long[] id;
+    private long[] version;
+  }
+}
\ No newline at end of file
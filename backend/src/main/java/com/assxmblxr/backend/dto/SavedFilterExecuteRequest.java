@@ -0,0 +1,13 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/** Выполнение сохранённого фильтра: значения слотов строками, как значения блоков */
+@Data
+public class SavedFilterExecuteRequest {
+  private Map<String, String> parameters;
+  private int page;
+  private int size;
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.assxmblxr.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/** Создание или изменение сохранённого фильтра; page и size внутри filter не сохраняются */
+@Data
+public class SavedFilterRequest {
+  @NotBlank(message = "Название фильтра обязательно")
+  private String name;
+  @NotNull(message = "Программа фильтра обязательна")
+  private FilterExecuteRequest filter;
+  private boolean cacheResults;
+  /** Версия, которую видел клиент; при изменении сверяется с текущей */
+  private Long version;
+}
\ No newline at end of file
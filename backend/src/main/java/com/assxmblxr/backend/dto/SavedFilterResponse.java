@@ -0,0 +1,22 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SavedFilterResponse {
+  private Long id;
+  private String name;
+  private String rootEntity;
+  private FilterExecuteRequest filter;
+  /** Слоты, значения которых нужно передать при выполнении */
+  private List<String> parameters;
+  private boolean cacheResults;
+  private LocalDateTime createdAt;
+  private LocalDateTime updatedAt;
+  private Long version;
+}
\ No newline at end of file
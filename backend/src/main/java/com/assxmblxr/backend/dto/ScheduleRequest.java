@@ -23,4 +23,7 @@ public class ScheduleRequest {
   private int lessonNumber;
 
   private String classroom;
+
+  /** Версия, с которой клиент начинал правку; при расхождении вернётся 409 Conflict */
+  private Long version;
 }
\ No newline at end of file
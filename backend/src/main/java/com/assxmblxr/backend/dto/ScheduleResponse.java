@@ -15,4 +15,5 @@ public class ScheduleResponse {
   private DayOfWeek dayOfWeek;
   private int lessonNumber;
   private String classroom;
+  private Long version;
 }
\ No newline at end of file
@@ -27,4 +27,7 @@ public class StudentRequest {
 
   @NotNull(message = "Group is required")
   private Long groupId;
+
+  /** Версия, с которой клиент начинал правку; при расхождении вернётся 409 Conflict */
+  private Long version;
 }
\ No newline at end of file
@@ -17,4 +17,5 @@ public class StudentResponse {
   private Integer age;
   private Long groupId;
   private String groupName;
+  private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.assxmblxr.backend.dto;
+
+import com.assxmblxr.backend.entity.RiskLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class StudentRiskResponse {
+  private Long studentId;
+  private String studentName;
+  private Long groupId;
+  private String groupName;
+  private RiskLevel riskLevel;
+  /** Подпись уровня, как в выгрузке статистики */
+  private String riskLabel;
+  /** Средний балл; null — оценок нет */
+  private Double average;
+  private long badGrades;
+  private long totalGrades;
+  private long absences;
+  private long lates;
+  private long attendanceTotal;
+  /** Когда статус был пересчитан */
+  private LocalDateTime computedAt;
+}
\ No newline at end of file
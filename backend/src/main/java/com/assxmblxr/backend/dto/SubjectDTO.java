@@ -19,4 +19,7 @@ public class SubjectDTO {
   private String name;
 
   private Set<Long> teacherIds;
+
+  /** Версия записи; в запросе на изменение — версия, с которой клиент начинал правку */
+  private Long version;
 }
\ No newline at end of file
@@ -19,4 +19,7 @@ public class TeacherRequest {
   private String phone;
 
   private Set<Long> subjectIds;
+
+  /** Версия, с которой клиент начинал правку; при расхождении вернётся 409 Conflict */
+  private Long version;
 }
\ No newline at end of file
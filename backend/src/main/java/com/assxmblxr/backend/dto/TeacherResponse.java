@@ -10,4 +10,5 @@ public class TeacherResponse {
   private String fullname;
   private String phone;
   private Set<Long> subjectIds;
+  private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.assxmblxr.backend.dto;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Шаг временного ряда. Начало периода совпадает с date_trunc в PostgreSQL:
+ * неделя начинается с понедельника, месяц — с первого числа.
+ */
+public enum TrendPeriod {
+  WEEK("week"),
+  MONTH("month");
+
+  private final String sqlUnit;
+
+  TrendPeriod(String sqlUnit) {
+    this.sqlUnit = sqlUnit;
+  }
+
+  public String sqlUnit() {
+    return sqlUnit;
+  }
+
+  public LocalDate startOf(LocalDate date) {
+    return switch (this) {
+      case WEEK -> date.with(TemporalAdjusters.previousOrSame(java.time.DayOfWeek.MONDAY));
+      case MONTH -> date.withDayOfMonth(1);
+    };
+  }
+
+  public LocalDate next(LocalDate periodStart) {
+    return switch (this) {
+      case WEEK -> periodStart.plusWeeks(1);
+      case MONTH -> periodStart.plusMonths(1);
+    };
+  }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.assxmblxr.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TrendResponse {
+  /** Параметры среза; null — без ограничения */
+  private Long studentId;
+  private Long groupId;
+  private Long subjectId;
+  private TrendPeriod period;
+  /** Ширина скользящего окна в периодах */
+  private int window;
+  /** Периоды подряд, включая пустые, чтобы окно считалось по календарю */
+  private List<Point> points;
+
+  @Data
+  @AllArgsConstructor
+  public static class Point {
+    private LocalDate periodStart;
+    private long gradeCount;
+    /** Средний балл за период; null — оценок не было */
+    private Double average;
+    /** Средний балл за окно из window периодов, заканчивающееся этим */
+    private Double rollingAverage;
+    private long attendanceCount;
+    /** Доля присутствий (с опозданиями) за период, 0–1 */
+    private Double attendanceRate;
+    private Double rollingAttendanceRate;
+  }
+}
\ No newline at end of file
@@ -9,7 +9,10 @@ import java.time.LocalDate;
 
 @Entity
 @Table(name = "attendance",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "subject_id", "attendance_date"}))
+        uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "subject_id", "attendance_date"}),
+        indexes = {
+                @Index(name = "idx_attendance_subject_date", columnList = "subject_id, attendance_date"),
+                @Index(name = "idx_attendance_date", columnList = "attendance_date")})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -43,4 +46,9 @@ public class Attendance {
 
   @Column(name = "note", length = 300)
   private String note;
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.assxmblxr.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись журнала изменений: «строка entityId таблицы entityType менялась».
+ * Сам характер изменения не хранится — при синхронизации id сверяется с текущими
+ * данными: есть строка — отдаём её, нет — отдаём как удалённую.
+ * Токен синхронизации — номер транзакции txId, а не id: см. JournalSyncService.
+ */
+@Entity
+@Table(name = "change_log", indexes = {
+        @Index(name = "idx_change_log_changed_at", columnList = "changed_at"),
+        @Index(name = "idx_change_log_tx", columnList = "tx_id, id")})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChangeLogEntry {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "entity_type", nullable = false, length = 20)
+  private SyncEntityType entityType;
+
+  @Column(name = "entity_id", nullable = false)
+  private Long entityId;
+
+  @Column(name = "changed_at", nullable = false)
+  private LocalDateTime changedAt;
+
+  /** Номер транзакции, записавшей строку (xid8); заполняет БД при вставке */
+  @Column(name = "tx_id", insertable = false, updatable = false,
+          columnDefinition = "bigint not null default (pg_current_xact_id()::text::bigint)")
+  private Long txId;
+}
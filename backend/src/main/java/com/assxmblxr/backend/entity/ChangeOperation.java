@@ -0,0 +1,7 @@
+package com.assxmblxr.backend.entity;
+
+public enum ChangeOperation {
+  CREATE,     // Запись создана
+  UPDATE,     // Запись изменена
+  DELETE      // Запись удалена
+}
@@ -13,7 +13,10 @@ import org.hibernate.annotations.OnDeleteAction;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "grades")
+@Table(name = "grades",
+        indexes = {
+                @Index(name = "idx_grades_subject_date", columnList = "subject_id, grade_date"),
+                @Index(name = "idx_grades_date", columnList = "grade_date")})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -53,4 +56,9 @@ public class Grade {
 
   @Column(name = "comment", length = 500)
   private String comment;
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
 }
\ No newline at end of file
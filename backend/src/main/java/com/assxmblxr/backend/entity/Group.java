@@ -25,4 +25,9 @@ public class Group {
 
   @Column(name = "amount", nullable = false)
   private int amount;
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.assxmblxr.backend.entity;
+
+/**
+ * Статус риска учащегося. Считается по трём показателям:
+ * средний балл (0 — если оценок нет), пропуски с уважительными и число оценок ниже 5.
+ */
+public enum RiskLevel {
+  NORMAL("Норма"),
+  MEDIUM("Требует внимания"),
+  HIGH("Высокий риск");
+
+  private final String label;
+
+  RiskLevel(String label) {
+    this.label = label;
+  }
+
+  public String label() {
+    return label;
+  }
+
+  /** Чем выше, тем серьёзнее; для сортировки списка */
+  public int severity() {
+    return ordinal();
+  }
+
+  /**
+   * @param avg средний балл, округлённый до сотых; 0 — если оценок нет
+   */
+  public static RiskLevel evaluate(double avg, long absences, long badGrades) {
+    if (avg < 4 || absences >= 10)                  return HIGH;
+    if (avg < 6 || absences >= 5 || badGrades >= 3) return MEDIUM;
+    return NORMAL;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.assxmblxr.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сохранённый фильтр пользователя: программа блоков в JSON вместе с сортировкой
+ * и агрегатами. Значения вида {@code ${name}} — слоты, которые заполняются при выполнении.
+ */
+@Entity
+@Table(name = "saved_filters",
+        uniqueConstraints = @UniqueConstraint(name = "uk_saved_filters_owner_name", columnNames = {"owner", "name"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SavedFilter {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /** Имя пользователя-владельца */
+  @Column(name = "owner", nullable = false, length = 100)
+  private String owner;
+
+  @Column(name = "name", nullable = false, length = 200)
+  private String name;
+
+  @Column(name = "root_entity", nullable = false, length = 50)
+  private String rootEntity;
+
+  /** FilterExecuteRequest без страницы */
+  @Column(name = "definition", nullable = false, columnDefinition = "text")
+  private String definition;
+
+  /** Имена слотов через запятую, в порядке появления */
+  @Column(name = "parameters", nullable = false, columnDefinition = "text")
+  private String parameters;
+
+  /** Кэшировать страницы результата до записи в затронутые таблицы */
+  @Column(name = "cache_results", nullable = false)
+  private boolean cacheResults;
+
+  @Column(name = "created_at", nullable = false)
+  private LocalDateTime createdAt;
+
+  @Column(name = "updated_at", nullable = false)
+  private LocalDateTime updatedAt;
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
+}
\ No newline at end of file
@@ -46,4 +46,9 @@ public class Schedule {
   /** Кабинет / аудитория */
   @Column(name = "classroom", length = 50)
   private String classroom;
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
 }
\ No newline at end of file
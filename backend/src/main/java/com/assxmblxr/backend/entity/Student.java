@@ -10,7 +10,9 @@ import java.time.LocalDate;
 import java.time.Period;
 
 @Entity
-@Table(name = "students")
+@Table(name = "students", indexes = {
+        @Index(name = "idx_students_group", columnList = "group_id"),
+        @Index(name = "idx_students_fullname", columnList = "fullname")})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -44,4 +46,9 @@ public class Student {
       this.age = 0; // или null, если nullable
     }
   }
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
 }
\ No newline at end of file
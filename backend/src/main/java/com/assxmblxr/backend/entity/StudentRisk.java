@@ -0,0 +1,67 @@
+package com.assxmblxr.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Предрассчитанный статус риска учащегося вместе с агрегатами, из которых он получен.
+ * Пересчитывается RiskScoringService по расписанию и после записи оценок и посещаемости.
+ */
+@Entity
+@Table(name = "student_risk",
+        indexes = @Index(name = "idx_student_risk_severity", columnList = "severity, average"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StudentRisk {
+  @Id
+  @Column(name = "student_id")
+  private Long studentId;
+
+  @MapsId
+  @OneToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "student_id")
+  @OnDelete(action = OnDeleteAction.CASCADE)
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
+  private Student student;
+
+  @Column(name = "group_id")
+  private Long groupId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "risk_level", nullable = false)
+  private RiskLevel riskLevel;
+
+  /** RiskLevel.severity() — чтобы сортировать по серьёзности, а не по имени константы */
+  @Column(name = "severity", nullable = false)
+  private int severity;
+
+  /** Средний балл; null — оценок нет */
+  @Column(name = "average")
+  private Double average;
+
+  @Column(name = "bad_grades", nullable = false)
+  private long badGrades;
+
+  @Column(name = "total_grades", nullable = false)
+  private long totalGrades;
+
+  /** Пропуски, включая по уважительной причине */
+  @Column(name = "absences", nullable = false)
+  private long absences;
+
+  @Column(name = "lates", nullable = false)
+  private long lates;
+
+  @Column(name = "attendance_total", nullable = false)
+  private long attendanceTotal;
+
+  @Column(name = "computed_at", nullable = false)
+  private LocalDateTime computedAt;
+}
\ No newline at end of file
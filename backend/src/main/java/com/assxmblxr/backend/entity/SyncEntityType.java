@@ -0,0 +1,11 @@
+package com.assxmblxr.backend.entity;
+
+/**
+ * Сущности журнала, которые клиент может синхронизировать инкрементально
+ * через /api/sync/journal.
+ */
+public enum SyncEntityType {
+  GRADE,
+  ATTENDANCE,
+  SCHEDULE
+}
@@ -34,4 +34,9 @@ public class Teacher {
   @EqualsAndHashCode.Exclude
 
   private Set<Subject> subjects;
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
 }
\ No newline at end of file
@@ -45,4 +45,9 @@ public class User {
   @Column(name = "approved")
   @Builder.Default
   private boolean approved = false;
+
+  /** Версия записи для optimistic locking; растёт при каждом изменении */
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+  private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.assxmblxr.backend.events;
+
+import com.assxmblxr.backend.entity.ChangeOperation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Доменное событие об изменении данных. Публикуется сервисами внутри транзакции записи;
+ * удаление родительских сущностей публикуется до самого удаления, пока зависимые строки
+ * ещё видны. Синхронные слушатели (журнал изменений) пишут в ту же транзакцию,
+ * остальные (счётчики версий, кэши, push-уведомления) реагируют после коммита.
+ *
+ * @param scope группы, предметы и учащиеся, которых касается изменение; по нему
+ *              подписчики push-канала фильтруют события, а кэш выгрузок решает,
+ *              что устарело. Scope.NONE — касается всех.
+ */
+public record EntityChangedEvent(Class<?> entityType, Long entityId, ChangeOperation operation, Scope scope) {
+
+  public EntityChangedEvent(Class<?> entityType, Long entityId, ChangeOperation operation) {
+    this(entityType, entityId, operation, Scope.NONE);
+  }
+
+  /**
+   * Область изменения. При переносе записи (смена группы или предмета) сервис
+   * объединяет старую и новую область, чтобы о переносе узнали обе стороны.
+   */
+  public record Scope(Set<Long> groupIds, Set<Long> subjectIds, Set<Long> studentIds) {
+    public static final Scope NONE = new Scope(Set.of(), Set.of(), Set.of());
+
+    public static Scope of(Long groupId, Long subjectId) {
+      return of(groupId, subjectId, null);
+    }
+
+    public static Scope of(Long groupId, Long subjectId, Long studentId) {
+      return new Scope(setOf(groupId), setOf(subjectId), setOf(studentId));
+    }
+
+    public Scope merge(Scope other) {
+      return new Scope(union(groupIds, other.groupIds), union(subjectIds, other.subjectIds),
+              union(studentIds, other.studentIds));
+    }
+
+    public boolean isEmpty() {
+      return groupIds.isEmpty() && subjectIds.isEmpty() && studentIds.isEmpty();
+    }
+
+    private static Set<Long> setOf(Long id) {
+      return id != null ? Set.of(id) : Set.of();
+    }
+
+    private static Set<Long> union(Set<Long> a, Set<Long> b) {
+      Set<Long> result = new HashSet<>(a);
+      result.addAll(b);
+      return Set.copyOf(result);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package com.assxmblxr.backend.events;
+
+import com.assxmblxr.backend.dto.ChangeNotification;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push-канал (Server-Sent Events) для изменений после коммита.
+ * У каждого подписчика своя ограниченная очередь: медленный клиент не тормозит
+ * остальных и не копит память — при переполнении его очередь сбрасывается и
+ * вместо пропущенных событий уходит одно "resync" (клиент перечитывает данные сам).
+ */
+@Slf4j
+@Component
+public class EventStreamHub {
+  private static final int QUEUE_CAPACITY = 256;
+  private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+  private static final int SENDER_THREADS = 4;
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final Executor sender;
+
+  public EventStreamHub(Environment environment) {
+    if (Threading.VIRTUAL.isActive(environment)) {
+      // Виртуальный поток на каждую отправку: медленный клиент блокирует только свой поток
+      this.sender = new VirtualThreadTaskExecutor("sse-sender-");
+    } else {
+      AtomicInteger counter = new AtomicInteger();
+      this.sender = Executors.newFixedThreadPool(SENDER_THREADS, r -> {
+        Thread t = new Thread(r, "sse-sender-" + counter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  /**
+   * Регистрирует подписчика. Пустые фильтры — получать всё.
+   */
+  public SseEmitter subscribe(String username, Set<Long> groupIds, Set<Long> subjectIds) {
+    SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+    Subscriber subscriber = new Subscriber(username, emitter, Set.copyOf(groupIds), Set.copyOf(subjectIds));
+    subscribers.add(subscriber);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscriber.enqueue(SseEmitter.event().name("ready").data(Map.of("subscribers", subscribers.size())));
+    log.info("SSE subscriber '{}' connected (groups={}, subjects={}), total {}",
+            username, groupIds, subjectIds, subscribers.size());
+    return emitter;
+  }
+
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    if (subscribers.isEmpty()) return;
+    EntityChangedEvent.Scope scope = event.scope();
+    ChangeNotification payload = new ChangeNotification(
+            event.entityType().getSimpleName(), event.entityId(), event.operation().name(),
+            scope.groupIds(), scope.subjectIds());
+    for (Subscriber s : subscribers) {
+      if (s.matches(scope)) {
+        s.enqueue(SseEmitter.event().name("change").data(payload));
+      }
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onGraduates(GraduatesDetectedEvent event) {
+    for (Subscriber s : subscribers) {
+      s.enqueue(SseEmitter.event().name("graduates").data(event));
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onExportFinished(ExportFinishedEvent event) {
+    for (Subscriber s : subscribers) {
+      if (event.usernames().contains(s.username)) {
+        s.enqueue(SseEmitter.event().name("export").data(event));
+      }
+    }
+  }
+
+  /** Комментарий-пинг держит соединение живым через прокси и быстро выявляет отвалившихся клиентов */
+  @Scheduled(fixedRate = 25_000)
+  public void heartbeat() {
+    for (Subscriber s : subscribers) {
+      s.enqueue(SseEmitter.event().comment("ping"));
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    subscribers.forEach(s -> s.emitter.complete());
+    subscribers.clear();
+    if (sender instanceof ExecutorService pool) pool.shutdownNow();
+  }
+
+  private static boolean overlaps(Set<Long> filter, Set<Long> values) {
+    if (filter.isEmpty() || values.isEmpty()) return true;
+    for (Long v : values) {
+      if (filter.contains(v)) return true;
+    }
+    return false;
+  }
+
+  private final class Subscriber {
+    private final String username;
+    private final SseEmitter emitter;
+    private final Set<Long> groupIds;
+    private final Set<Long> subjectIds;
+    private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    Subscriber(String username, SseEmitter emitter, Set<Long> groupIds, Set<Long> subjectIds) {
+      this.username = username;
+      this.emitter = emitter;
+      this.groupIds = groupIds;
+      this.subjectIds = subjectIds;
+    }
+
+    /** Пустая область события или пустой фильтр подписчика — совпадение по этому измерению */
+    boolean matches(EntityChangedEvent.Scope scope) {
+      return overlaps(groupIds, scope.groupIds()) && overlaps(subjectIds, scope.subjectIds());
+    }
+
+    void enqueue(SseEmitter.SseEventBuilder event) {
+      if (!queue.offer(event)) {
+        queue.clear();
+        queue.offer(SseEmitter.event().name("resync").data(""));
+        log.warn("SSE queue overflow for '{}', sending resync", username);
+      }
+      if (draining.compareAndSet(false, true)) {
+        try {
+          sender.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+          draining.set(false);
+        }
+      }
+    }
+
+    private void drain() {
+      try {
+        SseEmitter.SseEventBuilder event;
+        while ((event = queue.poll()) != null) {
+          emitter.send(event);
+        }
+      } catch (IOException | IllegalStateException e) {
+        // Клиент отключился; onError/onCompletion уберут его из списка
+        subscribers.remove(this);
+        queue.clear();
+        emitter.completeWithError(e);
+        return;
+      } finally {
+        draining.set(false);
+      }
+      // Событие могло прийти между последним poll и сбросом флага
+      if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+        try {
+          sender.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+          draining.set(false);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.assxmblxr.backend.events;
+
+import java.util.Set;
+
+/**
+ * Фоновая выгрузка завершилась (успешно или с ошибкой); уведомление уходит её наблюдателям.
+ */
+public record ExportFinishedEvent(String jobId, Set<String> usernames, String status) {
+}
@@ -0,0 +1,9 @@
+package com.assxmblxr.backend.events;
+
+import java.util.List;
+
+/**
+ * Публикуется заданием автоперевода: студенты, для которых не нашлось следующей группы.
+ */
+public record GraduatesDetectedEvent(List<Long> studentIds, List<String> fullnames) {
+}
@@ -0,0 +1,11 @@
+package com.assxmblxr.backend.exceptions;
+
+public class ExportException extends RuntimeException {
+  public ExportException(String message) {
+    super(message);
+  }
+
+  public ExportException(String message, String jobId) {
+    super(message + "; job: " + jobId);
+  }
+}
@@ -0,0 +1,11 @@
+package com.assxmblxr.backend.exceptions;
+
+public class FilterSnapshotException extends RuntimeException {
+  public FilterSnapshotException(String message) {
+    super(message);
+  }
+
+  public FilterSnapshotException(String message, String snapshotId) {
+    super(message + "; snapshot: " + snapshotId);
+  }
+}
\ No newline at end of file
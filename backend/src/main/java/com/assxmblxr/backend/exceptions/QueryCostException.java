@@ -0,0 +1,19 @@
+package com.assxmblxr.backend.exceptions;
+
+/**
+ * Запрос фильтра не допущен к выполнению по оценке стоимости из EXPLAIN или прерван
+ * по statement_timeout. {@code retryable} — очередь тяжёлых запросов занята, позже
+ * запрос может пройти; иначе его нужно сузить.
+ */
+public class QueryCostException extends RuntimeException {
+  private final boolean retryable;
+
+  public QueryCostException(String message, boolean retryable) {
+    super(message);
+    this.retryable = retryable;
+  }
+
+  public boolean isRetryable() {
+    return retryable;
+  }
+}
\ No newline at end of file
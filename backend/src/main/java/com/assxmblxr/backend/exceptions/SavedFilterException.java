@@ -0,0 +1,17 @@
+package com.assxmblxr.backend.exceptions;
+
+public class SavedFilterException extends RuntimeException {
+  public SavedFilterException() {}
+
+  public SavedFilterException(String message) {
+    super(message);
+  }
+
+  public SavedFilterException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public SavedFilterException(String message, Long id) {
+    super(message + "; id: " + id);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.assxmblxr.backend.exceptions;
+
+import java.util.Objects;
+
+/**
+ * Запись была изменена другим пользователем после того, как клиент её прочитал.
+ * Контроллеры отвечают на неё 409 Conflict.
+ */
+public class VersionConflictException extends RuntimeException {
+  public VersionConflictException(String message, Long id) {
+    super(message + "; id: " + id);
+  }
+
+  /**
+   * Сверяет версию из запроса клиента с текущей версией записи.
+   * Если клиент версию не передал (старый клиент), проверка пропускается.
+   */
+  public static void check(Long expected, Long actual, Long id) {
+    if (expected != null && !Objects.equals(expected, actual)) {
+      throw new VersionConflictException("Запись была изменена другим пользователем", id);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.assxmblxr.backend.export;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * Оценка ширины столбцов Excel без AWT-метрик. Ширина копится по мере записи строк,
+ * поэтому работает и с потоковым SXSSF, где строки уже сброшены на диск и
+ * sheet.autoSizeColumn их не видит. Вес символа — приблизительная ширина глифа
+ * Calibri 11 в долях ширины цифры: узкие знаки легче, широкие прописные
+ * и кириллические буквы вроде «Ж», «Ш», «Щ», «Ю», «М» тяжелее.
+ */
+public class ColumnWidthEstimator {
+  /** Предел ширины столбца в Excel — 255 символов */
+  private static final int MAX_WIDTH_UNITS = 255 * 256;
+  /** Запас на внутренние отступы ячейки и иконку фильтра */
+  private static final double PADDING_CHARS = 1.5;
+  private static final double BOLD_FACTOR = 1.1;
+
+  private final double[] widths;
+
+  public ColumnWidthEstimator(int columns) {
+    this.widths = new double[columns];
+  }
+
+  /** Учитывает заголовок столбца (жирный шрифт чуть шире) */
+  public void trackHeader(int column, String text) {
+    track(column, text, BOLD_FACTOR);
+  }
+
+  public void track(int column, String text) {
+    track(column, text, 1.0);
+  }
+
+  public void track(int column, long value) {
+    track(column, Long.toString(value), 1.0);
+  }
+
+  private void track(int column, String text, double factor) {
+    if (text == null || text.isEmpty() || column >= widths.length) return;
+    double w = 0;
+    // Для многострочного текста важна самая длинная строка
+    double line = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\n') {
+        w = Math.max(w, line);
+        line = 0;
+      } else {
+        line += charWidth(c);
+      }
+    }
+    w = Math.max(w, line) * factor;
+    if (w > widths[column]) widths[column] = w;
+  }
+
+  /** Ширина столбца в единицах POI (1/256 ширины символа) */
+  public int widthUnits(int column) {
+    if (widths[column] == 0) return 0;
+    return (int) Math.min(MAX_WIDTH_UNITS, Math.ceil((widths[column] + PADDING_CHARS) * 256));
+  }
+
+  /** Выставляет ширину всем столбцам, в которые что-то писалось */
+  public void apply(Sheet sheet) {
+    for (int i = 0; i < widths.length; i++) {
+      int units = widthUnits(i);
+      if (units > 0) sheet.setColumnWidth(i, units);
+    }
+  }
+
+  static double charWidth(char c) {
+    if (c >= '0' && c <= '9') return 1.0;
+    if ("il.,:;'|!I".indexOf(c) >= 0) return 0.45;
+    if ("fjrt()[]- ".indexOf(c) >= 0) return 0.6;
+    if ("mwMWЖжШшЩщЮюМмЫы@%".indexOf(c) >= 0) return 1.5;
+    if (c >= 'A' && c <= 'Z') return 1.15;
+    if (c >= 'a' && c <= 'z') return 0.95;
+    if (c >= 'А' && c <= 'Я' || c == 'Ё') return 1.25;
+    if (c >= 'а' && c <= 'я' || c == 'ё') return 1.05;
+    if (Character.isWhitespace(c)) return 0.5;
+    return 1.1;
+  }
+}
\ No newline at end of file
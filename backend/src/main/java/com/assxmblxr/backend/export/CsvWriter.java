@@ -0,0 +1,78 @@
+package com.assxmblxr.backend.export;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Запись CSV по RFC 4180: разделитель — запятая, строки — CRLF, поле берётся в кавычки,
+ * если содержит запятую, кавычку или перевод строки; кавычки внутри удваиваются.
+ * Файл начинается с UTF-8 BOM, иначе Excel открывает кириллицу в системной кодировке.
+ * Строка, которая начинается с {@code = + - @}, табуляции или CR, пишется в кавычках
+ * с апострофом впереди — иначе Excel выполнит её как формулу. Числа не трогаются.
+ * Пишет через буфер и не держит строк в памяти.
+ */
+public class CsvWriter implements Flushable, Closeable {
+  private final Writer writer;
+  private boolean firstField = true;
+
+  public CsvWriter(OutputStream out) throws IOException {
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    writer.write('\uFEFF');
+  }
+
+  public CsvWriter field(Object value) throws IOException {
+    if (!firstField) writer.write(',');
+    firstField = false;
+    if (value instanceof CharSequence text && isFormula(text)) {
+      writeEscaped("'" + text, true);
+    } else if (value != null) {
+      writeEscaped(value.toString(), false);
+    }
+    return this;
+  }
+
+  public void row(Object... values) throws IOException {
+    for (Object value : values) field(value);
+    endRow();
+  }
+
+  public void endRow() throws IOException {
+    writer.write("\r\n");
+    firstField = true;
+  }
+
+  private static boolean isFormula(CharSequence text) {
+    if (text.isEmpty()) return false;
+    char c = text.charAt(0);
+    return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+  }
+
+  private void writeEscaped(String s, boolean quote) throws IOException {
+    for (int i = 0; i < s.length() && !quote; i++) {
+      char c = s.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      writer.write(s);
+      return;
+    }
+    writer.write('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"') writer.write('"');
+      writer.write(c);
+    }
+    writer.write('"');
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writer.flush();
+  }
+
+  /** Сбрасывает буфер, но не закрывает поток ответа — им управляет контейнер */
+  @Override
+  public void close() throws IOException {
+    writer.flush();
+  }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.assxmblxr.backend.export;
+
+import com.assxmblxr.backend.components.ChangeTracker;
+import com.assxmblxr.backend.dto.ExportJobRequest;
+import com.assxmblxr.backend.entity.Attendance;
+import com.assxmblxr.backend.entity.Grade;
+import com.assxmblxr.backend.entity.Schedule;
+import com.assxmblxr.backend.entity.StudentRisk;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш готовых файлов выгрузок на локальном диске. Ключ — SHA-256 от вида выгрузки,
+ * параметров и поколений данных, от которых выгрузка зависит: оценки пары группа+предмет,
+ * оценки и посещаемость группы или учащегося, справочники. Поколения растут после коммита
+ * записи в соответствующую область, поэтому устаревший файл просто перестаёт находиться
+ * по новому ключу и со временем вытесняется по LRU. Статистика берёт статусы риска
+ * из фонового пересчёта, поэтому её ключ включает ещё и счётчик пересчётов из {@link ChangeTracker}.
+ * <p>
+ * Поколения живут в памяти, поэтому каталог очищается при старте.
+ */
+@Slf4j
+@Component
+public class ExportArtifactCache {
+  /** Справочники: учащиеся, группы, предметы, учителя — попадают в любую выгрузку */
+  private static final String STRUCTURE = "structure";
+  /** Любые оценки и посещаемость — для статистики по всей школе */
+  private static final String SCHOOL = "school";
+  /** Любое изменение — для выгрузок результатов фильтрации */
+  private static final String ANY = "any";
+
+  private final ChangeTracker changeTracker;
+  private final Path dir;
+  private final long maxBytes;
+
+  private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+  /** Файлы кэша в порядке доступа; под монитором lru */
+  private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(64, 0.75f, true);
+  private long totalBytes;
+
+  public ExportArtifactCache(ChangeTracker changeTracker,
+                             @Value("${export.cache.max-size-mb:256}") long maxSizeMb) throws IOException {
+    this.changeTracker = changeTracker;
+    this.maxBytes = maxSizeMb * 1024 * 1024;
+    this.dir = Path.of(System.getProperty("java.io.tmpdir"), "tabularium-export-cache");
+    Files.createDirectories(dir);
+    clearDirectory();
+  }
+
+  // ── ключ ──────────────────────────────────────────────────────────────────
+
+  /**
+   * Строит ключ выгрузки по текущим поколениям. Ключ нужно вычислять до чтения данных:
+   * запись, закоммиченная после этого, сменит поколение, и результат, построенный
+   * на смеси старых и новых данных, под новым ключом не найдётся.
+   */
+  public String key(ExportJobRequest r, String params) {
+    StringBuilder sb = new StringBuilder(r.getKind().name()).append('|').append(params);
+    for (String scope : dependencies(r)) {
+      sb.append('|').append(scope).append('=').append(generation(scope));
+    }
+    if (r.getKind() == ExportKind.STATISTICS_EXCEL || r.getKind() == ExportKind.STATISTICS_PDF) {
+      sb.append("|risk=").append(changeTracker.version(StudentRisk.class));
+    }
+    return sha256(sb.toString());
+  }
+
+  private List<String> dependencies(ExportJobRequest r) {
+    return switch (r.getKind()) {
+      case GRADES_EXCEL, GRADES_PDF -> List.of(STRUCTURE, gradesOf(r.getGroupId(), r.getSubjectId()));
+      case STUDENT_GRADES_EXCEL, STUDENT_GRADES_PDF -> List.of(STRUCTURE, "student:" + r.getStudentId());
+      case STATISTICS_EXCEL, STATISTICS_PDF, REPORT_CARDS_ZIP ->
+              List.of(STRUCTURE, r.getGroupId() != null ? "group:" + r.getGroupId() : SCHOOL);
+      case SCHOOL_GRADES_EXCEL -> List.of(STRUCTURE, SCHOOL);
+      case FILTER_EXCEL, FILTER_PDF -> List.of(ANY);
+    };
+  }
+
+  private static String gradesOf(Long groupId, Long subjectId) {
+    return "grades:" + groupId + ":" + subjectId;
+  }
+
+  private long generation(String scope) {
+    AtomicLong g = generations.get(scope);
+    return g != null ? g.get() : 0;
+  }
+
+  private void bump(String scope) {
+    generations.computeIfAbsent(scope, k -> new AtomicLong()).incrementAndGet();
+  }
+
+  /** Сдвигает поколения областей, затронутых закоммиченной записью */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    bump(ANY);
+    Class<?> type = event.entityType();
+    if (type == Schedule.class) return; // расписание в выгрузки не попадает
+
+    EntityChangedEvent.Scope scope = event.scope();
+    if (type != Grade.class && type != Attendance.class) {
+      bump(STRUCTURE);
+      return;
+    }
+    bump(SCHOOL);
+    scope.groupIds().forEach(groupId -> bump("group:" + groupId));
+    scope.studentIds().forEach(studentId -> bump("student:" + studentId));
+    if (type == Grade.class) {
+      for (Long groupId : scope.groupIds()) {
+        for (Long subjectId : scope.subjectIds()) bump(gradesOf(groupId, subjectId));
+      }
+    }
+    if (scope.groupIds().isEmpty() || scope.studentIds().isEmpty()) {
+      bump(STRUCTURE); // область неизвестна — считаем устаревшим всё
+    }
+  }
+
+  // ── хранилище ─────────────────────────────────────────────────────────────
+
+  /** Файл из кэша, если он есть; отмечает его как недавно использованный */
+  public Optional<Path> get(String key) {
+    synchronized (lru) {
+      if (lru.get(key) == null) return Optional.empty();
+    }
+    Path file = dir.resolve(key);
+    return Files.exists(file) ? Optional.of(file) : Optional.empty();
+  }
+
+  /**
+   * Кладёт готовый файл в кэш жёсткой ссылкой (копией, если ФС ссылки не умеет),
+   * так что у исходного файла и записи кэша независимое время жизни.
+   */
+  public void put(String key, Path source) {
+    Path file = dir.resolve(key);
+    try {
+      long size = Files.size(source);
+      if (size > maxBytes) return;
+      Path tmp = dir.resolve(key + ".part");
+      linkOrCopy(source, tmp);
+      Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      synchronized (lru) {
+        Long previous = lru.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evict();
+      }
+    } catch (IOException e) {
+      log.warn("Cannot cache export artifact {}: {}", key, e.getMessage());
+    }
+  }
+
+  /** Вытесняет давно не использованные файлы, пока кэш не уложится в лимит */
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> it = lru.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Long> eldest = it.next();
+      it.remove();
+      totalBytes -= eldest.getValue();
+      deleteQuietly(dir.resolve(eldest.getKey()));
+    }
+  }
+
+  /**
+   * Жёсткая ссылка на файл; если ФС не поддерживает ссылки — копия.
+   * Уже открытые чтения файла не страдают, если одну из ссылок удалят.
+   */
+  public static void linkOrCopy(Path source, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, source);
+    } catch (UnsupportedOperationException | IOException e) {
+      Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  @PreDestroy
+  public void clearDirectory() {
+    try (var files = Files.list(dir)) {
+      files.forEach(ExportArtifactCache::deleteQuietly);
+    } catch (IOException e) {
+      log.warn("Cannot clear export cache {}: {}", dir, e.getMessage());
+    }
+    synchronized (lru) {
+      lru.clear();
+      totalBytes = 0;
+    }
+  }
+
+  private static String sha256(String value) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.warn("Cannot delete {}: {}", path, e.getMessage());
+    }
+  }
+}
\ No newline at end of file
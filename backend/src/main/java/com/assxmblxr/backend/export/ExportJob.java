@@ -0,0 +1,77 @@
+package com.assxmblxr.backend.export;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Задание на выгрузку. Одинаковые одновременные запросы разных пользователей
+ * сливаются в одно задание — все они становятся его наблюдателями.
+ */
+@Getter
+public class ExportJob {
+  public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+  private final String id;
+  private final ExportKind kind;
+  /** Ключ слияния: вид выгрузки + параметры */
+  private final String key;
+  private final Instant createdAt = Instant.now();
+  private final Set<String> watchers = ConcurrentHashMap.newKeySet();
+
+  private volatile Status status = Status.QUEUED;
+  private volatile Path file;
+  private volatile long size;
+  private volatile String error;
+  private volatile Instant finishedAt;
+  @Getter(AccessLevel.NONE)
+  private final CompletableFuture<ExportJob> finished = new CompletableFuture<>();
+
+  public ExportJob(String id, ExportKind kind, String key, String owner) {
+    this.id = id;
+    this.kind = kind;
+    this.key = key;
+    this.watchers.add(owner);
+  }
+
+  public boolean isWatchedBy(String username) {
+    return watchers.contains(username);
+  }
+
+  public boolean isFinished() {
+    return status == Status.DONE || status == Status.FAILED;
+  }
+
+  /** Завершается, когда задание выполнено или упало */
+  public CompletableFuture<ExportJob> whenFinished() {
+    return finished;
+  }
+
+  void addWatcher(String username) {
+    watchers.add(username);
+  }
+
+  void markRunning() {
+    status = Status.RUNNING;
+  }
+
+  void complete(Path file, long size) {
+    this.file = file;
+    this.size = size;
+    this.finishedAt = Instant.now();
+    this.status = Status.DONE;
+    finished.complete(this);
+  }
+
+  void fail(String error) {
+    this.error = error;
+    this.finishedAt = Instant.now();
+    this.status = Status.FAILED;
+    finished.complete(this);
+  }
+}
@@ -0,0 +1,323 @@
+package com.assxmblxr.backend.export;
+
+import com.assxmblxr.backend.dto.ExportJobRequest;
+import com.assxmblxr.backend.dto.FilterExecuteRequest;
+import com.assxmblxr.backend.events.ExportFinishedEvent;
+import com.assxmblxr.backend.exceptions.ExportException;
+import com.assxmblxr.backend.filter.EntityFlattener;
+import com.assxmblxr.backend.filter.EntityRegistry;
+import com.assxmblxr.backend.repository.GenericFilterRepository;
+import com.assxmblxr.backend.service.ExportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Очередь фоновых выгрузок. Файл строится ограниченным пулом в отдельном потоке,
+ * пишется во временный каталог и отдаётся по готовности: фоновое задание HTTP-запрос не ждёт,
+ * синхронная выгрузка ({@link #renderNow}) ждёт завершения такого же задания.
+ * Готовые файлы живут TTL и удаляются фоновой очисткой. Если такая же выгрузка
+ * по неизменившимся данным уже есть в {@link ExportArtifactCache}, файл берётся оттуда.
+ */
+@Slf4j
+@Service
+public class ExportJobService {
+  private static final int WORKERS = 2;
+  private static final int QUEUE_CAPACITY = 20;
+  private static final Duration TTL = Duration.ofMinutes(30);
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+  private static final long SYNC_TIMEOUT_SECONDS = 300;
+  /** Выгрузки, части которых готовит {@link ExportRenderPool} */
+  private static final Set<ExportKind> PREPARED_IN_PARTS =
+          EnumSet.of(ExportKind.SCHOOL_GRADES_EXCEL, ExportKind.REPORT_CARDS_ZIP);
+
+  private final ExportService exportService;
+  private final ExportArtifactCache artifactCache;
+  private final GenericFilterRepository filterRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate readOnlyTx;
+  private final ThreadPoolExecutor workers;
+  private final Path workDir;
+
+  private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+  /** Задания в очереди или в работе по ключу слияния */
+  private final Map<String, ExportJob> inFlight = new ConcurrentHashMap<>();
+
+  public ExportJobService(ExportService exportService, ExportArtifactCache artifactCache,
+                          GenericFilterRepository filterRepository,
+                          ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager) throws IOException {
+    this.exportService = exportService;
+    this.artifactCache = artifactCache;
+    this.filterRepository = filterRepository;
+    this.eventPublisher = eventPublisher;
+    this.objectMapper = objectMapper;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.workDir = Files.createTempDirectory("tabularium-exports");
+
+    AtomicInteger counter = new AtomicInteger();
+    this.workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            r -> new Thread(r, "export-worker-" + counter.incrementAndGet()),
+            new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Ставит выгрузку в очередь. Если такая же выгрузка уже в очереди или строится,
+   * возвращает существующее задание.
+   * @throws ExportException не хватает параметров для выбранного вида
+   * @throws RejectedExecutionException очередь заполнена
+   */
+  public ExportJob submit(ExportJobRequest request, String owner) {
+    validate(request);
+    String key = coalescingKey(request);
+    ExportJob job = new ExportJob(UUID.randomUUID().toString(), request.getKind(), key, owner);
+
+    ExportJob existing = inFlight.putIfAbsent(key, job);
+    if (existing != null) {
+      existing.addWatcher(owner);
+      log.info("Export {} coalesced onto job {}", request.getKind(), existing.getId());
+      return existing;
+    }
+    jobs.put(job.getId(), job);
+    try {
+      workers.execute(() -> run(job, request));
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(key, job);
+      jobs.remove(job.getId());
+      throw e;
+    }
+    return job;
+  }
+
+  public Optional<ExportJob> find(String id) {
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  /** Готовый файл, уже открытый на чтение: вытеснение из кэша или очистка по TTL его не оборвут */
+  public record Rendered(InputStream content, long size) {}
+
+  /**
+   * Синхронная выгрузка для запросов, которые ждут файл в ответе. Файл из кэша отдаётся
+   * сразу, иначе выгрузка идёт через ту же очередь, что и фоновые задания: одинаковые
+   * запросы сливаются в одно задание, а одновременно строится не больше {@value #WORKERS}.
+   * @throws ExportException не хватает параметров для выбранного вида или выгрузка не удалась
+   * @throws RejectedExecutionException очередь заполнена
+   * @throws TimeoutException выгрузка не построилась за {@value #SYNC_TIMEOUT_SECONDS} с
+   */
+  public Rendered renderNow(ExportJobRequest request, String owner) throws IOException, TimeoutException {
+    validate(request);
+    Optional<Path> cached = artifactCache.get(artifactCache.key(request, coalescingKey(request)));
+    if (cached.isPresent()) {
+      try {
+        return open(cached.get());
+      } catch (NoSuchFileException e) {
+        // файл вытеснен между проверкой и открытием — строим заново
+      }
+    }
+    ExportJob job = submit(request, owner);
+    try {
+      job.whenFinished().get(SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Export interrupted");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    if (job.getStatus() != ExportJob.Status.DONE) throw new ExportException("Выгрузка не удалась: " + job.getError(), job.getId());
+    return open(job.getFile());
+  }
+
+  private static Rendered open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new Rendered(Channels.newInputStream(channel), channel.size());
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  // ── выполнение ────────────────────────────────────────────────────────────
+
+  private void run(ExportJob job, ExportJobRequest request) {
+    job.markRunning();
+    Path part = workDir.resolve(job.getId() + ".part");
+    Path target = workDir.resolve(job.getId() + job.getKind().extension());
+    try {
+      String cacheKey = artifactCache.key(request, job.getKey());
+      Optional<Path> cached = artifactCache.get(cacheKey);
+      if (cached.isPresent()) {
+        try {
+          ExportArtifactCache.linkOrCopy(cached.get(), target);
+          job.complete(target, Files.size(target));
+          log.info("Export job {} ({}) served from cache", job.getId(), job.getKind());
+          return;
+        } catch (NoSuchFileException e) {
+          // файл вытеснен между проверкой и ссылкой — строим заново
+        }
+      }
+      renderTo(request, part);
+      Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+      artifactCache.put(cacheKey, target);
+      job.complete(target, Files.size(target));
+      log.info("Export job {} ({}) done: {} bytes", job.getId(), job.getKind(), job.getSize());
+    } catch (Exception e) {
+      log.error("Export job {} ({}) failed: {}", job.getId(), job.getKind(), e.getMessage(), e);
+      job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+      deleteQuietly(part);
+    } finally {
+      inFlight.remove(job.getKey(), job);
+      eventPublisher.publishEvent(new ExportFinishedEvent(job.getId(), Set.copyOf(job.getWatchers()),
+              job.getStatus().name()));
+    }
+  }
+
+  private void renderTo(ExportJobRequest request, Path file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      if (PREPARED_IN_PARTS.contains(request.getKind())) {
+        // Части открывают свои транзакции в ExportRenderPool; общая держала бы ещё одно соединение,
+        // пока части ждут своих. Каждая часть согласована сама по себе, выгрузка целиком — нет
+        render(request, out);
+      } else {
+        // Одна read-only транзакция: согласованный снимок и открытая сессия для ленивых связей
+        readOnlyTx.executeWithoutResult(status -> render(request, out));
+      }
+    }
+  }
+
+  private void render(ExportJobRequest r, OutputStream out) {
+    try {
+      switch (r.getKind()) {
+        case GRADES_EXCEL -> exportService.writeGradesExcel(r.getGroupId(), r.getSubjectId(), out);
+        case GRADES_PDF -> exportService.writeGradesPdf(r.getGroupId(), r.getSubjectId(), out);
+        case STUDENT_GRADES_EXCEL -> exportService.writeGradesByStudentExcel(r.getStudentId(), r.getSubjectId(), out);
+        case STUDENT_GRADES_PDF -> exportService.writeGradesByStudentPdf(r.getStudentId(), r.getSubjectId(), out);
+        case STATISTICS_EXCEL -> exportService.writeStatisticsExcel(r.getGroupId(), out);
+        case STATISTICS_PDF -> exportService.writeStatisticsPdf(r.getGroupId(), out);
+        case SCHOOL_GRADES_EXCEL -> exportService.writeSchoolGradesExcel(out);
+        case REPORT_CARDS_ZIP -> exportService.writeReportCardsZip(r.getGroupId(), out);
+        case FILTER_EXCEL -> exportService.writeFilterResultsExcel(
+                r.getFilter().getRootEntity(), filterRows(r.getFilter()), out);
+        case FILTER_PDF -> exportService.writeFilterResultsPdf(
+                r.getFilter().getRootEntity(), filterRows(r.getFilter()), out);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private List<Map<String, Object>> filterRows(FilterExecuteRequest filter) {
+    Class<?> entityClass = EntityRegistry.resolve(filter.getRootEntity());
+    if (filter.isAggregate()) {
+      return filterRepository.aggregate(entityClass, filter, PageRequest.of(0, Integer.MAX_VALUE)).getContent();
+    }
+    return filterRepository.filter(entityClass, filter.getBlocks(), filter.getSort(), PageRequest.of(0, Integer.MAX_VALUE))
+            .getContent().stream().map(EntityFlattener::flatten).toList();
+  }
+
+  // ── проверка и ключ слияния ───────────────────────────────────────────────
+
+  private void validate(ExportJobRequest r) {
+    if (r.getKind() == null) throw new ExportException("Не указан вид выгрузки");
+    switch (r.getKind()) {
+      case GRADES_EXCEL, GRADES_PDF -> {
+        if (r.getGroupId() == null || r.getSubjectId() == null)
+          throw new ExportException("Для выгрузки оценок нужны groupId и subjectId");
+      }
+      case STUDENT_GRADES_EXCEL, STUDENT_GRADES_PDF -> {
+        if (r.getStudentId() == null) throw new ExportException("Для выгрузки оценок учащегося нужен studentId");
+      }
+      case FILTER_EXCEL, FILTER_PDF -> {
+        if (r.getFilter() == null || r.getFilter().getRootEntity() == null)
+          throw new ExportException("Для выгрузки результатов фильтрации нужен filter с rootEntity");
+        Class<?> entityClass = EntityRegistry.resolve(r.getFilter().getRootEntity());
+        if (!r.getFilter().isAggregate()) EntityRegistry.checkSortable(entityClass, r.getFilter().getSort());
+      }
+      default -> { }
+    }
+  }
+
+  private String coalescingKey(ExportJobRequest r) {
+    try {
+      // page/size фильтра на выгрузку не влияют — выгружаются все строки
+      String filter = r.getFilter() == null ? "" :
+              r.getFilter().getRootEntity() + objectMapper.writeValueAsString(r.getFilter().getBlocks())
+                      + objectMapper.writeValueAsString(r.getFilter().getSort())
+                      + objectMapper.writeValueAsString(r.getFilter().getGroupBy())
+                      + objectMapper.writeValueAsString(r.getFilter().getAggregates())
+                      + objectMapper.writeValueAsString(r.getFilter().getHaving());
+      return r.getKind() + "|" + r.getGroupId() + "|" + r.getSubjectId() + "|" + r.getStudentId() + "|" + filter;
+    } catch (JsonProcessingException e) {
+      throw new ExportException("Некорректные параметры фильтра");
+    }
+  }
+
+  // ── очистка ───────────────────────────────────────────────────────────────
+
+  /** Удаляет завершённые задания старше TTL вместе с файлами */
+  @Scheduled(fixedRate = 60_000)
+  public void cleanupExpired() {
+    Instant threshold = Instant.now().minus(TTL);
+    jobs.values().removeIf(job -> {
+      if (job.isFinished() && job.getFinishedAt().isBefore(threshold)) {
+        if (job.getFile() != null) deleteQuietly(job.getFile());
+        return true;
+      }
+      return false;
+    });
+  }
+
+  /** Прерывает задания и удаляет рабочий каталог, только когда потоки заданий вышли и файлы не пишутся */
+  @PreDestroy
+  public void shutdown() {
+    workers.shutdownNow();
+    try {
+      if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("Export workers did not stop in {} s", SHUTDOWN_TIMEOUT_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try (var files = Files.list(workDir)) {
+      files.forEach(ExportJobService::deleteQuietly);
+    } catch (IOException ignored) {}
+    deleteQuietly(workDir);
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      log.warn("Cannot delete {}: {}", path, e.getMessage());
+    }
+  }
+}
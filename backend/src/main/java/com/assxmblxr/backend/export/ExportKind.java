@@ -0,0 +1,51 @@
+package com.assxmblxr.backend.export;
+
+/**
+ * Виды выгрузок, доступные через очередь заданий.
+ */
+public enum ExportKind {
+  GRADES_EXCEL("grades", Format.XLSX),
+  GRADES_PDF("grades", Format.PDF),
+  STUDENT_GRADES_EXCEL("grades_student", Format.XLSX),
+  STUDENT_GRADES_PDF("grades_student", Format.PDF),
+  STATISTICS_EXCEL("statistics", Format.XLSX),
+  STATISTICS_PDF("statistics", Format.PDF),
+  SCHOOL_GRADES_EXCEL("grades_school", Format.XLSX),
+  REPORT_CARDS_ZIP("report_cards", Format.ZIP),
+  FILTER_EXCEL("filter_results", Format.XLSX),
+  FILTER_PDF("filter_results", Format.PDF);
+
+  private enum Format {
+    XLSX(".xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    PDF(".pdf", "application/pdf"),
+    ZIP(".zip", "application/zip");
+
+    private final String extension;
+    private final String contentType;
+
+    Format(String extension, String contentType) {
+      this.extension = extension;
+      this.contentType = contentType;
+    }
+  }
+
+  private final String baseName;
+  private final Format format;
+
+  ExportKind(String baseName, Format format) {
+    this.baseName = baseName;
+    this.format = format;
+  }
+
+  public String extension() {
+    return format.extension;
+  }
+
+  public String fileName() {
+    return baseName + extension();
+  }
+
+  public String contentType() {
+    return format.contentType;
+  }
+}
\ No newline at end of file
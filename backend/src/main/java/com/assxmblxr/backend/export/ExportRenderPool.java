@@ -0,0 +1,107 @@
+package com.assxmblxr.backend.export;
+
+import com.assxmblxr.backend.config.BoundedDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Ограниченный пул для параллельной подготовки частей больших выгрузок (листы общешкольной
+ * книги, табели). Части готовятся параллельно, каждая в своей read-only транзакции,
+ * а записываются в выходной поток строго по порядку в вызывающем потоке: формат файла
+ * (SXSSF, ZIP) не потокобезопасен. Вперёд готовится не больше окна частей, поэтому
+ * память ограничена окном, а не размером всей выгрузки.
+ * <p>
+ * Пул общий для всех выгрузок, и каждая часть держит соединение, пока готовится. Поэтому
+ * потоков не больше половины соединений {@link BoundedDataSource}: сколько бы выгрузок
+ * ни шло одновременно, остальным запросам остаются свободные соединения.
+ */
+@Slf4j
+@Component
+public class ExportRenderPool {
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  /** Принимает готовую часть; вызывается в потоке, запустившем выгрузку */
+  @FunctionalInterface
+  public interface PartWriter<R> {
+    void write(R part) throws IOException;
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final TransactionTemplate readOnlyTx;
+  private final int parallelism;
+
+  public ExportRenderPool(PlatformTransactionManager transactionManager, DataSource dataSource) {
+    int cpus = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+    int connections = dataSource instanceof BoundedDataSource bounded ? bounded.getMaxConcurrent() : cpus * 2;
+    this.parallelism = Math.max(1, Math.min(cpus, connections / 2));
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> new Thread(r, "export-render-" + counter.incrementAndGet()));
+  }
+
+  /**
+   * Готовит части параллельно и передаёт их writer в исходном порядке.
+   * При ошибке оставшиеся части отменяются, а исключение пробрасывается.
+   */
+  public <T, R> void forEachOrdered(List<T> items, Function<T, R> prepare, PartWriter<R> writer) throws IOException {
+    int window = parallelism * 2;
+    Deque<Future<R>> pending = new ArrayDeque<>(window);
+    Iterator<T> it = items.iterator();
+    try {
+      while (it.hasNext() || !pending.isEmpty()) {
+        while (it.hasNext() && pending.size() < window) {
+          T item = it.next();
+          pending.add(executor.submit(() -> readOnlyTx.execute(status -> prepare.apply(item))));
+        }
+        writer.write(await(pending.poll()));
+      }
+    } finally {
+      pending.forEach(f -> f.cancel(true));
+    }
+  }
+
+  private static <R> R await(Future<R> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Export interrupted");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException io) throw io;
+      if (cause instanceof RuntimeException re) throw re;
+      throw new IOException(cause);
+    }
+  }
+
+  /** Прерывает подготовку частей и ждёт, пока потоки выйдут, — после этого можно удалять файлы выгрузок */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+    try {
+      if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("Export render workers did not stop in {} s", SHUTDOWN_TIMEOUT_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.assxmblxr.backend.export;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общие ресурсы PDF-выгрузок. Кириллический шрифт читается и разбирается один раз
+ * при старте; в каждый документ встраивается только подмножество использованных глифов
+ * (учёт ведёт PdfWriter документа, сам BaseFont между документами не меняется).
+ * Экземпляры Font кэшируются по размеру и начертанию и не должны изменяться вызывающими.
+ */
+@Slf4j
+@Component
+public class PdfStyles {
+  public static final Color HEADER_BACKGROUND = new Color(180, 210, 240);
+  public static final Color HIGH_RISK_BACKGROUND = new Color(255, 200, 200);
+  public static final Color MEDIUM_RISK_BACKGROUND = new Color(255, 245, 180);
+
+  private static final String[] SYSTEM_FONTS = {
+          "/usr/share/fonts/truetype/freefont/FreeSans.ttf",
+          "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+          "/usr/share/fonts/truetype/liberation/LiberationSans-Regular.ttf",
+          "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+          "C:/Windows/Fonts/arial.ttf", "C:/Windows/Fonts/ArialUni.ttf"
+  };
+
+  private final BaseFont baseFont;
+  private final Map<Integer, Font> fonts = new ConcurrentHashMap<>();
+
+  public PdfStyles() {
+    this.baseFont = loadCyrillicFont();
+    this.baseFont.setSubset(true);
+    log.info("PDF font loaded: {}", baseFont.getPostscriptFontName());
+  }
+
+  /**
+   * Шрифт заданного размера и начертания.
+   * @param style Font.NORMAL, Font.BOLD, Font.ITALIC или их комбинация
+   */
+  public Font font(int size, int style) {
+    return fonts.computeIfAbsent(size << 4 | style, k -> new Font(baseFont, size, style));
+  }
+
+  private BaseFont loadCyrillicFont() {
+    try (InputStream is = getClass().getResourceAsStream("/fonts/FreeSans.ttf")) {
+      if (is != null) {
+        byte[] bytes = is.readAllBytes();
+        return BaseFont.createFont("FreeSans.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true, bytes, null);
+      }
+    } catch (Exception e) {
+      log.warn("Cannot load bundled PDF font: {}", e.getMessage());
+    }
+    for (String path : SYSTEM_FONTS) {
+      try { return BaseFont.createFont(path, BaseFont.IDENTITY_H, BaseFont.EMBEDDED); } catch (Exception ignored) {}
+    }
+    try { return BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED); }
+    catch (Exception e) { throw new RuntimeException("Cannot load any font for PDF", e); }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.assxmblxr.backend.filter;
+
+import jakarta.persistence.criteria.CriteriaQuery;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Программа фильтра, разобранная и проверенная один раз: criteria-деревья запроса данных
+ * и подсчёта с именованными параметрами вместо значений слотов. Деревья не меняются после
+ * сборки — каждое выполнение работает с их копией, поэтому план можно держать в памяти
+ * и выполнять из разных потоков.
+ *
+ * @param count      запрос числа строк; null, если он не нужен (агрегат без группировки)
+ * @param columns    имена столбцов агрегатного результата; для сущностей пусто
+ * @param parameters слоты параметров и типы их значений
+ * @param touched    сущности, изменение которых может изменить результат
+ */
+public record CompiledFilter(Class<?> entityClass, boolean aggregate, CriteriaQuery<?> data,
+                             CriteriaQuery<Long> count, List<String> columns,
+                             Map<String, Class<?>> parameters, Set<Class<?>> touched) {
+
+  /**
+   * Строковые значения слотов в типы параметров.
+   * @throws IllegalArgumentException если значения не хватает, оно лишнее или не разбирается
+   */
+  public Map<String, Object> bind(Map<String, String> values) {
+    Map<String, String> given = values != null ? values : Map.of();
+    for (String name : given.keySet()) {
+      if (!parameters.containsKey(name)) throw new IllegalArgumentException("Unknown parameter: " + name);
+    }
+    Map<String, Object> bound = new LinkedHashMap<>();
+    parameters.forEach((name, type) -> {
+      String value = given.get(name);
+      if (value == null) throw new IllegalArgumentException("Missing parameter: " + name);
+      try {
+        bound.put(name, GenericFilterParser.convert(type, value));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Bad value for parameter " + name + ": " + value, e);
+      }
+    });
+    return bound;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.assxmblxr.backend.filter;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Превращает сущность в плоскую карту «поле → значение» для выдачи и экспорта
+ * результатов фильтрации: скалярные поля как есть, связанные сущности — с префиксом
+ * имени поля, коллекции — количеством элементов. Ленивые связи читаются при обходе,
+ * поэтому вызывать нужно при открытой сессии.
+ */
+public final class EntityFlattener {
+
+  private EntityFlattener() {}
+
+  public static Map<String, Object> flatten(Object entity) {
+    return flatten(entity, new HashSet<>());
+  }
+
+  private static Map<String, Object> flatten(Object obj, Set<Integer> visited) {
+    if (obj == null) return Map.of();
+    int identity = System.identityHashCode(obj);
+    if (visited.contains(identity)) return Map.of();
+    visited.add(identity);
+
+    Map<String, Object> map = new LinkedHashMap<>();
+    Class<?> cls = obj.getClass();
+
+    while (cls != null && cls != Object.class) {
+      for (Field field : cls.getDeclaredFields()) {
+        if (field.getName().startsWith("$$") || field.getName().equals("serialVersionUID")) continue;
+        field.setAccessible(true);
+        try {
+          Object value = field.get(obj);
+          if (value == null) {
+            map.put(field.getName(), null);
+          } else if (isScalar(value)) {
+            map.put(field.getName(), value);
+          } else if (value instanceof Collection<?> col) {
+            map.put(field.getName() + "_count", col.size());
+          } else {
+            Map<String, Object> nested = flattenNested(value, visited);
+            nested.forEach((k, v) -> map.put(field.getName() + "_" + k, v));
+          }
+        } catch (Exception ignored) {}
+      }
+      cls = cls.getSuperclass();
+    }
+    return map;
+  }
+
+  private static Map<String, Object> flattenNested(Object obj, Set<Integer> visited) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    int identity = System.identityHashCode(obj);
+    if (visited.contains(identity)) return result;
+    visited.add(identity);
+    Class<?> cls = obj.getClass();
+    while (cls != null && cls != Object.class) {
+      for (Field field : cls.getDeclaredFields()) {
+        if (field.getName().startsWith("$$") || field.getName().equals("serialVersionUID")) continue;
+        field.setAccessible(true);
+        try {
+          Object value = field.get(obj);
+          if (value != null && isScalar(value)) result.put(field.getName(), value);
+        } catch (Exception ignored) {}
+      }
+      cls = cls.getSuperclass();
+    }
+    return result;
+  }
+
+  private static boolean isScalar(Object v) {
+    return v instanceof Number || v instanceof String
+            || v instanceof Boolean || v instanceof LocalDate
+            || v instanceof Enum<?>;
+  }
+}
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.assxmblxr.backend.filter;
 
+import com.assxmblxr.backend.dto.FilterSortDto;
 import com.assxmblxr.backend.entity.*;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class EntityRegistry {
 
@@ -17,12 +20,41 @@ public final class EntityRegistry {
           "Teacher",    Teacher.class
   );
 
+  /**
+   * Поля, по которым разрешена сортировка: у каждого есть индекс с этим столбцом в начале,
+   * так что ORDER BY ... LIMIT идёт по индексу. Пути через связь — только id сущности
+   * «к одному»: это внешний ключ корневой таблицы, join не нужен.
+   */
+  private static final Map<Class<?>, Set<String>> SORTABLE = Map.of(
+          Student.class,    Set.of("id", "fullname", "group.id"),
+          Group.class,      Set.of("id", "name"),
+          Grade.class,      Set.of("id", "gradeDate", "subject.id"),
+          Attendance.class, Set.of("id", "attendanceDate", "student.id", "subject.id"),
+          Schedule.class,   Set.of("id", "group.id"),
+          Subject.class,    Set.of("id"),
+          Teacher.class,    Set.of("id")
+  );
+
   public static Class<?> resolve(String name) {
     Class<?> cls = ENTITY_MAP.get(name);
     if (cls == null) throw new IllegalArgumentException("Unknown entity: " + name);
     return cls;
   }
 
+  /** Проверяет ключи сортировки по белому списку сущности */
+  public static void checkSortable(Class<?> entityClass, List<FilterSortDto> sort) {
+    if (sort == null) return;
+    Set<String> allowed = SORTABLE.getOrDefault(entityClass, Set.of("id"));
+    for (FilterSortDto key : sort) {
+      if (key.getField() == null || !allowed.contains(key.getField()))
+        throw new IllegalArgumentException("Sorting by " + key.getField() + " is not supported for "
+                + entityClass.getSimpleName() + ", allowed: " + allowed);
+      String dir = key.getDirection();
+      if (dir != null && !dir.equalsIgnoreCase("ASC") && !dir.equalsIgnoreCase("DESC"))
+        throw new IllegalArgumentException("Unknown sort direction: " + dir);
+    }
+  }
+
   public static Map<String, Class<?>> all() {
     return ENTITY_MAP;
   }
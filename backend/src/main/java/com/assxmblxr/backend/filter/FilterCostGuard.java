@@ -0,0 +1,105 @@
+package com.assxmblxr.backend.filter;
+
+import com.assxmblxr.backend.exceptions.QueryCostException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Допуск запросов фильтра к БД. Перед выполнением запрос проходит EXPLAIN: дороже
+ * {@code max-cost} или больше {@code max-rows} строк — отказ; дороже {@code queue-cost} —
+ * ожидание одного из немногих слотов для тяжёлых запросов. Каждой транзакции с запросом
+ * фильтра ставится statement_timeout, так что PostgreSQL сам снимает зависший запрос.
+ */
+@Slf4j
+@Component
+public class FilterCostGuard {
+  private final SqlExplainer explainer;
+  private final EntityManager em;
+  private final boolean enabled;
+  private final double queueCost;
+  private final double maxCost;
+  private final double maxRows;
+  private final long queueWaitMs;
+  private final long statementTimeoutMs;
+  private final Semaphore heavySlots;
+
+  public FilterCostGuard(SqlExplainer explainer, EntityManager em,
+                         @Value("${filter.guard.enabled:true}") boolean enabled,
+                         @Value("${filter.guard.queue-cost:50000}") double queueCost,
+                         @Value("${filter.guard.max-cost:2000000}") double maxCost,
+                         @Value("${filter.guard.max-rows:1000000}") double maxRows,
+                         @Value("${filter.guard.heavy-concurrency:2}") int heavyConcurrency,
+                         @Value("${filter.guard.queue-wait-ms:10000}") long queueWaitMs,
+                         @Value("${filter.guard.statement-timeout-ms:30000}") long statementTimeoutMs) {
+    this.explainer = explainer;
+    this.em = em;
+    this.enabled = enabled;
+    this.queueCost = queueCost;
+    this.maxCost = maxCost;
+    this.maxRows = maxRows;
+    this.queueWaitMs = queueWaitMs;
+    this.statementTimeoutMs = statementTimeoutMs;
+    this.heavySlots = new Semaphore(heavyConcurrency, true);
+  }
+
+  /** Разрешение на выполнение; закрывается после того, как результат прочитан */
+  public interface Admission extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Проверяет план запроса и ограничивает время выполнения в текущей транзакции.
+   * @throws QueryCostException запрос слишком дорогой или очередь тяжёлых запросов занята
+   */
+  public Admission admit(TypedQuery<?> query) {
+    limitTime();
+    return reserve(query);
+  }
+
+  /**
+   * Проверяет план запроса, который выполнится позже в другой транзакции, — например, при
+   * потоковой выгрузке после отправки заголовков ответа. Время там ограничивает {@link #limitTime()}.
+   * @throws QueryCostException запрос слишком дорогой или очередь тяжёлых запросов занята
+   */
+  public Admission reserve(TypedQuery<?> query) {
+    if (!enabled) return () -> { };
+    SqlExplainer.Plan plan = explainer.explain(query);
+    log.debug("Filter query plan: cost {}, rows {}, parameters {}: {}",
+            plan.totalCost(), plan.rows(), plan.parameters(), plan.sql());
+    if (plan.totalCost() > maxCost || plan.rows() > maxRows) {
+      log.warn("Filter query rejected: cost {}, rows {}: {}", plan.totalCost(), plan.rows(), plan.sql());
+      throw new QueryCostException(String.format(
+              "Запрос слишком тяжёлый (оценка: стоимость %.0f, строк %.0f) — сузьте условия фильтра",
+              plan.totalCost(), plan.rows()), false);
+    }
+    if (plan.totalCost() <= queueCost) return () -> { };
+    try {
+      if (!heavySlots.tryAcquire(queueWaitMs, TimeUnit.MILLISECONDS)) {
+        throw new QueryCostException("Сервер занят тяжёлыми запросами, повторите позже", true);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new QueryCostException("Ожидание очереди тяжёлых запросов прервано", true);
+    }
+    return heavySlots::release;
+  }
+
+  /** statement_timeout для текущей транзакции */
+  public void limitTime() {
+    if (!enabled) return;
+    em.unwrap(Session.class).doWork(connection -> {
+      try (Statement st = connection.createStatement()) {
+        st.execute("SET LOCAL statement_timeout = " + statementTimeoutMs);
+      }
+    });
+  }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.assxmblxr.backend.filter;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * SQL-функции для запросов фильтра, которых нет в HQL. Подключается через
+ * META-INF/services, поэтому доступна и в criteria-запросах ({@code cb.function(...)}).
+ */
+public class FilterFunctions implements FunctionContributor {
+  /**
+   * {@code id = id_any(:ids)} — сравнение с любым элементом массива-параметра:
+   * {@code id = ANY(?)}. Одним параметром передаётся сколько угодно id, и PostgreSQL
+   * читает их по индексу первичного ключа. Имя {@code any} в Hibernate занято агрегатом bool_or.
+   */
+  public static final String ID_ANY = "id_any";
+
+  @Override
+  public void contributeFunctions(FunctionContributions contributions) {
+    contributions.getFunctionRegistry().patternDescriptorBuilder(ID_ANY, "any(?1)")
+            .setExactArgumentCount(1)
+            .setInvariantType(contributions.getTypeConfiguration().getBasicTypeRegistry()
+                    .resolve(StandardBasicTypes.LONG))
+            .register();
+  }
+}
\ No newline at end of file
@@ -1,35 +1,154 @@
 package com.assxmblxr.backend.filter;
 
+import com.assxmblxr.backend.dto.FilterAggregateDto;
 import com.assxmblxr.backend.dto.FilterBlockDto;
+import com.assxmblxr.backend.dto.FilterSortDto;
 import jakarta.persistence.criteria.*;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Собирает предикат Criteria API из программы блоков фильтра. Условия на пути через
+ * коллекции компилируются в коррелированные EXISTS, поэтому основной запрос соединяет
+ * только связи «к одному», строки не размножаются и DISTINCT не нужен.
+ * <p>
+ * Условия одной цепочки AND на одну коллекцию попадают в один EXISTS и проверяют один и тот же
+ * её элемент: {@code subjects.name = X AND subjects.id > 3} — у учителя есть предмет, для которого
+ * верно и то и другое, как и при прежнем соединении join-ом. Условия, разделённые OR или
+ * группой, получают каждое свой EXISTS. NOT применяется ко всему EXISTS:
+ * {@code NOT subjects.name = X} — ни один предмет не называется X (а не «есть предмет
+ * с другим названием», как было при join).
+ * <p>
+ * Значение блока вида {@code ${name}} — слот параметра: в запрос попадает именованный
+ * параметр, а значение привязывается при каждом выполнении.
+ */
 public class GenericFilterParser {
+  private static final Pattern SLOT = Pattern.compile("\\$\\{(\\w+)}");
 
   private final CriteriaBuilder cb;
   private final CriteriaQuery<?> query;
+  private final Root<?> root;
   private final UniversalPathResolver resolver;
+  private final Map<String, ParameterExpression<?>> parameters = new LinkedHashMap<>();
+  private final Set<Class<?>> touched = new LinkedHashSet<>();
+  /** EXISTS текущей цепочки AND по началу пути до коллекции */
+  private final Map<String, Semijoin> conjunction = new HashMap<>();
+
+  /** Коррелированный EXISTS по коллекции и условия, которые проверяют один её элемент */
+  private static final class Semijoin {
+    private final Subquery<Integer> subquery;
+    private final UniversalPathResolver resolver;
+    private final List<Predicate> conditions = new ArrayList<>();
+
+    private Semijoin(Subquery<Integer> subquery, UniversalPathResolver resolver) {
+      this.subquery = subquery;
+      this.resolver = resolver;
+    }
+
+    private void add(Predicate condition) {
+      conditions.add(condition);
+      subquery.where(conditions.toArray(new Predicate[0]));
+    }
+  }
 
   public GenericFilterParser(CriteriaBuilder cb, CriteriaQuery<?> query, Root<?> root) {
     this.cb = cb;
     this.query = query;
+    this.root = root;
     this.resolver = new UniversalPathResolver(root);
-    query.distinct(true);
+    this.touched.add(root.getJavaType());
+  }
+
+  /** Слоты параметров, встреченные при разборе, и типы их значений */
+  public Map<String, Class<?>> parameterTypes() {
+    Map<String, Class<?>> types = new LinkedHashMap<>();
+    parameters.forEach((name, p) -> types.put(name, p.getParameterType()));
+    return types;
+  }
+
+  /** Сущности, таблицы которых читают построенные выражения: корень, join-ы и EXISTS */
+  public Set<Class<?>> touchedEntities() {
+    Set<Class<?>> result = new LinkedHashSet<>(touched);
+    result.addAll(resolver.touched());
+    return result;
   }
 
   public Predicate parse(List<FilterBlockDto> blocks) {
+    return parse(blocks, this::buildPredicate);
+  }
+
+  /**
+   * Условие HAVING: те же блоки, но поле блока — имя столбца агрегатного запроса.
+   * @param columns столбцы результата по именам
+   */
+  public Predicate parseHaving(List<FilterBlockDto> blocks, Map<String, Expression<?>> columns) {
+    return parse(blocks, (b, conjunct) -> {
+      Expression<?> column = columns.get(b.getField());
+      if (column == null) throw new IllegalArgumentException("Unknown column in HAVING: " + b.getField());
+      return compare(column, b);
+    });
+  }
+
+  /** Выражение группировки — путь, развёрнутый в join-ы как в условиях */
+  public Expression<?> groupingPath(String fieldPath) {
+    return resolver.resolve(fieldPath);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public Expression<?> aggregate(FilterAggregateDto a) {
+    String function = a.getFunction() == null ? "" : a.getFunction().toUpperCase();
+    if ("COUNT".equals(function)) {
+      return a.getField() == null ? cb.count(root) : cb.count(resolver.resolve(a.getField()));
+    }
+    if (a.getField() == null) throw new IllegalArgumentException(function + " requires a field");
+    Expression path = resolver.resolve(a.getField());
+    return switch (function) {
+      case "AVG" -> cb.avg(path);
+      case "MIN" -> cb.least(path);
+      case "MAX" -> cb.greatest(path);
+      default    -> throw new IllegalArgumentException("Unknown aggregate: " + a.getFunction());
+    };
+  }
+
+  /** Порядок групп: по именам столбцов из {@code sort}, затем по всем столбцам группировки */
+  public List<Order> orderByColumns(List<FilterSortDto> sort, Map<String, Expression<?>> columns,
+                                    List<Expression<?>> groups) {
+    List<Order> orders = new ArrayList<>();
+    if (sort != null) {
+      for (FilterSortDto key : sort) {
+        Expression<?> column = columns.get(key.getField());
+        if (column == null) throw new IllegalArgumentException("Unknown sort column: " + key.getField());
+        orders.add("DESC".equalsIgnoreCase(key.getDirection()) ? cb.desc(column) : cb.asc(column));
+      }
+    }
+    for (Expression<?> group : groups) orders.add(cb.asc(group));
+    return orders;
+  }
+
+  /**
+   * @param leaf условие блока; второй аргумент — блок соединён с цепочкой AND без NOT,
+   *             и его условие можно добавить в уже построенный EXISTS (тогда leaf вернёт null)
+   */
+  private Predicate parse(List<FilterBlockDto> blocks, BiFunction<FilterBlockDto, Boolean, Predicate> leaf) {
     Deque<List<Predicate>> ctxStack   = new ArrayDeque<>();
     Deque<String>          logicStack = new ArrayDeque<>();
     List<Predicate>        current    = new ArrayList<>();
     String                 pending    = null;
+    conjunction.clear();
 
     for (FilterBlockDto b : blocks) {
       switch (b.getType()) {
         case "IF" -> {
-          Predicate p = buildPredicate(b);
+          // после OR прежняя цепочка AND оказывается внутри дизъюнкции — сливать с ней нельзя
+          if ("OR".equals(pending)) conjunction.clear();
+          Predicate p = leaf.apply(b, pending == null || "AND".equals(pending));
 
-          if (pending != null) {
+          if (p == null) {
+            // условие добавлено в EXISTS, который уже стоит в этой цепочке AND
+          } else if (pending != null) {
             if ("NOT".equals(pending)) {
               // NOT применяется к текущему предикату
               p = cb.not(p);
@@ -61,6 +180,7 @@ public class GenericFilterParser {
           current = new ArrayList<>();
           current.add(combined);
           pending = null;
+          conjunction.clear();
         }
       }
     }
@@ -68,6 +188,25 @@ public class GenericFilterParser {
     return flatten(current);
   }
 
+  /**
+   * Порядок строк по ключам сортировки из белого списка {@link EntityRegistry}. В конец всегда
+   * добавляется id: без полного порядка LIMIT/OFFSET может отдать строку на двух страницах сразу.
+   */
+  public List<Order> orderBy(List<FilterSortDto> sort) {
+    EntityRegistry.checkSortable(root.getJavaType(), sort);
+    List<Order> orders = new ArrayList<>();
+    boolean byId = false;
+    if (sort != null) {
+      for (FilterSortDto key : sort) {
+        Path<?> path = resolver.resolveAttribute(key.getField());
+        orders.add("DESC".equalsIgnoreCase(key.getDirection()) ? cb.desc(path) : cb.asc(path));
+        byId |= "id".equals(key.getField());
+      }
+    }
+    if (!byId) orders.add(cb.asc(root.get("id")));
+    return orders;
+  }
+
   private Predicate applyLogic(String logic, Predicate left, Predicate right) {
     return switch (logic) {
       case "AND" -> cb.and(left, right);
@@ -83,11 +222,37 @@ public class GenericFilterParser {
     return cb.and(list.toArray(new Predicate[0]));
   }
 
+  /**
+   * @param conjunct блок в цепочке AND: условие на ту же коллекцию добавляется в её EXISTS,
+   *                 и тогда возвращается null
+   */
+  private Predicate buildPredicate(FilterBlockDto b, boolean conjunct) {
+    String collection = resolver.collectionPrefix(b.getField());
+    if (collection == null) {
+      return compare(resolver.resolve(b.getField()), b);
+    }
+    Semijoin existing = conjunct ? conjunction.get(collection) : null;
+    if (existing != null) {
+      existing.add(compare(existing.resolver.resolve(b.getField()), b));
+      touched.addAll(existing.resolver.touched());
+      return null;
+    }
+    // полусоединение: «есть связанная запись, для которой условие верно», без размножения строк
+    Subquery<Integer> exists = query.subquery(Integer.class);
+    Root<?> correlated = exists.correlate(root);
+    Semijoin semijoin = new Semijoin(exists, new UniversalPathResolver(correlated, true));
+    semijoin.add(compare(semijoin.resolver.resolve(b.getField()), b));
+    touched.addAll(semijoin.resolver.touched());
+    if (conjunct) conjunction.put(collection, semijoin);
+    return cb.exists(exists.select(cb.literal(1)));
+  }
+
   @SuppressWarnings({"unchecked", "rawtypes"})
-  private Predicate buildPredicate(FilterBlockDto b) {
-    Path path = resolver.resolve(b.getField());
+  private Predicate compare(Expression path, FilterBlockDto b) {
     String op  = b.getOperator();
     String val = b.getValue();
+    Matcher slot = val != null ? SLOT.matcher(val) : null;
+    if (slot != null && slot.matches()) return compareParameter(path, op, slot.group(1));
 
     return switch (op) {
       case "EQUAL"                 -> cb.equal(path, castValue(path, val));
@@ -111,11 +276,69 @@ public class GenericFilterParser {
     };
   }
 
-  private Object castValue(Path<?> path, String val) {
-    Class<?> t = path.getJavaType();
+  /** Те же операторы, но значение — именованный параметр; его тип выводится из оператора и поля */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Predicate compareParameter(Expression path, String op, String name) {
+    Expression<String> text = cb.lower(path.as(String.class));
+    return switch (op) {
+      case "EQUAL"                 -> cb.equal(path, parameter(name, boxed(path.getJavaType())));
+      case "NOT_EQUAL"             -> cb.notEqual(path, parameter(name, boxed(path.getJavaType())));
+      case "GREATER_THAN"          -> cb.greaterThan(path, (Expression) parameter(name, boxed(path.getJavaType())));
+      case "LESS_THAN"             -> cb.lessThan(path, (Expression) parameter(name, boxed(path.getJavaType())));
+      case "GREATER_THAN_OR_EQUAL" -> cb.greaterThanOrEqualTo(path, (Expression) parameter(name, boxed(path.getJavaType())));
+      case "LESS_THAN_OR_EQUAL"    -> cb.lessThanOrEqualTo(path, (Expression) parameter(name, boxed(path.getJavaType())));
+      case "STRING_EQUAL"          -> cb.equal(text, cb.lower(parameter(name, String.class)));
+      case "CONTAINS"              -> cb.like(text, cb.concat(cb.concat("%", cb.lower(parameter(name, String.class))), "%"));
+      case "STARTS_WITH"           -> cb.like(text, cb.concat(cb.lower(parameter(name, String.class)), "%"));
+      case "ENDS_WITH"             -> cb.like(text, cb.concat("%", cb.lower(parameter(name, String.class))));
+      case "LENGTH_EQUAL"          -> cb.equal(cb.length(path.as(String.class)), parameter(name, Integer.class));
+      case "LENGTH_GREATER_THAN"   -> cb.greaterThan(cb.length(path.as(String.class)), parameter(name, Integer.class));
+      case "LENGTH_LESS_THAN"      -> cb.lessThan(cb.length(path.as(String.class)), parameter(name, Integer.class));
+      case "DATE_EQUAL"            -> cb.equal(path, parameter(name, LocalDate.class));
+      case "BEFORE"                -> cb.lessThan(path, (Expression) parameter(name, LocalDate.class));
+      case "AFTER"                 -> cb.greaterThan(path, (Expression) parameter(name, LocalDate.class));
+      default -> throw new IllegalArgumentException("Operator " + op + " does not accept a parameter: " + name);
+    };
+  }
+
+  /** Один параметр на имя; повторное использование с другим типом — ошибка программы фильтра */
+  @SuppressWarnings("unchecked")
+  private <T> ParameterExpression<T> parameter(String name, Class<T> type) {
+    ParameterExpression<?> existing = parameters.get(name);
+    if (existing == null) {
+      ParameterExpression<T> created = cb.parameter(type, name);
+      parameters.put(name, created);
+      return created;
+    }
+    if (existing.getParameterType() != type)
+      throw new IllegalArgumentException("Parameter " + name + " is used as both "
+              + existing.getParameterType().getSimpleName() + " and " + type.getSimpleName());
+    return (ParameterExpression<T>) existing;
+  }
+
+  private Object castValue(Expression<?> path, String val) {
+    return convert(path.getJavaType(), val);
+  }
+
+  /** Строковое значение блока или параметра в тип поля */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public static Object convert(Class<?> t, String val) {
     if (t == Integer.class || t == int.class)  return Integer.parseInt(val);
     if (t == Long.class    || t == long.class) return Long.parseLong(val);
+    if (t == Double.class  || t == double.class) return Double.parseDouble(val);
+    if (t != null && t.isEnum())               return Enum.valueOf((Class) t, val);
     if (t == LocalDate.class)                   return LocalDate.parse(val);
     return val;
   }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Class<T> boxed(Class<T> t) {
+    if (t == null) return (Class<T>) String.class;
+    if (!t.isPrimitive()) return t;
+    if (t == int.class)     return (Class<T>) Integer.class;
+    if (t == long.class)    return (Class<T>) Long.class;
+    if (t == double.class)  return (Class<T>) Double.class;
+    if (t == boolean.class) return (Class<T>) Boolean.class;
+    throw new IllegalArgumentException("Unsupported parameter type: " + t);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.assxmblxr.backend.filter;
+
+import jakarta.persistence.TypedQuery;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.mapping.MappingModelExpressible;
+import org.hibernate.query.spi.DomainQueryExecutionContext;
+import org.hibernate.query.spi.QueryOptions;
+import org.hibernate.query.spi.SqmQuery;
+import org.hibernate.query.sqm.internal.DomainParameterXref;
+import org.hibernate.query.sqm.internal.QuerySqmImpl;
+import org.hibernate.query.sqm.internal.SqmUtil;
+import org.hibernate.query.sqm.spi.SqmParameterMappingModelResolutionAccess;
+import org.hibernate.query.sqm.sql.SqmTranslation;
+import org.hibernate.query.sqm.tree.expression.SqmParameter;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
+import org.hibernate.sql.ast.tree.expression.JdbcParameter;
+import org.hibernate.sql.ast.tree.select.SelectStatement;
+import org.hibernate.sql.exec.internal.BaseExecutionContext;
+import org.hibernate.sql.exec.spi.*;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Перевод criteria-запроса в SQL тем же путём, что и при выполнении, — единственное место,
+ * где используются внутренние классы Hibernate ({@code QuerySqmImpl}, {@code SqmUtil},
+ * {@code BaseExecutionContext}); остальное берётся через SPI {@link SqmQuery} и
+ * {@link DomainQueryExecutionContext}. Написан под Hibernate 6.6, версию закрепляет
+ * {@code HibernateSqlRendererTest}: при обновлении Hibernate сначала должен пройти он.
+ */
+public final class HibernateSqlRenderer {
+
+  private HibernateSqlRenderer() {
+  }
+
+  /** SQL, значения параметров по порядку и привязка тех же значений к PreparedStatement */
+  public interface Rendered {
+    String sql();
+
+    List<Object> parameters();
+
+    /** Привязывает параметры к запросу, текст которого заканчивается {@link #sql()} */
+    void bind(PreparedStatement ps) throws SQLException;
+  }
+
+  public static Rendered render(TypedQuery<?> query, SharedSessionContractImplementor session) {
+    SqmQuery sqmQuery = query.unwrap(SqmQuery.class);
+    DomainQueryExecutionContext execution = query.unwrap(DomainQueryExecutionContext.class);
+    DomainParameterXref xref = query.unwrap(QuerySqmImpl.class).getDomainParameterXref();
+    SessionFactoryImplementor factory = session.getFactory();
+    QueryOptions options = sqmQuery.getQueryOptions();
+
+    SqmTranslation<SelectStatement> translation = factory.getQueryEngine().getSqmTranslatorFactory()
+            .createSelectTranslator((SqmSelectStatement<?>) sqmQuery.getSqmStatement(), options, xref,
+                    execution.getQueryParameterBindings(), session.getLoadQueryInfluencers(), factory, true)
+            .translate();
+    JdbcParameterBindings bindings = SqmUtil.createJdbcParameterBindings(
+            execution.getQueryParameterBindings(),
+            xref,
+            SqmUtil.generateJdbcParamsXref(xref, translation::getJdbcParamsBySqmParam),
+            factory.getRuntimeMetamodels().getMappingMetamodel(),
+            translation.getFromClauseAccess()::findTableGroup,
+            new SqmParameterMappingModelResolutionAccess() {
+              @Override
+              @SuppressWarnings("unchecked")
+              public <T> MappingModelExpressible<T> getResolvedMappingModelType(SqmParameter<T> parameter) {
+                return (MappingModelExpressible<T>) translation.getSqmParameterMappingModelTypeResolutions().get(parameter);
+              }
+            },
+            session);
+    JdbcOperationQuerySelect select = factory.getJdbcServices().getJdbcEnvironment().getSqlAstTranslatorFactory()
+            .buildSelectTranslator(factory, translation.getSqlAst())
+            .translate(bindings, options);
+
+    // LIMIT/OFFSET привязываются из параметров выполнения, а не из bindings
+    ExecutionContext context = new BaseExecutionContext(session) {
+      @Override
+      public QueryOptions getQueryOptions() {
+        return options;
+      }
+    };
+    List<Object> parameters = new ArrayList<>();
+    for (JdbcParameterBinder binder : select.getParameterBinders()) {
+      JdbcParameterBinding binding = binder instanceof JdbcParameter p ? bindings.getBinding(p) : null;
+      if (binding != null) parameters.add(binding.getBindValue());
+      else if (binder == select.getOffsetParameter()) parameters.add(options.getLimit().getFirstRow());
+      else if (binder == select.getLimitParameter()) parameters.add(options.getLimit().getMaxRows());
+      else parameters.add(null);
+    }
+
+    String sql = select.getSqlString();
+    return new Rendered() {
+      @Override
+      public String sql() {
+        return sql;
+      }
+
+      @Override
+      public List<Object> parameters() {
+        return parameters;
+      }
+
+      @Override
+      public void bind(PreparedStatement ps) throws SQLException {
+        int position = 1;
+        for (JdbcParameterBinder binder : select.getParameterBinders()) {
+          binder.bindParameterValue(ps, position++, bindings, context);
+        }
+      }
+    };
+  }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.assxmblxr.backend.filter;
+
+import com.assxmblxr.backend.dto.FilterSortDto;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Снимок результата фильтрации: id подходящих сущностей в порядке сортировки запроса,
+ * 8 байт на строку. Страницы и выгрузки снимка читают сущности по id, не выполняя
+ * фильтр заново, поэтому набор строк между страницами не меняется. Значения полей
+ * читаются текущие; строки, удалённые после снимка, просто пропадают со страницы.
+ * <p>
+ * Другие сортировки того же снимка считаются один раз и хранятся рядом с исходной.
+ */
+@Getter
+public class ResultSnapshot {
+  /** Сколько сортировок, кроме исходной, хранится одновременно */
+  private static final int MAX_ORDERINGS = 4;
+
+  private final String id;
+  private final String owner;
+  private final String rootEntity;
+  private final Class<?> entityClass;
+  private final List<FilterSortDto> sort;
+  private final long[] ids;
+  private final Instant createdAt = Instant.now();
+  private volatile Instant lastAccess = createdAt;
+  /** Ключ — сортировка, значение — те же id в её порядке; под монитором самой карты */
+  private final Map<String, long[]> orderings = new LinkedHashMap<>();
+
+  public ResultSnapshot(String id, String owner, String rootEntity, Class<?> entityClass,
+                        List<FilterSortDto> sort, long[] ids) {
+    this.id = id;
+    this.owner = owner;
+    this.rootEntity = rootEntity;
+    this.entityClass = entityClass;
+    this.sort = sort != null ? sort : List.of();
+    this.ids = ids;
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public void touch() {
+    lastAccess = Instant.now();
+  }
+
+  public boolean isExpired(Duration ttl) {
+    return lastAccess.plus(ttl).isBefore(Instant.now());
+  }
+
+  /**
+   * id в порядке {@code sort}; пустая сортировка или сортировка запроса — исходный порядок.
+   * Пересортировка — запрос к БД, поэтому идёт вне монитора: одновременные запросы одной
+   * сортировки посчитают её каждый, а в снимке останется первый результат.
+   * @param sorter пересортировка всех id снимка, если этой сортировки ещё нет
+   */
+  public long[] ordered(List<FilterSortDto> sort, Supplier<long[]> sorter) {
+    if (sort == null || sort.isEmpty() || key(sort).equals(key(this.sort))) return ids;
+    String key = key(sort);
+    synchronized (orderings) {
+      long[] cached = orderings.get(key);
+      if (cached != null) return cached;
+    }
+    long[] ordered = sorter.get();
+    synchronized (orderings) {
+      long[] existing = orderings.putIfAbsent(key, ordered);
+      if (existing != null) return existing;
+      if (orderings.size() > MAX_ORDERINGS) orderings.remove(orderings.keySet().iterator().next());
+      return ordered;
+    }
+  }
+
+  private static String key(List<FilterSortDto> sort) {
+    StringBuilder key = new StringBuilder();
+    for (FilterSortDto s : sort) {
+      key.append(s.getField()).append(' ').append("DESC".equalsIgnoreCase(s.getDirection()) ? "DESC" : "ASC").append(',');
+    }
+    return key.toString();
+  }
+}
\ No newline at end of file
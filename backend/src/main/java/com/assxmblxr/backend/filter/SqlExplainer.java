@@ -0,0 +1,77 @@
+package com.assxmblxr.backend.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Переводит criteria-запрос в SQL тем же путём, что и Hibernate при выполнении
+ * (включая LIMIT/OFFSET, см. {@link HibernateSqlRenderer}), и получает его план через {@code EXPLAIN (FORMAT JSON)}
+ * с теми же значениями параметров. С ANALYZE запрос действительно выполняется.
+ * Нужна открытая транзакция.
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlExplainer {
+
+  private final EntityManager em;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * SQL запроса, значения его параметров по порядку и корневой узел плана.
+   * {@code executionTimeMs} есть только у плана, полученного с ANALYZE.
+   */
+  public record Plan(String sql, List<Object> parameters, double totalCost, double rows,
+                     Double executionTimeMs, JsonNode root) {
+
+    /** Индексы, к которым обращается план */
+    public Set<String> indexes() {
+      Set<String> names = new LinkedHashSet<>();
+      collectIndexes(root, names);
+      return names;
+    }
+
+    private static void collectIndexes(JsonNode node, Set<String> names) {
+      if (node.hasNonNull("Index Name")) names.add(node.get("Index Name").asText());
+      for (JsonNode child : node.path("Plans")) collectIndexes(child, names);
+    }
+  }
+
+  public Plan explain(TypedQuery<?> query) {
+    return explain(query, false);
+  }
+
+  public Plan explain(TypedQuery<?> query, boolean analyze) {
+    SessionImplementor session = em.unwrap(SessionImplementor.class);
+    HibernateSqlRenderer.Rendered rendered = HibernateSqlRenderer.render(query, session);
+
+    String explain = analyze ? "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " : "EXPLAIN (FORMAT JSON) ";
+    JsonNode result = session.doReturningWork(connection -> {
+      try (PreparedStatement ps = connection.prepareStatement(explain + rendered.sql())) {
+        rendered.bind(ps);
+        try (ResultSet rs = ps.executeQuery()) {
+          rs.next();
+          return objectMapper.readTree(rs.getString(1)).get(0);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    });
+    JsonNode root = result.get("Plan");
+    Double executionTimeMs = result.hasNonNull("Execution Time") ? result.get("Execution Time").asDouble() : null;
+    return new Plan(rendered.sql(), rendered.parameters(), root.path("Total Cost").asDouble(),
+            root.path("Plan Rows").asDouble(), executionTimeMs, root);
+  }
+}
\ No newline at end of file
@@ -1,41 +1,110 @@
 package com.assxmblxr.backend.filter;
 
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
 import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.*;
+import java.lang.reflect.Field;
 import java.util.*;
 
+/**
+ * Разворачивает путь вида {@code student.group.name} в join-ы от корня. Обязательная связь
+ * «к одному» соединяется INNER JOIN, необязательная — LEFT JOIN, чтобы строка без связи
+ * не выпадала из-под OR и NOT; после первого LEFT JOIN вся оставшаяся цепочка тоже LEFT.
+ * Пути через коллекции здесь не разворачиваются в основной запрос — парсер выносит их в EXISTS.
+ */
 public class UniversalPathResolver {
 
   private final Root<?> root;
+  private final boolean innerOnly;
   private final Map<String, Join<?, ?>> joinCache = new LinkedHashMap<>();
+  /** Сущности, в таблицы которых заходят развёрнутые пути */
+  private final Set<Class<?>> touched = new LinkedHashSet<>();
 
   public UniversalPathResolver(Root<?> root) {
+    this(root, false);
+  }
+
+  /**
+   * @param innerOnly соединять всё INNER JOIN — для путей внутри EXISTS, где строка
+   *                  без связанной записи подойти всё равно не может
+   */
+  public UniversalPathResolver(Root<?> root, boolean innerOnly) {
     this.root = root;
+    this.innerOnly = innerOnly;
   }
 
-  @SuppressWarnings({"rawtypes"})
   public Path<?> resolve(String fieldPath) {
     String[] segments = fieldPath.split("\\.");
 
-    if (segments.length == 1) {
-      return root.get(segments[0]);
+    From<?, ?> from = root;
+    ManagedType<?> type = root.getModel();
+    String joinKey = "";
+    boolean outer = false;
+    for (int i = 0; i < segments.length - 1; i++) {
+      Attribute<?, ?> attribute = type.getAttribute(segments[i]);
+      outer |= !innerOnly && !mandatory(attribute);
+      JoinType joinType = outer ? JoinType.LEFT : JoinType.INNER;
+      joinKey = joinKey.isEmpty() ? segments[i] : joinKey + "." + segments[i];
+      From<?, ?> parent = from;
+      from = joinCache.computeIfAbsent(joinKey, k -> parent.join(attribute.getName(), joinType));
+      type = target(attribute);
+      touched.add(type.getJavaType());
     }
 
-    String joinKey = "";
+    return from.get(segments[segments.length - 1]);
+  }
+
+  /**
+   * Начало пути до первой коллекции (связи «ко многим») включительно, например {@code subjects}
+   * для {@code subjects.name}; null, если путь через коллекции не проходит.
+   */
+  public String collectionPrefix(String fieldPath) {
+    String[] segments = fieldPath.split("\\.");
+    ManagedType<?> type = root.getModel();
     for (int i = 0; i < segments.length - 1; i++) {
-      String segment = segments[i];
-      String parentKey = joinKey;
-      joinKey = joinKey.isEmpty() ? segment : joinKey + "." + segment;
-      String currentKey = joinKey;
-
-      joinCache.computeIfAbsent(currentKey, k -> {
-        if (parentKey.isEmpty()) {
-          return root.join(segment, JoinType.LEFT);
-        }
-        Join<?, ?> parentJoin = joinCache.get(parentKey);
-        return ((Join) parentJoin).join(segment, JoinType.LEFT);
-      });
+      Attribute<?, ?> attribute = type.getAttribute(segments[i]);
+      if (attribute.isCollection()) return String.join(".", Arrays.copyOfRange(segments, 0, i + 1));
+      type = target(attribute);
     }
+    return null;
+  }
+
+  /**
+   * Путь без явных join: каждый сегмент берётся через get. Для id связи «к одному»
+   * Hibernate подставляет внешний ключ корневой таблицы, так что лишнего join нет.
+   */
+  public Path<?> resolveAttribute(String fieldPath) {
+    Path<?> path = root;
+    for (String segment : fieldPath.split("\\.")) {
+      path = path.get(segment);
+    }
+    return path;
+  }
+
+  /** Сущности, соединённые путями, которые разворачивал этот резолвер; корень не входит */
+  public Set<Class<?>> touched() {
+    return touched;
+  }
+
+  private static ManagedType<?> target(Attribute<?, ?> attribute) {
+    Type<?> type = attribute.isCollection()
+            ? ((PluralAttribute<?, ?, ?>) attribute).getElementType()
+            : ((SingularAttribute<?, ?>) attribute).getType();
+    if (!(type instanceof ManagedType<?> managed))
+      throw new IllegalArgumentException("Not an association: " + attribute.getName());
+    return managed;
+  }
 
-    return joinCache.get(joinKey).get(segments[segments.length - 1]);
+  /** Связь, внешний ключ которой не бывает NULL */
+  private static boolean mandatory(Attribute<?, ?> attribute) {
+    if (attribute.isCollection() || !(attribute.getJavaMember() instanceof Field field)) return false;
+    ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+    OneToOne oneToOne = field.getAnnotation(OneToOne.class);
+    JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+    return (manyToOne != null && !manyToOne.optional())
+            || (oneToOne != null && !oneToOne.optional())
+            || (joinColumn != null && !joinColumn.nullable());
   }
 }
\ No newline at end of file
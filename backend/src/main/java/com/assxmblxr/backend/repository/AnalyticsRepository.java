@@ -0,0 +1,229 @@
+package com.assxmblxr.backend.repository;
+
+import com.assxmblxr.backend.analytics.GradeCube.SubjectTotal;
+import com.assxmblxr.backend.entity.StudentRisk;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Аналитические запросы по оценкам. Всё считается в PostgreSQL агрегатными функциями
+ * (percentile_cont, width_bucket) — сущности Grade в память не загружаются.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AnalyticsRepository {
+  /** Перцентили, которые возвращает сводка; порядок совпадает с массивом в запросе */
+  public static final double[] PERCENTILES = {0.1, 0.25, 0.5, 0.75, 0.9};
+  private static final String PERCENTILE_LIST = Arrays.stream(PERCENTILES)
+          .mapToObj(Double::toString).collect(Collectors.joining(", "));
+
+  private static final String FROM = " FROM grades g JOIN students s ON s.id = g.student_id";
+
+  private final NamedParameterJdbcTemplate jdbc;
+
+  /**
+   * Срез оценок: любое сочетание учащегося, группы, предмета и диапазона дат.
+   * Пустые поля не ограничивают выборку.
+   */
+  public record Criteria(Long studentId, Long groupId, Long subjectId, LocalDate from, LocalDate to) {
+
+    String where(MapSqlParameterSource params) {
+      return where(params, "g", "grade_date");
+    }
+
+    /** Условие для таблицы с псевдонимом alias, присоединённой к students s; даты — по dateColumn */
+    String where(MapSqlParameterSource params, String alias, String dateColumn) {
+      StringBuilder sql = new StringBuilder(" WHERE 1 = 1");
+      String date = alias + "." + dateColumn;
+      if (studentId != null) { sql.append(" AND ").append(alias).append(".student_id = :studentId"); params.addValue("studentId", studentId); }
+      if (groupId != null)   { sql.append(" AND s.group_id = :groupId"); params.addValue("groupId", groupId); }
+      if (subjectId != null) { sql.append(" AND ").append(alias).append(".subject_id = :subjectId"); params.addValue("subjectId", subjectId); }
+      if (from != null)      { sql.append(" AND ").append(date).append(" >= :from"); params.addValue("from", from); }
+      if (to != null)        { sql.append(" AND ").append(date).append(" <= :to"); params.addValue("to", to); }
+      return sql.toString();
+    }
+  }
+
+  public record Summary(long count, Double average, Double stddev, Integer min, Integer max, double[] percentiles) {}
+
+  public record WorkTypeRow(String workType, long count, Double average, Double median) {}
+
+  /** Суммы за период: по ним считаются и средние за период, и скользящие средние */
+  public record PeriodAggregate(LocalDate periodStart, long gradeCount, long gradeSum,
+                                long attendanceCount, long attendancePresent) {}
+
+  /** Количество, среднее, разброс и перцентили оценок среза */
+  public Summary summary(Criteria criteria) {
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    String sql = "SELECT count(*) AS cnt, avg(g.grade) AS avg, stddev_samp(g.grade) AS sd," +
+            " min(g.grade) AS min, max(g.grade) AS max," +
+            " percentile_cont(ARRAY[" + PERCENTILE_LIST + "]) WITHIN GROUP (ORDER BY g.grade) AS pct" +
+            FROM + criteria.where(params);
+    return jdbc.queryForObject(sql, params, (rs, i) -> new Summary(
+            rs.getLong("cnt"),
+            nullableDouble(rs, "avg"),
+            nullableDouble(rs, "sd"),
+            (Integer) rs.getObject("min"),
+            (Integer) rs.getObject("max"),
+            doubles(rs.getArray("pct"))));
+  }
+
+  /**
+   * Гистограмма по корзинам 0–10: элемент i — число оценок i.
+   * width_bucket(grade, 0, 11, 11) даёт корзины 1..11 шириной в один балл.
+   */
+  public long[] histogram(Criteria criteria) {
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    String sql = "SELECT width_bucket(g.grade, 0, 11, 11) AS bucket, count(*) AS cnt" +
+            FROM + criteria.where(params) + " GROUP BY bucket";
+    long[] buckets = new long[11];
+    jdbc.query(sql, params, rs -> {
+      int bucket = rs.getInt("bucket");
+      if (bucket >= 1 && bucket <= 11) buckets[bucket - 1] = rs.getLong("cnt");
+    });
+    return buckets;
+  }
+
+  /** Количество, среднее и медиана по видам работ; оценки без вида работы — отдельной строкой */
+  public List<WorkTypeRow> byWorkType(Criteria criteria) {
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    String sql = "SELECT g.work_type, count(*) AS cnt, avg(g.grade) AS avg," +
+            " percentile_cont(0.5) WITHIN GROUP (ORDER BY g.grade) AS median" +
+            FROM + criteria.where(params) + " GROUP BY g.work_type ORDER BY g.work_type NULLS LAST";
+    return jdbc.query(sql, params, (rs, i) -> new WorkTypeRow(
+            rs.getString("work_type"),
+            rs.getLong("cnt"),
+            nullableDouble(rs, "avg"),
+            nullableDouble(rs, "median")));
+  }
+
+  /** Количество и сумма оценок среза по предметам */
+  public List<SubjectTotal> subjectTotals(Criteria criteria) {
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    String sql = "SELECT g.subject_id, count(*) AS cnt, sum(g.grade) AS total" +
+            FROM + criteria.where(params) + " GROUP BY g.subject_id";
+    return jdbc.query(sql, params, (rs, i) -> new SubjectTotal(
+            rs.getLong("subject_id"), rs.getLong("cnt"), rs.getLong("total")));
+  }
+
+  /**
+   * Оценки и посещаемость среза, сгруппированные по началу недели или месяца (date_trunc).
+   * Присутствием считаются статусы PRESENT и LATE. Периоды без данных не возвращаются.
+   * @param unit "week" или "month" — подставляется в SQL как литерал, поэтому только из whitelist
+   */
+  public List<PeriodAggregate> periodAggregates(Criteria criteria, String unit) {
+    if (!unit.equals("week") && !unit.equals("month")) throw new IllegalArgumentException("Unknown period: " + unit);
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    String sql = "WITH gr AS (" +
+            "  SELECT date_trunc('" + unit + "', g.grade_date::timestamp)::date AS period," +
+            "         count(*) AS cnt, sum(g.grade) AS total" +
+            FROM + criteria.where(params) + " AND g.grade_date IS NOT NULL GROUP BY 1)," +
+            " att AS (" +
+            "  SELECT date_trunc('" + unit + "', a.attendance_date::timestamp)::date AS period, count(*) AS cnt," +
+            "         count(*) FILTER (WHERE a.status IN ('PRESENT', 'LATE')) AS present" +
+            "  FROM attendance a JOIN students s ON s.id = a.student_id" +
+            criteria.where(params, "a", "attendance_date") + " GROUP BY 1)" +
+            " SELECT coalesce(gr.period, att.period) AS period," +
+            "        coalesce(gr.cnt, 0) AS grade_cnt, coalesce(gr.total, 0) AS grade_sum," +
+            "        coalesce(att.cnt, 0) AS att_cnt, coalesce(att.present, 0) AS att_present" +
+            " FROM gr FULL JOIN att ON att.period = gr.period ORDER BY 1";
+    return jdbc.query(sql, params, (rs, i) -> new PeriodAggregate(
+            rs.getObject("period", LocalDate.class),
+            rs.getLong("grade_cnt"),
+            rs.getLong("grade_sum"),
+            rs.getLong("att_cnt"),
+            rs.getLong("att_present")));
+  }
+
+  /** Исходные данные для статуса риска одного учащегося */
+  public record RiskInput(long studentId, Long groupId, Double average, long badGrades, long totalGrades,
+                          long absences, long lates, long attendanceTotal) {}
+
+  /**
+   * Агрегаты оценок и посещаемости по учащимся — одним проходом по каждой таблице.
+   * @param studentIds только эти учащиеся; null — все
+   */
+  public List<RiskInput> riskInputs(Collection<Long> studentIds) {
+    MapSqlParameterSource params = new MapSqlParameterSource();
+    String gradeFilter = "", attendanceFilter = "", studentFilter = "";
+    if (studentIds != null) {
+      params.addValue("ids", studentIds);
+      gradeFilter = " WHERE student_id IN (:ids)";
+      attendanceFilter = " WHERE student_id IN (:ids)";
+      studentFilter = " WHERE s.id IN (:ids)";
+    }
+    String sql = "SELECT s.id, s.group_id, g.avg, coalesce(g.bad, 0) AS bad, coalesce(g.cnt, 0) AS grade_cnt," +
+            "       coalesce(a.absences, 0) AS absences, coalesce(a.lates, 0) AS lates, coalesce(a.cnt, 0) AS att_cnt" +
+            " FROM students s" +
+            " LEFT JOIN (SELECT student_id, avg(grade) AS avg, count(*) FILTER (WHERE grade < 5) AS bad, count(*) AS cnt" +
+            "            FROM grades" + gradeFilter + " GROUP BY student_id) g ON g.student_id = s.id" +
+            " LEFT JOIN (SELECT student_id, count(*) FILTER (WHERE status IN ('ABSENT', 'EXCUSED')) AS absences," +
+            "                   count(*) FILTER (WHERE status = 'LATE') AS lates, count(*) AS cnt" +
+            "            FROM attendance" + attendanceFilter + " GROUP BY student_id) a ON a.student_id = s.id" +
+            studentFilter;
+    return jdbc.query(sql, params, (rs, i) -> new RiskInput(
+            rs.getLong("id"),
+            (Long) rs.getObject("group_id"),
+            nullableDouble(rs, "avg"),
+            rs.getLong("bad"),
+            rs.getLong("grade_cnt"),
+            rs.getLong("absences"),
+            rs.getLong("lates"),
+            rs.getLong("att_cnt")));
+  }
+
+  /**
+   * Вставляет или обновляет статусы риска пакетом. Учащиеся, удалённые после чтения
+   * агрегатов, пропускаются (строка для них уже удалена каскадом).
+   */
+  public void upsertRisks(List<StudentRisk> risks) {
+    String sql = "INSERT INTO student_risk (student_id, group_id, risk_level, severity, average, bad_grades," +
+            " total_grades, absences, lates, attendance_total, computed_at)" +
+            " SELECT :studentId, :groupId, :riskLevel, :severity, :average, :badGrades, :totalGrades," +
+            "        :absences, :lates, :attendanceTotal, :computedAt" +
+            " WHERE EXISTS (SELECT 1 FROM students WHERE id = :studentId)" +
+            " ON CONFLICT (student_id) DO UPDATE SET group_id = EXCLUDED.group_id, risk_level = EXCLUDED.risk_level," +
+            " severity = EXCLUDED.severity, average = EXCLUDED.average, bad_grades = EXCLUDED.bad_grades," +
+            " total_grades = EXCLUDED.total_grades, absences = EXCLUDED.absences, lates = EXCLUDED.lates," +
+            " attendance_total = EXCLUDED.attendance_total, computed_at = EXCLUDED.computed_at";
+    MapSqlParameterSource[] batch = risks.stream().map(r -> new MapSqlParameterSource()
+            .addValue("studentId", r.getStudentId())
+            .addValue("groupId", r.getGroupId(), Types.BIGINT)
+            .addValue("riskLevel", r.getRiskLevel().name())
+            .addValue("severity", r.getSeverity())
+            .addValue("average", r.getAverage(), Types.DOUBLE)
+            .addValue("badGrades", r.getBadGrades())
+            .addValue("totalGrades", r.getTotalGrades())
+            .addValue("absences", r.getAbsences())
+            .addValue("lates", r.getLates())
+            .addValue("attendanceTotal", r.getAttendanceTotal())
+            .addValue("computedAt", r.getComputedAt())).toArray(MapSqlParameterSource[]::new);
+    jdbc.batchUpdate(sql, batch);
+  }
+
+  private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+    double value = rs.getDouble(column);
+    return rs.wasNull() ? null : value;
+  }
+
+  /** NULL вместо массива (пустой срез) — пустой массив */
+  private static double[] doubles(Array array) throws SQLException {
+    if (array == null) return new double[0];
+    Object[] values = (Object[]) array.getArray();
+    double[] result = new double[values.length];
+    for (int i = 0; i < values.length; i++) result[i] = ((Number) values[i]).doubleValue();
+    return result;
+  }
+}
\ No newline at end of file
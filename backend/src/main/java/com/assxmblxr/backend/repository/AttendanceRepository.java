@@ -1,16 +1,22 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.dto.DataVersion;
 import com.assxmblxr.backend.entity.Attendance;
 import com.assxmblxr.backend.entity.AttendanceStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
@@ -32,4 +38,28 @@ public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
 
   @Query("SELECT a FROM Attendance a WHERE a.student.group.id = :groupId AND a.attendanceDate = :date")
   List<Attendance> findByGroupAndDate(@Param("groupId") Long groupId, @Param("date") LocalDate date);
+
+  /** Посещаемость журнала группы по предмету за период: [id, studentId, attendanceDate, status, version] */
+  @Query("SELECT a.id, a.student.id, a.attendanceDate, a.status, a.version FROM Attendance a " +
+          "WHERE a.student.group.id = :groupId AND a.subject.id = :subjectId AND a.attendanceDate BETWEEN :from AND :to")
+  List<Object[]> findJournalCells(@Param("groupId") Long groupId, @Param("subjectId") Long subjectId,
+                                  @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+  /** Скалярные колонки для индекса посещаемости: [id, studentId, subjectId, attendanceDate, status] */
+  @Query("SELECT a.id, a.student.id, a.subject.id, a.attendanceDate, a.status FROM Attendance a")
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  Stream<Object[]> streamIndexRows();
+
+  @Query("SELECT a.id, a.student.id, a.subject.id, a.attendanceDate, a.status FROM Attendance a WHERE a.id = :id")
+  List<Object[]> findIndexRow(@Param("id") Long id);
+
+  /** Учащиеся с записями в указанных статусах и датах: [studentId, count] */
+  @Query("SELECT a.student.id, COUNT(a) FROM Attendance a WHERE a.status IN :statuses AND a.attendanceDate IN :dates " +
+          "AND (:groupId IS NULL OR a.student.group.id = :groupId) GROUP BY a.student.id")
+  List<Object[]> countByStudentWith(@Param("statuses") Collection<AttendanceStatus> statuses,
+                                    @Param("dates") Collection<LocalDate> dates,
+                                    @Param("groupId") Long groupId);
+
+  @Query("SELECT new com.assxmblxr.backend.dto.DataVersion(COUNT(a), COALESCE(MAX(a.id), 0L), COALESCE(SUM(a.version), 0L)) FROM Attendance a")
+  DataVersion dataVersion();
 }
\ No newline at end of file
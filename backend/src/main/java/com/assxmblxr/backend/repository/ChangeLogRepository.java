@@ -0,0 +1,38 @@
+package com.assxmblxr.backend.repository;
+
+import com.assxmblxr.backend.entity.ChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+  /** Записи транзакций с номерами из [from, to) в порядке транзакций */
+  List<ChangeLogEntry> findByTxIdGreaterThanEqualAndTxIdLessThanOrderByTxIdAscIdAsc(Long from, Long to,
+                                                                                     Pageable pageable);
+
+  List<ChangeLogEntry> findByTxIdOrderByIdAsc(Long txId);
+
+  /**
+   * Граница завершённых транзакций: все транзакции с меньшим номером закоммичены
+   * или откатились, их записи уже видны и новых не появится.
+   */
+  @Query(value = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", nativeQuery = true)
+  long findTxHorizon();
+
+  @Query("SELECT MIN(c.id) FROM ChangeLogEntry c")
+  Long findMinId();
+
+  @Query("SELECT MIN(c.txId) FROM ChangeLogEntry c")
+  Long findMinTxId();
+
+  /** Удаляет старые записи, всегда оставляя последнюю — по ней клиенты определяют, что журнал урезан */
+  @Modifying
+  @Query("DELETE FROM ChangeLogEntry c WHERE c.changedAt < :before " +
+          "AND c.id < (SELECT MAX(c2.id) FROM ChangeLogEntry c2)")
+  int purgeOlderThan(@Param("before") LocalDateTime before);
+}
@@ -1,43 +1,363 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.components.ChangeTracker;
+import com.assxmblxr.backend.dto.FilterAggregateDto;
 import com.assxmblxr.backend.dto.FilterBlockDto;
+import com.assxmblxr.backend.dto.FilterExecuteRequest;
+import com.assxmblxr.backend.dto.FilterSortDto;
+import com.assxmblxr.backend.exceptions.QueryCostException;
+import com.assxmblxr.backend.filter.CompiledFilter;
+import com.assxmblxr.backend.filter.EntityFlattener;
+import com.assxmblxr.backend.filter.EntityRegistry;
+import com.assxmblxr.backend.filter.FilterCostGuard;
+import com.assxmblxr.backend.filter.FilterFunctions;
 import com.assxmblxr.backend.filter.GenericFilterParser;
+import com.assxmblxr.backend.filter.SqlExplainer;
 import jakarta.persistence.*;
 import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.*;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+import org.hibernate.query.sqm.tree.SqmCopyContext;
+import org.hibernate.query.sqm.tree.select.SqmSelectStatement;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class GenericFilterRepository {
+  /** Размер порции id в IN-списке и при чтении id курсором */
+  private static final int ID_BATCH = 1_000;
 
   private final EntityManager em;
+  private final FilterCostGuard costGuard;
+  private final SqlExplainer explainer;
 
+  /**
+   * Страница подходящих сущностей в порядке {@code sort}, дополненном id, — страницы
+   * не пересекаются и не теряют строк между запросами.
+   */
+  @Transactional(readOnly = true)
   @SuppressWarnings("unchecked")
   public Page<Object> filter(Class<?> entityClass,
                              List<FilterBlockDto> blocks,
+                             List<FilterSortDto> sort,
                              Pageable pageable) {
+    CompiledFilter compiled = compileFilter(entityClass, blocks, sort);
+    List<Object> rows = (List<Object>) guarded(page(query(compiled.data(), Map.of()), pageable));
+    Long total = guarded(query(compiled.count(), Map.of())).get(0);
+    return new PageImpl<>(rows, pageable, total);
+  }
+
+  /**
+   * Агрегатный запрос: строки фильтруются блоками, группируются по {@code groupBy},
+   * агрегаты и HAVING считаются в БД. Строка результата — столбцы группировки по путям
+   * и агрегаты по псевдонимам. Число групп считается отдельным запросом поверх группировки.
+   */
+  @Transactional(readOnly = true)
+  public Page<Map<String, Object>> aggregate(Class<?> entityClass, FilterExecuteRequest request, Pageable pageable) {
+    return execute(compileAggregate(entityClass, request), Map.of(), pageable);
+  }
+
+  /**
+   * Разбирает и проверяет программу фильтра, не выполняя её. Результат не привязан
+   * к сессии и выполняется через {@link #execute} сколько угодно раз.
+   */
+  public CompiledFilter compile(Class<?> entityClass, FilterExecuteRequest request) {
+    return request.isAggregate()
+            ? compileAggregate(entityClass, request)
+            : compileFilter(entityClass, request.getBlocks() != null ? request.getBlocks() : List.of(), request.getSort());
+  }
+
+  /**
+   * Страница результата скомпилированного фильтра со значениями параметров. Сущности
+   * возвращаются уже в плоском виде: ленивые связи читаются, пока транзакция открыта.
+   */
+  @Transactional(readOnly = true)
+  public Page<Map<String, Object>> execute(CompiledFilter compiled, Map<String, Object> parameters,
+                                           Pageable pageable) {
+    List<?> rows = guarded(page(query(compiled.data(), parameters), pageable));
+    List<String> names = compiled.columns();
+    List<Map<String, Object>> content = compiled.aggregate()
+            ? rows.stream().map(row -> {
+                Tuple tuple = (Tuple) row;
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < names.size(); i++) map.put(names.get(i), tuple.get(i));
+                return map;
+              }).toList()
+            : rows.stream().map(EntityFlattener::flatten).toList();
+
+    long total = compiled.count() == null ? 1 : guarded(query(compiled.count(), parameters)).get(0);
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  /**
+   * Планы тех же запросов, что выполнили бы {@link #filter} или {@link #aggregate}: сначала
+   * запрос данных, затем подсчёт строк. С {@code analyze} запросы выполняются под EXPLAIN ANALYZE,
+   * поэтому сначала проходят {@link FilterCostGuard}, как при обычном выполнении.
+   */
+  @Transactional(readOnly = true)
+  public List<SqlExplainer.Plan> explain(Class<?> entityClass, FilterExecuteRequest request, Pageable pageable,
+                                         boolean analyze) {
+    CompiledFilter compiled = compile(entityClass, request);
+    List<TypedQuery<?>> queries = new ArrayList<>();
+    queries.add(page(query(compiled.data(), Map.of()), pageable));
+    if (compiled.count() != null) queries.add(query(compiled.count(), Map.of()));
+
+    List<SqlExplainer.Plan> plans = new ArrayList<>();
+    for (TypedQuery<?> query : queries) {
+      if (!analyze) {
+        plans.add(explainer.explain(query));
+        continue;
+      }
+      FilterCostGuard.Admission admission = costGuard.admit(query);
+      try {
+        plans.add(explainer.explain(query, true));
+      } finally {
+        admission.close();
+      }
+    }
+    return plans;
+  }
+
+  /**
+   * Допуск для {@link #scroll} с теми же аргументами. Вызывается до начала выгрузки, чтобы
+   * отказ успел стать кодом ответа; разрешение закрывается, когда обход закончен.
+   * @throws QueryCostException запрос слишком дорогой или очередь тяжёлых запросов занята
+   */
+  @Transactional(readOnly = true)
+  public FilterCostGuard.Admission admitScroll(Class<?> entityClass, List<FilterBlockDto> blocks,
+                                              List<FilterSortDto> sort, int batchSize) {
+    return costGuard.reserve(scrollQuery(entityClass, blocks, sort, batchSize));
+  }
+
+  /**
+   * Обходит все подходящие сущности курсором, не загружая результат целиком.
+   * Каждые {@code batchSize} строк контекст персистентности очищается, поэтому
+   * обработчик должен сразу извлекать из сущности всё нужное. Нужна открытая транзакция;
+   * допуск запроса — {@link #admitScroll}, здесь ставится только statement_timeout.
+   */
+  public void scroll(Class<?> entityClass, List<FilterBlockDto> blocks, List<FilterSortDto> sort,
+                     int batchSize, Consumer<Object> handler) {
+    TypedQuery<Object> query = scrollQuery(entityClass, blocks, sort, batchSize);
+    costGuard.limitTime();
+    try (Stream<Object> rows = query.getResultStream()) {
+      int[] n = {0};
+      rows.forEach(row -> {
+        handler.accept(row);
+        if (++n[0] % batchSize == 0) em.clear();
+      });
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private TypedQuery<Object> scrollQuery(Class<?> entityClass, List<FilterBlockDto> blocks, List<FilterSortDto> sort,
+                                         int batchSize) {
+    return (TypedQuery<Object>) query(compileFilter(entityClass, blocks, sort).data(), Map.of())
+            .setHint(HibernateHints.HINT_FETCH_SIZE, batchSize)
+            .setHint(HibernateHints.HINT_READ_ONLY, true);
+  }
+
+  // ── снимки результата ─────────────────────────────────────────────────────
+
+  /**
+   * id подходящих сущностей в порядке {@code sort}, дополненном id, — содержимое
+   * {@link com.assxmblxr.backend.filter.ResultSnapshot}. Читается только столбец id.
+   * @throws QueryCostException если строк больше {@code maxRows}
+   */
+  @Transactional(readOnly = true)
+  public long[] matchingIds(Class<?> entityClass, List<FilterBlockDto> blocks, List<FilterSortDto> sort, int maxRows) {
     CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Long> q = cb.createQuery(Long.class);
+    Root<?> root = q.from(entityClass);
+    GenericFilterParser parser = new GenericFilterParser(cb, q, root);
+    Predicate pred = parser.parse(blocks != null ? blocks : List.of());
+    q.select(root.get("id")).where(pred).orderBy(parser.orderBy(sort));
 
-    CriteriaQuery<Object> dataQ = (CriteriaQuery<Object>) cb.createQuery(entityClass);
-    Root<?> dataRoot = dataQ.from(entityClass);
-    Predicate dataPred = new GenericFilterParser(cb, dataQ, dataRoot).parse(blocks);
-    dataQ.select((Selection<? extends Object>) dataRoot).where(dataPred);
+    TypedQuery<Long> query = query(q, Map.of())
+            .setMaxResults(maxRows + 1)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, ID_BATCH);
+    long[] ids = new long[1024];
+    int n = 0;
+    FilterCostGuard.Admission admission = costGuard.admit(query);
+    try (Stream<Long> rows = query.getResultStream()) {
+      for (Iterator<Long> it = rows.iterator(); it.hasNext(); ) {
+        if (n == maxRows) throw new QueryCostException("Result exceeds " + maxRows + " rows, narrow the filter", false);
+        if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+        ids[n++] = it.next();
+      }
+    } finally {
+      admission.close();
+    }
+    return Arrays.copyOf(ids, n);
+  }
+
+  /**
+   * Те же id в порядке {@code sort}, дополненном id, — одним запросом {@code WHERE id = ANY(?)
+   * ORDER BY ...}, так что NULL и строки упорядочиваются базой так же, как в запросе фильтра.
+   * Запрос проходит {@link FilterCostGuard}; строк, удалённых после снимка, в ответе нет.
+   */
+  @Transactional(readOnly = true)
+  public long[] orderedIds(Class<?> entityClass, List<FilterSortDto> sort, long[] ids) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Long> q = cb.createQuery(Long.class);
+    Root<?> root = q.from(entityClass);
+    GenericFilterParser parser = new GenericFilterParser(cb, q, root);
+    ParameterExpression<Long[]> idArray = cb.parameter(Long[].class, "ids");
+    q.select(root.get("id"))
+            .where(cb.equal(root.get("id"), cb.function(FilterFunctions.ID_ANY, Long.class, idArray)))
+            .orderBy(parser.orderBy(sort));
+
+    TypedQuery<Long> query = em.createQuery(q)
+            .setParameter(idArray, Arrays.stream(ids).boxed().toArray(Long[]::new))
+            .setHint(HibernateHints.HINT_FETCH_SIZE, ID_BATCH);
+    long[] ordered = new long[ids.length];
+    int n = 0;
+    FilterCostGuard.Admission admission = costGuard.admit(query);
+    try (Stream<Long> rows = query.getResultStream()) {
+      for (Iterator<Long> it = rows.iterator(); it.hasNext() && n < ordered.length; ) ordered[n++] = it.next();
+    } finally {
+      admission.close();
+    }
+    return n == ordered.length ? ordered : Arrays.copyOf(ordered, n);
+  }
+
+  /**
+   * Сущности с id из {@code ids[from, to)} в плоском виде и в том же порядке. Сущности,
+   * удалённые с тех пор, пропускаются.
+   */
+  @Transactional(readOnly = true)
+  @SuppressWarnings("unchecked")
+  public List<Map<String, Object>> rowsByIds(Class<?> entityClass, long[] ids, int from, int to) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+    List<Map<String, Object>> rows = new ArrayList<>(to - from);
+    for (int start = from; start < to; start += ID_BATCH) {
+      List<Long> batch = idList(ids, start, Math.min(to, start + ID_BATCH));
+      CriteriaQuery<Object> q = (CriteriaQuery<Object>) cb.createQuery(entityClass);
+      Root<?> root = q.from(entityClass);
+      q.select(root).where(root.get("id").in(batch));
+
+      Map<Object, Object> byId = new HashMap<>();
+      for (Object entity : em.createQuery(q).getResultList()) byId.put(util.getIdentifier(entity), entity);
+      for (Long id : batch) {
+        Object entity = byId.get(id);
+        if (entity != null) rows.add(EntityFlattener.flatten(entity));
+      }
+      em.clear();
+    }
+    return rows;
+  }
+
+  // ── построение запросов ───────────────────────────────────────────────────
+
+  @SuppressWarnings("unchecked")
+  private CompiledFilter compileFilter(Class<?> entityClass, List<FilterBlockDto> blocks, List<FilterSortDto> sort) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
 
-    List<Object> rows = em.createQuery(dataQ)
-            .setFirstResult((int) pageable.getOffset())
-            .setMaxResults(pageable.getPageSize())
-            .getResultList();
+    CriteriaQuery<?> dataQ = cb.createQuery(entityClass);
+    Root<?> dataRoot = dataQ.from(entityClass);
+    GenericFilterParser dataParser = new GenericFilterParser(cb, dataQ, dataRoot);
+    Predicate dataPred = dataParser.parse(blocks);
+    ((CriteriaQuery<Object>) dataQ).select(dataRoot).where(dataPred).orderBy(dataParser.orderBy(sort));
 
     CriteriaQuery<Long> countQ = cb.createQuery(Long.class);
     Root<?> countRoot = countQ.from(entityClass);
     Predicate countPred = new GenericFilterParser(cb, countQ, countRoot).parse(blocks);
-    countQ.select(cb.countDistinct(countRoot)).where(countPred);
-    Long total = em.createQuery(countQ).getSingleResult();
+    countQ.select(cb.count(countRoot)).where(countPred);
 
-    return new PageImpl<>(rows, pageable, total);
+    // плоский вид сущности читает все связи, достижимые от корня
+    Set<Class<?>> touched = dataParser.touchedEntities();
+    reachable(dataRoot.getModel(), touched);
+    return new CompiledFilter(entityClass, false, dataQ, countQ, List.of(), dataParser.parameterTypes(),
+            Set.copyOf(ChangeTracker.withSources(touched)));
+  }
+
+  private CompiledFilter compileAggregate(Class<?> entityClass, FilterExecuteRequest request) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaQuery<Tuple> q = cb.createTupleQuery();
+    Root<?> root = q.from(entityClass);
+    GenericFilterParser parser = new GenericFilterParser(cb, q, root);
+    Predicate where = parser.parse(request.getBlocks() != null ? request.getBlocks() : List.of());
+
+    Map<String, Expression<?>> columns = new LinkedHashMap<>();
+    List<Expression<?>> groups = new ArrayList<>();
+    for (String path : Optional.ofNullable(request.getGroupBy()).orElse(List.of())) {
+      Expression<?> group = parser.groupingPath(path);
+      groups.add(group);
+      addColumn(columns, path, group);
+    }
+    for (FilterAggregateDto a : Optional.ofNullable(request.getAggregates()).orElse(List.of())) {
+      Expression<?> aggregate = parser.aggregate(a);
+      String function = a.getFunction().toLowerCase();
+      addColumn(columns, a.getAlias() != null ? a.getAlias()
+              : a.getField() == null ? function : function + "_" + a.getField(), aggregate);
+    }
+
+    q.multiselect(new ArrayList<Selection<?>>(columns.values())).where(where).groupBy(groups);
+    if (request.getHaving() != null && !request.getHaving().isEmpty()) {
+      q.having(parser.parseHaving(request.getHaving(), columns));
+    }
+    q.orderBy(parser.orderByColumns(request.getSort(), columns, groups));
+
+    CriteriaQuery<Long> count = groups.isEmpty() ? null : ((JpaCriteriaQuery<Tuple>) q).createCountQuery();
+    return new CompiledFilter(entityClass, true, q, count, new ArrayList<>(columns.keySet()),
+            parser.parameterTypes(), Set.copyOf(ChangeTracker.withSources(parser.touchedEntities())));
+  }
+
+  private static void addColumn(Map<String, Expression<?>> columns, String name, Expression<?> expression) {
+    if (columns.putIfAbsent(name, expression) != null)
+      throw new IllegalArgumentException("Duplicate column: " + name);
+  }
+
+  /** Сущности, достижимые от типа по связям, включая коллекции */
+  private static void reachable(ManagedType<?> type, Set<Class<?>> result) {
+    for (Attribute<?, ?> attribute : type.getAttributes()) {
+      Type<?> target = attribute.isCollection()
+              ? ((PluralAttribute<?, ?, ?>) attribute).getElementType()
+              : ((SingularAttribute<?, ?>) attribute).getType();
+      if (target instanceof ManagedType<?> managed && result.add(managed.getJavaType())) reachable(managed, result);
+    }
+  }
+
+  /**
+   * Запрос по копии criteria-дерева — скомпилированный фильтр остаётся неизменным —
+   * с привязанными значениями всех его параметров.
+   */
+  private <T> TypedQuery<T> query(CriteriaQuery<T> criteria, Map<String, Object> parameters) {
+    TypedQuery<T> query = em.createQuery(((SqmSelectStatement<T>) criteria).copy(SqmCopyContext.simpleContext()));
+    for (Parameter<?> parameter : query.getParameters()) {
+      if (parameter.getName() == null) continue; // литералы, которые Hibernate сам передаёт параметрами
+      if (!parameters.containsKey(parameter.getName()))
+        throw new IllegalArgumentException("Missing parameter: " + parameter.getName());
+      query.setParameter(parameter.getName(), parameters.get(parameter.getName()));
+    }
+    return query;
+  }
+
+  private static List<Long> idList(long[] ids, int from, int to) {
+    List<Long> list = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) list.add(ids[i]);
+    return list;
+  }
+
+  private static <T> TypedQuery<T> page(TypedQuery<T> query, Pageable pageable) {
+    return query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+  }
+
+  /** Выполняет запрос, если его пропустил {@link FilterCostGuard} */
+  private <T> List<T> guarded(TypedQuery<T> query) {
+    FilterCostGuard.Admission admission = costGuard.admit(query);
+    try {
+      return query.getResultList();
+    } finally {
+      admission.close();
+    }
   }
 }
\ No newline at end of file
@@ -1,15 +1,21 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.dto.DataVersion;
 import com.assxmblxr.backend.entity.Grade;
 import com.assxmblxr.backend.entity.WorkType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface GradeRepository extends JpaRepository<Grade, Long> {
@@ -28,9 +34,32 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
   @Query("SELECT AVG(g.grade) FROM Grade g WHERE g.student.id = :studentId AND g.subject.id = :subjectId")
   Double avgGradeByStudentAndSubject(@Param("studentId") Long studentId, @Param("subjectId") Long subjectId);
 
+  /** Пары группа × предмет, по которым есть оценки: [groupId, groupName, subjectId, subjectName] */
+  @Query("SELECT DISTINCT g.student.group.id, g.student.group.name, g.subject.id, g.subject.name FROM Grade g " +
+          "ORDER BY g.student.group.name, g.subject.name")
+  List<Object[]> findGroupSubjectPairs();
+
   @Query("SELECT g FROM Grade g WHERE g.student.group.id = :groupId AND g.subject.id = :subjectId")
   List<Grade> findByGroupAndSubject(@Param("groupId") Long groupId, @Param("subjectId") Long subjectId);
 
   @Query("SELECT g FROM Grade g WHERE g.student.group.id = :groupId AND g.subject.id = :subjectId")
   Page<Grade> findByGroupAndSubject(@Param("groupId") Long groupId, @Param("subjectId") Long subjectId, Pageable pageable);
+
+  /** Оценки журнала группы по предмету за период: [id, studentId, gradeDate, grade, workType, version] */
+  @Query("SELECT g.id, g.student.id, g.gradeDate, g.grade, g.workType, g.version FROM Grade g " +
+          "WHERE g.student.group.id = :groupId AND g.subject.id = :subjectId AND g.gradeDate BETWEEN :from AND :to " +
+          "ORDER BY g.gradeDate, g.id")
+  List<Object[]> findJournalCells(@Param("groupId") Long groupId, @Param("subjectId") Long subjectId,
+                                  @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+  /** Скалярные колонки для куба оценок: [id, studentId, subjectId, grade, workType, gradeDate] */
+  @Query("SELECT g.id, g.student.id, g.subject.id, g.grade, g.workType, g.gradeDate FROM Grade g")
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  Stream<Object[]> streamCubeRows();
+
+  @Query("SELECT g.id, g.student.id, g.subject.id, g.grade, g.workType, g.gradeDate FROM Grade g WHERE g.id = :id")
+  List<Object[]> findCubeRow(@Param("id") Long id);
+
+  @Query("SELECT new com.assxmblxr.backend.dto.DataVersion(COUNT(g), COALESCE(MAX(g.id), 0L), COALESCE(SUM(g.version), 0L)) FROM Grade g")
+  DataVersion dataVersion();
 }
\ No newline at end of file
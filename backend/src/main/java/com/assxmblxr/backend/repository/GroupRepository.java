@@ -1,5 +1,6 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.dto.DataVersion;
 import com.assxmblxr.backend.entity.Group;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -22,4 +23,7 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
       WHERE g IN :groups
   """)
   void updateGroupAmount(@Param("groups") List<Group> groups);
+
+  @Query("SELECT new com.assxmblxr.backend.dto.DataVersion(COUNT(g), COALESCE(MAX(g.id), 0L), COALESCE(SUM(g.version), 0L)) FROM Group g")
+  DataVersion dataVersion();
 }
\ No newline at end of file
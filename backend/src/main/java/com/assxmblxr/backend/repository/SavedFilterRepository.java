@@ -0,0 +1,17 @@
+package com.assxmblxr.backend.repository;
+
+import com.assxmblxr.backend.entity.SavedFilter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SavedFilterRepository extends JpaRepository<SavedFilter, Long> {
+  List<SavedFilter> findByOwnerOrderByName(String owner);
+
+  Optional<SavedFilter> findByIdAndOwner(Long id, String owner);
+
+  boolean existsByOwnerAndName(String owner, String name);
+}
\ No newline at end of file
@@ -1,8 +1,10 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.dto.DataVersion;
 import com.assxmblxr.backend.entity.DayOfWeek;
 import com.assxmblxr.backend.entity.Schedule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,4 +15,7 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
   List<Schedule> findByGroupIdAndDayOfWeek(Long groupId, DayOfWeek dayOfWeek);
   List<Schedule> findByTeacherId(Long teacherId);
   List<Schedule> findByTeacherIdAndDayOfWeek(Long teacherId, DayOfWeek dayOfWeek);
+
+  @Query("SELECT new com.assxmblxr.backend.dto.DataVersion(COUNT(s), COALESCE(MAX(s.id), 0L), COALESCE(SUM(s.version), 0L)) FROM Schedule s")
+  DataVersion dataVersion();
 }
\ No newline at end of file
@@ -1,16 +1,32 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.dto.DataVersion;
 import com.assxmblxr.backend.entity.Student;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface StudentRepository extends JpaRepository<Student, Long> {
   Page<Student> findAll(Pageable pageable);
   Page<Student> findByGroupId(Long groupId, Pageable pageable);
   List<Student> findByGroupId(Long groupId); // для аналитики
+  List<Student> findByGroupId(Long groupId, Sort sort);
+
+  /** Текущая группа каждого учащегося: [studentId, groupId] */
+  @Query("SELECT s.id, s.group.id FROM Student s")
+  List<Object[]> findGroupAssignments();
+
+  @Query("SELECT s.group.id FROM Student s WHERE s.id = :id")
+  Optional<Long> findGroupIdById(@Param("id") Long id);
+
+  @Query("SELECT new com.assxmblxr.backend.dto.DataVersion(COUNT(s), COALESCE(MAX(s.id), 0L), COALESCE(SUM(s.version), 0L)) FROM Student s")
+  DataVersion dataVersion();
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.assxmblxr.backend.repository;
+
+import com.assxmblxr.backend.entity.RiskLevel;
+import com.assxmblxr.backend.entity.StudentRisk;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface StudentRiskRepository extends JpaRepository<StudentRisk, Long> {
+
+  @Query(value = "SELECT r FROM StudentRisk r JOIN FETCH r.student s JOIN FETCH s.group WHERE r.riskLevel IN :levels",
+          countQuery = "SELECT COUNT(r) FROM StudentRisk r WHERE r.riskLevel IN :levels")
+  Page<StudentRisk> findByLevels(@Param("levels") Collection<RiskLevel> levels, Pageable pageable);
+
+  @Query(value = "SELECT r FROM StudentRisk r JOIN FETCH r.student s JOIN FETCH s.group " +
+          "WHERE r.riskLevel IN :levels AND r.groupId = :groupId",
+          countQuery = "SELECT COUNT(r) FROM StudentRisk r WHERE r.riskLevel IN :levels AND r.groupId = :groupId")
+  Page<StudentRisk> findByLevelsAndGroup(@Param("levels") Collection<RiskLevel> levels,
+                                         @Param("groupId") Long groupId, Pageable pageable);
+}
\ No newline at end of file
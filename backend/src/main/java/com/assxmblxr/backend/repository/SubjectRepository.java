@@ -1,9 +1,14 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.dto.DataVersion;
 import com.assxmblxr.backend.entity.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface SubjectRepository extends JpaRepository<Subject, Long> {
+
+  @Query("SELECT new com.assxmblxr.backend.dto.DataVersion(COUNT(s), COALESCE(MAX(s.id), 0L), COALESCE(SUM(s.version), 0L)) FROM Subject s")
+  DataVersion dataVersion();
 }
\ No newline at end of file
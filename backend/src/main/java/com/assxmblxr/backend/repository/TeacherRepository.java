@@ -1,9 +1,14 @@
 package com.assxmblxr.backend.repository;
 
+import com.assxmblxr.backend.dto.DataVersion;
 import com.assxmblxr.backend.entity.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface TeacherRepository extends JpaRepository<Teacher, Long> {
+
+  @Query("SELECT new com.assxmblxr.backend.dto.DataVersion(COUNT(t), COALESCE(MAX(t.id), 0L), COALESCE(SUM(t.version), 0L)) FROM Teacher t")
+  DataVersion dataVersion();
 }
\ No newline at end of file
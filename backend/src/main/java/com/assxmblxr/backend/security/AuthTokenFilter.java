@@ -21,6 +21,8 @@ import java.io.IOException;
 @Slf4j
 @Configuration
 public class AuthTokenFilter extends OncePerRequestFilter {
+  private static final String EVENT_STREAM_PATH = "/api/events/stream";
+
   private final JwtUtils jwtUtils;
   private final UserService userService;
 
@@ -66,6 +68,11 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
       return headerAuth.substring(7);
     }
+    // EventSource в браузере не передаёт заголовки — для SSE-потока токен идёт в query
+    if (EVENT_STREAM_PATH.equals(request.getServletPath())) {
+      String queryToken = request.getParameter("access_token");
+      if (StringUtils.hasText(queryToken)) return queryToken;
+    }
     return null;
   }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ public class CorsConfig {
     configuration.setAllowedOriginPatterns(List.of("*"));
     configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
     configuration.setAllowedHeaders(List.of("*"));
+    configuration.setExposedHeaders(List.of("ETag"));
     configuration.setAllowCredentials(true);
     configuration.setMaxAge(3600L);
 
@@ -1,6 +1,7 @@
 package com.assxmblxr.backend.security;
 
 import com.assxmblxr.backend.service.UserService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -48,6 +49,8 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource))
             .authorizeHttpRequests(auth -> auth
                     .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                    // Асинхронные диспатчи (SSE) — запрос уже прошёл проверку при подключении
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     // Открытые эндпоинты
                     .requestMatchers("/auth/**", "/").permitAll()
                     // /scheduler/cron — GET доступен любому аутентифицированному пользователю
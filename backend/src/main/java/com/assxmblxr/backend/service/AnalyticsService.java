@@ -1,57 +1,63 @@
 package com.assxmblxr.backend.service;
 
+import com.assxmblxr.backend.analytics.AttendanceIndex;
+import com.assxmblxr.backend.analytics.GradeCube;
+import com.assxmblxr.backend.analytics.GradeCube.SubjectTotal;
+import com.assxmblxr.backend.analytics.GradeHistogram;
+import com.assxmblxr.backend.dto.AbsentStudentResponse;
+import com.assxmblxr.backend.dto.GradeDistributionResponse;
 import com.assxmblxr.backend.dto.GroupAnalyticsResponse;
 import com.assxmblxr.backend.dto.StudentAnalyticsResponse;
 import com.assxmblxr.backend.entity.AttendanceStatus;
-import com.assxmblxr.backend.entity.Grade;
 import com.assxmblxr.backend.entity.Student;
 import com.assxmblxr.backend.entity.Subject;
+import com.assxmblxr.backend.entity.WorkType;
 import com.assxmblxr.backend.exceptions.GroupException;
 import com.assxmblxr.backend.exceptions.StudentException;
 import com.assxmblxr.backend.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyticsService {
+  public static final int MAX_ABSENCE_DATES = 366;
+
   private final StudentRepository studentRepository;
   private final GroupRepository groupRepository;
-  private final GradeRepository gradeRepository;
-  private final AttendanceRepository attendanceRepository;
   private final SubjectRepository subjectRepository;
+  private final AnalyticsRepository analyticsRepository;
+  private final GradeCubeService gradeCubeService;
+  private final AttendanceIndexService attendanceIndexService;
 
   /** Аналитика по одному студенту */
   public StudentAnalyticsResponse getStudentAnalytics(Long studentId) {
     Student student = studentRepository.findById(studentId)
             .orElseThrow(() -> new StudentException("Студент не найден", studentId));
 
-    List<Grade> grades = gradeRepository.findByStudentId(studentId);
+    Map<Long, SubjectTotal> totals = subjectTotals(studentId, null);
     List<Subject> subjects = subjectRepository.findAll();
 
     // Средний балл по каждому предмету
     Map<String, Double> avgBySubject = new LinkedHashMap<>();
     Map<String, Long> absencesBySubject = new LinkedHashMap<>();
+    long gradeCount = 0, gradeSum = 0;
 
     for (Subject subject : subjects) {
-      List<Grade> sg = grades.stream()
-              .filter(g -> g.getSubject().getId().equals(subject.getId()))
-              .toList();
-      if (!sg.isEmpty()) {
-        double avg = sg.stream().mapToInt(Grade::getGrade).average().orElse(0);
-        avgBySubject.put(subject.getName(), Math.round(avg * 100.0) / 100.0);
-
-        long absences = attendanceRepository.countByStudentAndSubjectAndStatus(studentId, subject.getId(), AttendanceStatus.ABSENT)
-                + attendanceRepository.countByStudentAndSubjectAndStatus(studentId, subject.getId(), AttendanceStatus.EXCUSED);
-        absencesBySubject.put(subject.getName(), absences);
+      SubjectTotal total = totals.get(subject.getId());
+      if (total != null) {
+        avgBySubject.put(subject.getName(), round2(total.average()));
+        gradeCount += total.count();
+        gradeSum += total.sum();
+
+        absencesBySubject.put(subject.getName(), attendanceIndexService.absences(studentId, subject.getId()));
       }
     }
 
-    double overallAvg = grades.isEmpty() ? 0.0
-            : Math.round(grades.stream().mapToInt(Grade::getGrade).average().orElse(0) * 100.0) / 100.0;
+    double overallAvg = gradeCount == 0 ? 0.0 : round2((double) gradeSum / gradeCount);
 
     long totalAbsences = absencesBySubject.values().stream().mapToLong(Long::longValue).sum();
 
@@ -71,19 +77,14 @@ public class AnalyticsService {
     var group = groupRepository.findById(groupId)
             .orElseThrow(() -> new GroupException("Группа не найдена", groupId));
 
-    List<Student> students = studentRepository.findAll().stream()
-            .filter(s -> s.getGroup() != null && s.getGroup().getId().equals(groupId))
-            .toList();
-
+    List<Student> students = studentRepository.findByGroupId(groupId);
+    Map<Long, SubjectTotal> totals = subjectTotals(null, groupId);
     List<Subject> subjects = subjectRepository.findAll();
 
     Map<String, Double> avgBySubject = new LinkedHashMap<>();
     for (Subject subject : subjects) {
-      List<Grade> groupGrades = gradeRepository.findByGroupAndSubject(groupId, subject.getId());
-      if (!groupGrades.isEmpty()) {
-        double avg = groupGrades.stream().mapToInt(Grade::getGrade).average().orElse(0);
-        avgBySubject.put(subject.getName(), Math.round(avg * 100.0) / 100.0);
-      }
+      SubjectTotal total = totals.get(subject.getId());
+      if (total != null) avgBySubject.put(subject.getName(), round2(total.average()));
     }
 
     double overallAvg = avgBySubject.isEmpty() ? 0.0
@@ -91,4 +92,101 @@ public class AnalyticsService {
 
     return new GroupAnalyticsResponse(groupId, group.getName(), students.size(), avgBySubject, overallAvg);
   }
+
+  /**
+   * Учащиеся, у которых в одну из дат есть запись с одним из статусов (по умолчанию —
+   * пропуски), по убыванию числа таких записей. Считается по индексу посещаемости.
+   */
+  public List<AbsentStudentResponse> getAbsentStudents(Collection<LocalDate> dates, Set<AttendanceStatus> statuses,
+                                                       Long groupId) {
+    if (dates == null || dates.isEmpty()) throw new IllegalArgumentException("Не указаны даты");
+    if (dates.size() > MAX_ABSENCE_DATES) throw new IllegalArgumentException("Не больше " + MAX_ABSENCE_DATES + " дат");
+    Set<AttendanceStatus> effective = statuses == null || statuses.isEmpty() ? AttendanceIndex.ABSENCES : statuses;
+    Map<Long, Long> counts = attendanceIndexService.studentsWith(effective, dates, groupId);
+
+    List<AbsentStudentResponse> result = new ArrayList<>();
+    for (Student s : studentRepository.findAllById(counts.keySet())) {
+      result.add(new AbsentStudentResponse(s.getId(), s.getFullname(), s.getGroup().getId(), s.getGroup().getName(),
+              counts.get(s.getId())));
+    }
+    result.sort(Comparator.comparingLong(AbsentStudentResponse::getCount).reversed()
+            .thenComparing(AbsentStudentResponse::getStudentName));
+    return result;
+  }
+
+  /** Количество и сумма оценок по предметам: из куба, а пока он не загружен — из БД */
+  private Map<Long, SubjectTotal> subjectTotals(Long studentId, Long groupId) {
+    List<SubjectTotal> totals = gradeCubeService.cube()
+            .map(cube -> cube.totalsBySubject(studentId, groupId))
+            .orElseGet(() -> analyticsRepository.subjectTotals(
+                    new AnalyticsRepository.Criteria(studentId, groupId, null, null, null)));
+    Map<Long, SubjectTotal> bySubject = new HashMap<>();
+    for (SubjectTotal total : totals) bySubject.put(total.subjectId(), total);
+    return bySubject;
+  }
+
+  /**
+   * Распределение оценок среза: сводка с перцентилями, гистограмма 0–10 и разбивка
+   * по видам работ. Считается по кубу оценок в памяти; пока куб не загружен —
+   * агрегатами в БД. Сущности не загружаются.
+   */
+  public GradeDistributionResponse getGradeDistribution(Long studentId, Long groupId, Long subjectId,
+                                                        LocalDate from, LocalDate to) {
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new IllegalArgumentException("Дата начала позже даты окончания");
+    }
+    Optional<GradeCube> cube = gradeCubeService.cube();
+    if (cube.isPresent()) {
+      return distribution(cube.get().histogram(studentId, groupId, subjectId, from, to),
+              studentId, groupId, subjectId, from, to);
+    }
+    AnalyticsRepository.Criteria criteria = new AnalyticsRepository.Criteria(studentId, groupId, subjectId, from, to);
+    AnalyticsRepository.Summary summary = analyticsRepository.summary(criteria);
+
+    Map<String, Double> percentiles = new LinkedHashMap<>();
+    for (int i = 0; i < summary.percentiles().length; i++) {
+      percentiles.put("p" + Math.round(AnalyticsRepository.PERCENTILES[i] * 100), round2(summary.percentiles()[i]));
+    }
+    List<Long> histogram = Arrays.stream(analyticsRepository.histogram(criteria)).boxed().toList();
+    List<GradeDistributionResponse.WorkTypeStats> byWorkType = analyticsRepository.byWorkType(criteria).stream()
+            .map(r -> new GradeDistributionResponse.WorkTypeStats(r.workType(), r.count(), round2(r.average()), round2(r.median())))
+            .toList();
+
+    return new GradeDistributionResponse(studentId, groupId, subjectId, from, to,
+            summary.count(), round2(summary.average()), round2(summary.stddev()), summary.min(), summary.max(),
+            percentiles.get("p50"), percentiles, histogram, byWorkType);
+  }
+
+  /** То же распределение по гистограмме куба; виды работ в порядке SQL-версии: по имени, без вида — последними */
+  private static GradeDistributionResponse distribution(GradeHistogram histogram, Long studentId, Long groupId,
+                                                        Long subjectId, LocalDate from, LocalDate to) {
+    long[] all = histogram.buckets();
+    long count = GradeHistogram.count(all);
+    Map<String, Double> percentiles = new LinkedHashMap<>();
+    if (count > 0) {
+      for (double p : AnalyticsRepository.PERCENTILES) {
+        percentiles.put("p" + Math.round(p * 100), round2(GradeHistogram.percentile(all, p)));
+      }
+    }
+    List<WorkType> workTypes = new ArrayList<>(Arrays.asList(WorkType.values()));
+    workTypes.sort(Comparator.comparing(WorkType::name));
+    workTypes.add(null);
+    List<GradeDistributionResponse.WorkTypeStats> byWorkType = new ArrayList<>();
+    for (WorkType type : workTypes) {
+      long[] buckets = histogram.buckets(type);
+      long n = GradeHistogram.count(buckets);
+      if (n > 0) {
+        byWorkType.add(new GradeDistributionResponse.WorkTypeStats(type != null ? type.name() : null, n,
+                round2(GradeHistogram.average(buckets)), round2(GradeHistogram.percentile(buckets, 0.5))));
+      }
+    }
+    return new GradeDistributionResponse(studentId, groupId, subjectId, from, to,
+            count, round2(GradeHistogram.average(all)), round2(GradeHistogram.stddev(all)),
+            GradeHistogram.min(all), GradeHistogram.max(all),
+            percentiles.get("p50"), percentiles, Arrays.stream(all).boxed().toList(), byWorkType);
+  }
+
+  private static Double round2(Double value) {
+    return value != null ? Math.round(value * 100.0) / 100.0 : null;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.analytics.AttendanceIndex;
+import com.assxmblxr.backend.entity.*;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.repository.AttendanceRepository;
+import com.assxmblxr.backend.repository.StudentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Строит {@link AttendanceIndex} при старте и поддерживает его по закоммиченным записям
+ * посещаемости и учащихся. Пока индекс не загружен, те же вопросы решаются запросами в БД.
+ * События применяются в отдельном потоке, как у {@link GradeCubeService}.
+ */
+@Slf4j
+@Service
+public class AttendanceIndexService {
+  private final AttendanceRepository attendanceRepository;
+  private final StudentRepository studentRepository;
+  private final TransactionTemplate readOnlyTx;
+
+  private final AttendanceIndex index = new AttendanceIndex();
+  private volatile boolean ready;
+
+  private final ExecutorService updater = Executors.newSingleThreadExecutor(r -> new Thread(r, "attendance-index-updater"));
+  /** Перезагрузка и применение событий не пересекаются */
+  private final ReentrantLock updates = new ReentrantLock();
+  /** Перезагрузка уже в очереди — следующие каскадные удаления её не дублируют */
+  private final AtomicBoolean reloadQueued = new AtomicBoolean();
+
+  public AttendanceIndexService(AttendanceRepository attendanceRepository, StudentRepository studentRepository,
+                                PlatformTransactionManager transactionManager) {
+    this.attendanceRepository = attendanceRepository;
+    this.studentRepository = studentRepository;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
+
+  // ── запросы ───────────────────────────────────────────────────────────────
+
+  /** Пропуски (ABSENT и EXCUSED) учащегося по предмету */
+  public long absences(Long studentId, Long subjectId) {
+    if (ready) return index.count(studentId, subjectId, AttendanceIndex.ABSENCES);
+    return attendanceRepository.countByStudentAndSubjectAndStatus(studentId, subjectId, AttendanceStatus.ABSENT)
+            + attendanceRepository.countByStudentAndSubjectAndStatus(studentId, subjectId, AttendanceStatus.EXCUSED);
+  }
+
+  /** Учащиеся с записями в указанных статусах в любую из дат: studentId -> число записей */
+  public Map<Long, Long> studentsWith(Set<AttendanceStatus> statuses, Collection<LocalDate> dates, Long groupId) {
+    if (ready) return index.studentsWith(statuses, dates, groupId);
+    Map<Long, Long> result = new LinkedHashMap<>();
+    for (Object[] row : attendanceRepository.countByStudentWith(statuses, dates, groupId)) {
+      result.put((Long) row[0], (Long) row[1]);
+    }
+    return result;
+  }
+
+  // ── поддержка индекса ─────────────────────────────────────────────────────
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    scheduleReload();
+  }
+
+  /** Полная перезагрузка; исключает применение событий, как у куба оценок */
+  public void reload() {
+    updates.lock();
+    try {
+      reloadQueued.set(false);
+      long started = System.currentTimeMillis();
+      readOnlyTx.executeWithoutResult(status -> index.reload(sink -> {
+        for (Object[] row : studentRepository.findGroupAssignments()) {
+          sink.studentGroup((Long) row[0], (Long) row[1]);
+        }
+        try (Stream<Object[]> rows = attendanceRepository.streamIndexRows()) {
+          rows.forEach(row -> sink.record((Long) row[0], (Long) row[1], (Long) row[2],
+                  (LocalDate) row[3], (AttendanceStatus) row[4]));
+        }
+      }));
+      ready = true;
+      log.info("Attendance index built in {} ms, ~{} KB", System.currentTimeMillis() - started, index.sizeInBytes() / 1024);
+    } finally {
+      updates.unlock();
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    Class<?> type = event.entityType();
+    if (event.operation() == ChangeOperation.DELETE
+            && (type == Student.class || type == Subject.class || type == Teacher.class || type == Group.class)) {
+      // каскадное удаление посещаемости, которое по событию не восстановить
+      scheduleReload();
+    } else if (type == Attendance.class || type == Student.class) {
+      updater.execute(() -> apply(event));
+    }
+  }
+
+  private void scheduleReload() {
+    if (reloadQueued.compareAndSet(false, true)) updater.execute(this::reloadQuietly);
+  }
+
+  private void reloadQuietly() {
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      log.warn("Attendance index reload failed: {}", e.getMessage(), e);
+    }
+  }
+
+  /** Если строку прочитать не удалось, индекс перестраивается целиком, чтобы не остаться устаревшим */
+  private void apply(EntityChangedEvent event) {
+    updates.lock();
+    try {
+      if (!ready) return; // загрузка ещё впереди и увидит это изменение
+      Long id = event.entityId();
+      if (id == null) return;
+      if (event.entityType() == Attendance.class) {
+        List<Object[]> rows = event.operation() == ChangeOperation.DELETE ? List.of() : attendanceRepository.findIndexRow(id);
+        if (rows.isEmpty()) {
+          index.remove(id);
+        } else {
+          Object[] row = rows.get(0);
+          index.upsert(id, (Long) row[1], (Long) row[2], (LocalDate) row[3], (AttendanceStatus) row[4]);
+        }
+      } else {
+        studentRepository.findGroupIdById(id).ifPresent(groupId -> index.setStudentGroup(id, groupId));
+      }
+    } catch (RuntimeException e) {
+      log.warn("Attendance index update failed, rebuilding: {}", e.getMessage(), e);
+      scheduleReload();
+    } finally {
+      updates.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    updater.shutdownNow();
+  }
+}
\ No newline at end of file
@@ -4,22 +4,27 @@ import com.assxmblxr.backend.dto.AttendanceRequest;
 import com.assxmblxr.backend.dto.AttendanceResponse;
 import com.assxmblxr.backend.dto.PageResponse;
 import com.assxmblxr.backend.entity.*;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.events.EntityChangedEvent.Scope;
 import com.assxmblxr.backend.exceptions.AttendanceException;
 import com.assxmblxr.backend.exceptions.StudentException;
 import com.assxmblxr.backend.exceptions.SubjectException;
 import com.assxmblxr.backend.exceptions.TeacherException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.repository.AttendanceRepository;
 import com.assxmblxr.backend.repository.StudentRepository;
 import com.assxmblxr.backend.repository.SubjectRepository;
 import com.assxmblxr.backend.repository.TeacherRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -29,6 +34,7 @@ public class AttendanceService {
   private final StudentRepository studentRepository;
   private final SubjectRepository subjectRepository;
   private final TeacherRepository teacherRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Transactional
   public AttendanceResponse create(AttendanceRequest request) {
@@ -40,26 +46,37 @@ public class AttendanceService {
             .status(request.getStatus())
             .note(request.getNote())
             .build();
-    return toResponse(attendanceRepository.save(a));
+    Attendance saved = attendanceRepository.save(a);
+    eventPublisher.publishEvent(new EntityChangedEvent(Attendance.class, saved.getId(), ChangeOperation.CREATE, scopeOf(saved)));
+    return toResponse(saved);
   }
 
   @Transactional
   public AttendanceResponse update(Long id, AttendanceRequest request) {
     Attendance a = attendanceRepository.findById(id)
             .orElseThrow(() -> new AttendanceException("Запись посещаемости не найдена", id));
+    VersionConflictException.check(request.getVersion(), a.getVersion(), id);
+    Scope before = scopeOf(a);
     a.setStudent(studentById(request.getStudentId()));
     a.setSubject(subjectById(request.getSubjectId()));
     a.setTeacher(request.getTeacherId() != null ? teacherById(request.getTeacherId()) : null);
     a.setAttendanceDate(request.getAttendanceDate());
     a.setStatus(request.getStatus());
     a.setNote(request.getNote());
-    return toResponse(attendanceRepository.save(a));
+    Attendance saved = attendanceRepository.saveAndFlush(a);
+    eventPublisher.publishEvent(new EntityChangedEvent(Attendance.class, id, ChangeOperation.UPDATE,
+            before.merge(scopeOf(saved))));
+    return toResponse(saved);
   }
 
   @Transactional
   public boolean delete(Long id) {
     return attendanceRepository.findById(id)
-            .map(a -> { attendanceRepository.delete(a); return true; }).orElse(false);
+            .map(a -> {
+              attendanceRepository.delete(a);
+              eventPublisher.publishEvent(new EntityChangedEvent(Attendance.class, id, ChangeOperation.DELETE, scopeOf(a)));
+              return true;
+            }).orElse(false);
   }
 
   public AttendanceResponse getById(Long id) {
@@ -105,6 +122,11 @@ public class AttendanceService {
     return attendanceRepository.findByGroupAndDate(groupId, date).stream().map(this::toResponse).toList();
   }
 
+  /** Записи по набору id; отсутствующие id просто не попадают в результат */
+  public List<AttendanceResponse> getByIds(Collection<Long> ids) {
+    return attendanceRepository.findAllById(ids).stream().map(this::toResponse).toList();
+  }
+
   public long countAbsences(Long studentId, Long subjectId) {
     return attendanceRepository.countByStudentAndSubjectAndStatus(studentId, subjectId, AttendanceStatus.ABSENT)
             + attendanceRepository.countByStudentAndSubjectAndStatus(studentId, subjectId, AttendanceStatus.EXCUSED);
@@ -131,9 +153,14 @@ public class AttendanceService {
     r.setAttendanceDate(a.getAttendanceDate());
     r.setStatus(a.getStatus());
     r.setNote(a.getNote());
+    r.setVersion(a.getVersion());
     return r;
   }
 
+  private static Scope scopeOf(Attendance a) {
+    return Scope.of(a.getStudent().getGroup().getId(), a.getSubject().getId(), a.getStudent().getId());
+  }
+
   private Student studentById(Long id) {
     return studentRepository.findById(id).orElseThrow(() -> new StudentException("Студент не найден", id));
   }
@@ -0,0 +1,94 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.entity.*;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.repository.ChangeLogRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ведёт журнал изменений (таблица change_log) для дельта-синхронизации клиента.
+ * Слушатель синхронный: запись в журнал попадает в ту же транзакцию, что и само
+ * изменение, поэтому журнал не расходится с данными ни при откате, ни при падении.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChangeLogService {
+  /** Сколько дней хранится журнал; клиенты, отставшие сильнее, получат resetRequired */
+  private static final int RETENTION_DAYS = 30;
+
+  private static final Map<Class<?>, SyncEntityType> TRACKED = Map.of(
+          Grade.class, SyncEntityType.GRADE,
+          Attendance.class, SyncEntityType.ATTENDANCE,
+          Schedule.class, SyncEntityType.SCHEDULE
+  );
+
+  /** Таблица журнала и условие по id удаляемого родителя; строки удаляются каскадом в БД */
+  private record Cascade(SyncEntityType type, String table, String where) {}
+
+  private static final Map<Class<?>, List<Cascade>> CASCADES = Map.of(
+          Student.class, List.of(
+                  new Cascade(SyncEntityType.GRADE, "grades", "student_id = :id"),
+                  new Cascade(SyncEntityType.ATTENDANCE, "attendance", "student_id = :id")),
+          Subject.class, List.of(
+                  new Cascade(SyncEntityType.GRADE, "grades", "subject_id = :id"),
+                  new Cascade(SyncEntityType.ATTENDANCE, "attendance", "subject_id = :id"),
+                  new Cascade(SyncEntityType.SCHEDULE, "schedule", "subject_id = :id")),
+          Teacher.class, List.of(
+                  new Cascade(SyncEntityType.GRADE, "grades", "teacher_id = :id"),
+                  new Cascade(SyncEntityType.ATTENDANCE, "attendance", "teacher_id = :id"),
+                  new Cascade(SyncEntityType.SCHEDULE, "schedule", "teacher_id = :id")),
+          Group.class, List.of(
+                  new Cascade(SyncEntityType.SCHEDULE, "schedule", "group_id = :id"))
+  );
+
+  private final ChangeLogRepository changeLogRepository;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @EventListener
+  public void onEntityChanged(EntityChangedEvent event) {
+    SyncEntityType type = TRACKED.get(event.entityType());
+    if (type != null) {
+      changeLogRepository.save(ChangeLogEntry.builder()
+              .entityType(type)
+              .entityId(event.entityId())
+              .changedAt(LocalDateTime.now())
+              .build());
+      return;
+    }
+    // Удаление родителя: зависимые строки журнала уйдут каскадом в БД, минуя сервисы.
+    // Поэтому сервисы публикуют DELETE до удаления, а мы заранее пишем их id в журнал.
+    if (event.operation() == ChangeOperation.DELETE) {
+      for (Cascade c : CASCADES.getOrDefault(event.entityType(), List.of())) {
+        entityManager.createNativeQuery(
+                        "INSERT INTO change_log (entity_type, entity_id, changed_at) " +
+                        "SELECT '" + c.type().name() + "', id, :now FROM " + c.table() +
+                        " WHERE " + c.where())
+                .setParameter("id", event.entityId())
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+      }
+    }
+  }
+
+  /** Ежедневная очистка журнала от записей старше RETENTION_DAYS */
+  @Scheduled(cron = "0 30 3 * * *")
+  @Transactional
+  public void purge() {
+    int removed = changeLogRepository.purgeOlderThan(LocalDateTime.now().minusDays(RETENTION_DAYS));
+    log.info("Change log purged: {} entries removed", removed);
+  }
+}
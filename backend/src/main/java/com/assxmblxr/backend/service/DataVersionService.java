@@ -0,0 +1,38 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Версии данных по сущностям. В отличие от счётчиков ChangeTracker, считаются
+ * по самой БД и переживают рестарт сервера — пригодны для долгоживущих кэшей
+ * и для проверки клиентом «изменилось ли что-нибудь с прошлого раза».
+ */
+@Service
+@RequiredArgsConstructor
+public class DataVersionService {
+  private final StudentRepository studentRepository;
+  private final GroupRepository groupRepository;
+  private final GradeRepository gradeRepository;
+  private final AttendanceRepository attendanceRepository;
+  private final ScheduleRepository scheduleRepository;
+  private final SubjectRepository subjectRepository;
+  private final TeacherRepository teacherRepository;
+
+  /** Токены версий всех сущностей; ключи совпадают с именами в EntityRegistry */
+  public Map<String, String> getAllVersions() {
+    Map<String, String> versions = new LinkedHashMap<>();
+    versions.put("Student",    studentRepository.dataVersion().token());
+    versions.put("Group",      groupRepository.dataVersion().token());
+    versions.put("Grade",      gradeRepository.dataVersion().token());
+    versions.put("Attendance", attendanceRepository.dataVersion().token());
+    versions.put("Schedule",   scheduleRepository.dataVersion().token());
+    versions.put("Subject",    subjectRepository.dataVersion().token());
+    versions.put("Teacher",    teacherRepository.dataVersion().token());
+    return versions;
+  }
+}
\ No newline at end of file
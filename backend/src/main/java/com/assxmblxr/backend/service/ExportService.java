@@ -3,7 +3,13 @@ package com.assxmblxr.backend.service;
 import com.assxmblxr.backend.entity.Attendance;
 import com.assxmblxr.backend.entity.AttendanceStatus;
 import com.assxmblxr.backend.entity.Grade;
+import com.assxmblxr.backend.entity.RiskLevel;
 import com.assxmblxr.backend.entity.Student;
+import com.assxmblxr.backend.entity.StudentRisk;
+import com.assxmblxr.backend.entity.WorkType;
+import com.assxmblxr.backend.export.ColumnWidthEstimator;
+import com.assxmblxr.backend.export.ExportRenderPool;
+import com.assxmblxr.backend.export.PdfStyles;
 import com.assxmblxr.backend.repository.AttendanceRepository;
 import com.assxmblxr.backend.repository.GradeRepository;
 import com.assxmblxr.backend.repository.StudentRepository;
@@ -14,15 +20,20 @@ import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
 
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 import java.util.List;
-import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -31,120 +42,287 @@ public class ExportService {
   private final GradeRepository gradeRepository;
   private final StudentRepository studentRepository;
   private final AttendanceRepository attendanceRepository;
+  private final RiskScoringService riskScoringService;
+  private final PdfStyles pdfStyles;
+  private final ExportRenderPool renderPool;
+
+  /** Сколько строк SXSSF держит в памяти; остальные уходят во временный файл, который удаляет close() */
+  private static final int ROW_WINDOW = 200;
 
   // ══════════════════════════════════════════════════════════════
   //  GRADES — по группе + предмет
   // ══════════════════════════════════════════════════════════════
 
-  public byte[] exportGradesToExcel(Long groupId, Long subjectId) throws IOException {
-    List<Grade> grades = gradeRepository.findByGroupAndSubject(groupId, subjectId);
-    return gradesToExcel(grades);
+  public void writeGradesExcel(Long groupId, Long subjectId, OutputStream out) throws IOException {
+    gradesToExcel(gradeRepository.findByGroupAndSubject(groupId, subjectId), out);
   }
 
-  public byte[] exportGradesByStudentToExcel(Long studentId, Long subjectId) throws IOException {
-    List<Grade> grades = subjectId != null
-            ? gradeRepository.findByStudentIdAndSubjectId(studentId, subjectId)
-            : gradeRepository.findByStudentId(studentId);
-    return gradesToExcel(grades);
+  public void writeGradesByStudentExcel(Long studentId, Long subjectId, OutputStream out) throws IOException {
+    gradesToExcel(studentGrades(studentId, subjectId), out);
   }
 
-  public byte[] exportGradesToPdf(Long groupId, Long subjectId) throws IOException {
+  public void writeGradesPdf(Long groupId, Long subjectId, OutputStream out) throws IOException {
     List<Grade> grades = gradeRepository.findByGroupAndSubject(groupId, subjectId);
     String groupName   = grades.isEmpty() ? "" : safeGroupName(grades.get(0).getStudent());
     String subjectName = grades.isEmpty() ? "" : grades.get(0).getSubject().getName();
-    return gradesToPdf(grades, "Журнал оценок", "Группа: " + groupName + "   Предмет: " + subjectName);
+    gradesToPdf(grades, "Журнал оценок", "Группа: " + groupName + "   Предмет: " + subjectName, out);
+  }
+
+  public void writeGradesByStudentPdf(Long studentId, Long subjectId, OutputStream out) throws IOException {
+    List<Grade> grades = studentGrades(studentId, subjectId);
+    String name = grades.isEmpty() ? "" : grades.get(0).getStudent().getFullname();
+    gradesToPdf(grades, "Оценки учащегося", name, out);
   }
 
-  public byte[] exportGradesByStudentToPdf(Long studentId, Long subjectId) throws IOException {
-    List<Grade> grades = subjectId != null
+  private List<Grade> studentGrades(Long studentId, Long subjectId) {
+    return subjectId != null
             ? gradeRepository.findByStudentIdAndSubjectId(studentId, subjectId)
             : gradeRepository.findByStudentId(studentId);
-    String name = grades.isEmpty() ? "" : grades.get(0).getStudent().getFullname();
-    return gradesToPdf(grades, "Оценки учащегося", name);
   }
 
   // ── общая генерация Excel/PDF для оценок ─────────────────────────────────
 
-  private byte[] gradesToExcel(List<Grade> grades) throws IOException {
-    try (Workbook wb = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+  private void gradesToExcel(List<Grade> grades, OutputStream out) throws IOException {
+    try (SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW)) {
       Sheet sheet = wb.createSheet("Оценки");
       CellStyle hs = buildHeaderStyle(wb);
       String[] cols = {"ID", "Учащийся", "Предмет", "Учитель", "Оценка", "Тип работы", "Дата", "Комментарий"};
-      writeHeaderRow(sheet, cols, hs);
+      ColumnWidthEstimator widths = new ColumnWidthEstimator(cols.length);
+      writeHeaderRow(sheet, cols, hs, widths);
       int r = 1;
       for (Grade g : grades) {
         Row row = sheet.createRow(r++);
-        row.createCell(0).setCellValue(g.getId());
-        row.createCell(1).setCellValue(g.getStudent().getFullname());
-        row.createCell(2).setCellValue(g.getSubject().getName());
-        row.createCell(3).setCellValue(g.getTeacher() != null ? g.getTeacher().getFullname() : "");
-        row.createCell(4).setCellValue(g.getGrade());
-        row.createCell(5).setCellValue(g.getWorkType() != null ? workTypeLabel(g.getWorkType().name()) : "");
-        row.createCell(6).setCellValue(g.getGradeDate() != null ? g.getGradeDate().toString() : "");
-        row.createCell(7).setCellValue(g.getComment() != null ? g.getComment() : "");
+        setCell(row, 0, g.getId(), widths);
+        setCell(row, 1, g.getStudent().getFullname(), widths);
+        setCell(row, 2, g.getSubject().getName(), widths);
+        setCell(row, 3, g.getTeacher() != null ? g.getTeacher().getFullname() : "", widths);
+        setCell(row, 4, g.getGrade(), widths);
+        setCell(row, 5, g.getWorkType() != null ? workTypeLabel(g.getWorkType().name()) : "", widths);
+        setCell(row, 6, g.getGradeDate() != null ? g.getGradeDate().toString() : "", widths);
+        setCell(row, 7, g.getComment() != null ? g.getComment() : "", widths);
       }
-      for (int i = 0; i < cols.length; i++) sheet.autoSizeColumn(i);
+      widths.apply(sheet);
       wb.write(out);
-      return out.toByteArray();
     }
   }
 
-  private byte[] gradesToPdf(List<Grade> grades, String title, String subtitle) throws IOException {
-    try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-      Document doc = new Document(PageSize.A4.rotate(), 30, 30, 30, 30);
-      PdfWriter.getInstance(doc, out);
-      doc.open();
-      BaseFont bf = loadCyrillicFont();
-      com.lowagie.text.Font tf = new com.lowagie.text.Font(bf, 14, com.lowagie.text.Font.BOLD);
-      com.lowagie.text.Font hf = new com.lowagie.text.Font(bf, 9,  com.lowagie.text.Font.BOLD);
-      com.lowagie.text.Font cf = new com.lowagie.text.Font(bf, 9,  com.lowagie.text.Font.NORMAL);
-      com.lowagie.text.Font sf = new com.lowagie.text.Font(bf, 9,  com.lowagie.text.Font.ITALIC);
-      addPdfTitle(doc, title, tf);
-      if (!subtitle.isBlank()) addPdfSubtitle(doc, subtitle, sf);
-      doc.add(new Paragraph(" "));
-      PdfPTable table = new PdfPTable(7);
-      table.setWidthPercentage(100);
-      table.setWidths(new float[]{0.6f, 3f, 2.5f, 2.5f, 1f, 1.8f, 1.5f});
-      for (String h : new String[]{"ID", "Учащийся", "Предмет", "Учитель", "Оценка", "Тип работы", "Дата"})
-        addPdfHeaderCell(table, h, hf);
-      double sum = 0;
-      for (Grade g : grades) {
-        sum += g.getGrade();
-        addPdfCell(table, String.valueOf(g.getId()),                                      cf, Element.ALIGN_CENTER);
-        addPdfCell(table, g.getStudent().getFullname(),                                   cf, Element.ALIGN_LEFT);
-        addPdfCell(table, g.getSubject().getName(),                                       cf, Element.ALIGN_LEFT);
-        addPdfCell(table, g.getTeacher() != null ? g.getTeacher().getFullname() : "—",   cf, Element.ALIGN_LEFT);
-        addPdfCell(table, String.valueOf(g.getGrade()),                                   cf, Element.ALIGN_CENTER);
-        addPdfCell(table, g.getWorkType() != null ? workTypeLabel(g.getWorkType().name()) : "—", cf, Element.ALIGN_LEFT);
-        addPdfCell(table, g.getGradeDate() != null ? g.getGradeDate().toString() : "—",  cf, Element.ALIGN_CENTER);
-      }
-      doc.add(table);
-      if (!grades.isEmpty()) {
-        Paragraph footer = new Paragraph(
-                String.format("Всего: %d   |   Средний балл: %.2f", grades.size(), sum / grades.size()), sf);
-        footer.setSpacingBefore(8);
-        footer.setAlignment(Element.ALIGN_RIGHT);
-        doc.add(footer);
-      }
-      doc.close();
-      return out.toByteArray();
+  private void gradesToPdf(List<Grade> grades, String title, String subtitle, OutputStream out) throws IOException {
+    Document doc = new Document(PageSize.A4.rotate(), 30, 30, 30, 30);
+    PdfWriter.getInstance(doc, out).setCloseStream(false);
+    doc.open();
+    com.lowagie.text.Font tf = pdfStyles.font(14, com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font hf = pdfStyles.font(9,  com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font cf = pdfStyles.font(9,  com.lowagie.text.Font.NORMAL);
+    com.lowagie.text.Font sf = pdfStyles.font(9,  com.lowagie.text.Font.ITALIC);
+    addPdfTitle(doc, title, tf);
+    if (!subtitle.isBlank()) addPdfSubtitle(doc, subtitle, sf);
+    doc.add(new Paragraph(" "));
+    PdfPTable table = new PdfPTable(7);
+    table.setWidthPercentage(100);
+    table.setWidths(new float[]{0.6f, 3f, 2.5f, 2.5f, 1f, 1.8f, 1.5f});
+    for (String h : new String[]{"ID", "Учащийся", "Предмет", "Учитель", "Оценка", "Тип работы", "Дата"})
+      addPdfHeaderCell(table, h, hf);
+    double sum = 0;
+    for (Grade g : grades) {
+      sum += g.getGrade();
+      addPdfCell(table, String.valueOf(g.getId()),                                      cf, Element.ALIGN_CENTER);
+      addPdfCell(table, g.getStudent().getFullname(),                                   cf, Element.ALIGN_LEFT);
+      addPdfCell(table, g.getSubject().getName(),                                       cf, Element.ALIGN_LEFT);
+      addPdfCell(table, g.getTeacher() != null ? g.getTeacher().getFullname() : "—",   cf, Element.ALIGN_LEFT);
+      addPdfCell(table, String.valueOf(g.getGrade()),                                   cf, Element.ALIGN_CENTER);
+      addPdfCell(table, g.getWorkType() != null ? workTypeLabel(g.getWorkType().name()) : "—", cf, Element.ALIGN_LEFT);
+      addPdfCell(table, g.getGradeDate() != null ? g.getGradeDate().toString() : "—",  cf, Element.ALIGN_CENTER);
+    }
+    doc.add(table);
+    if (!grades.isEmpty()) {
+      Paragraph footer = new Paragraph(
+              String.format("Всего: %d   |   Средний балл: %.2f", grades.size(), sum / grades.size()), sf);
+      footer.setSpacingBefore(8);
+      footer.setAlignment(Element.ALIGN_RIGHT);
+      doc.add(footer);
+    }
+    doc.close();
+  }
+
+  // ══════════════════════════════════════════════════════════════
+  //  SCHOOL — вся школа одной книгой: лист на каждую пару группа × предмет
+  // ══════════════════════════════════════════════════════════════
+
+  /**
+   * Листы готовятся параллельно в пуле выгрузок (запрос оценок и построение строк),
+   * а в книгу пишутся по порядку в текущем потоке — SXSSF не потокобезопасен.
+   */
+  public void writeSchoolGradesExcel(OutputStream out) throws IOException {
+    List<Object[]> pairs = gradeRepository.findGroupSubjectPairs();
+    String[] cols = {"ID", "Учащийся", "Учитель", "Оценка", "Тип работы", "Дата", "Комментарий"};
+
+    try (SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW)) {
+      CellStyle hs = buildHeaderStyle(wb);
+      Set<String> sheetNames = new HashSet<>();
+      renderPool.forEachOrdered(pairs, pair -> schoolSheet(pair, cols.length), data -> {
+        Sheet sheet = wb.createSheet(uniqueSheetName(data.name(), sheetNames));
+        writeHeaderRow(sheet, cols, hs, data.widths());
+        int r = 1;
+        for (Object[] values : data.rows()) {
+          Row row = sheet.createRow(r++);
+          for (int i = 0; i < values.length; i++) {
+            if (values[i] instanceof Number n) row.createCell(i).setCellValue(n.doubleValue());
+            else row.createCell(i).setCellValue((String) values[i]);
+          }
+        }
+        data.widths().apply(sheet);
+      });
+      if (pairs.isEmpty()) wb.createSheet("Оценки");
+      wb.write(out);
+    }
+  }
+
+  /** Данные одного листа, подготовленные в пуле */
+  private record SchoolSheet(String name, List<Object[]> rows, ColumnWidthEstimator widths) {}
+
+  private SchoolSheet schoolSheet(Object[] pair, int columns) {
+    List<Grade> grades = new ArrayList<>(gradeRepository.findByGroupAndSubject((Long) pair[0], (Long) pair[2]));
+    grades.sort(Comparator.comparing((Grade g) -> g.getStudent().getFullname())
+            .thenComparing(Grade::getGradeDate, Comparator.nullsLast(Comparator.naturalOrder())));
+
+    ColumnWidthEstimator widths = new ColumnWidthEstimator(columns);
+    List<Object[]> rows = new ArrayList<>(grades.size());
+    for (Grade g : grades) {
+      Object[] values = {
+              g.getId(),
+              g.getStudent().getFullname(),
+              g.getTeacher() != null ? g.getTeacher().getFullname() : "",
+              g.getGrade(),
+              g.getWorkType() != null ? workTypeLabel(g.getWorkType().name()) : "",
+              g.getGradeDate() != null ? g.getGradeDate().toString() : "",
+              g.getComment() != null ? g.getComment() : ""
+      };
+      for (int i = 0; i < values.length; i++) widths.track(i, String.valueOf(values[i]));
+      rows.add(values);
+    }
+    return new SchoolSheet(pair[1] + " — " + pair[3], rows, widths);
+  }
+
+  /** Имя листа: не длиннее 31 символа, без запрещённых знаков и без повторов */
+  private String uniqueSheetName(String name, Set<String> used) {
+    String base = WorkbookUtil.createSafeSheetName(name);
+    String candidate = base;
+    for (int n = 2; !used.add(candidate.toLowerCase()); n++) {
+      String suffix = " (" + n + ")";
+      candidate = base.substring(0, Math.min(base.length(), 31 - suffix.length())) + suffix;
+    }
+    return candidate;
+  }
+
+  // ══════════════════════════════════════════════════════════════
+  //  REPORT CARDS — табели учащихся одним ZIP-архивом
+  // ══════════════════════════════════════════════════════════════
+
+  /**
+   * Табели группы (или всей школы, если groupId не задан) в ZIP. PDF каждого учащегося
+   * строится в пуле выгрузок, а в архив пишется по порядку в текущем потоке;
+   * в памяти одновременно только окно готовых табелей. Поток out не закрывается.
+   */
+  public void writeReportCardsZip(Long groupId, OutputStream out) throws IOException {
+    List<Student> students = new ArrayList<>(
+            groupId != null ? studentRepository.findByGroupId(groupId) : studentRepository.findAll());
+    students.sort(Comparator.comparing(this::safeGroupName).thenComparing(Student::getFullname));
+    List<Long> ids = students.stream().map(Student::getId).toList();
+
+    ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+    zip.setLevel(Deflater.BEST_SPEED); // PDF уже сжат, тратить CPU на deflate нет смысла
+    renderPool.forEachOrdered(ids, this::reportCard, card -> {
+      if (card == null) return; // учащегося удалили, пока строился архив
+      zip.putNextEntry(new ZipEntry(card.fileName()));
+      zip.write(card.pdf());
+      zip.closeEntry();
+    });
+    zip.finish();
+  }
+
+  /** Готовый табель: путь внутри архива и содержимое */
+  private record ReportCard(String fileName, byte[] pdf) {}
+
+  private ReportCard reportCard(Long studentId) {
+    Student st = studentRepository.findById(studentId).orElse(null);
+    if (st == null) return null;
+    List<Grade> grades = gradeRepository.findByStudentId(studentId);
+    List<Attendance> att = attendanceRepository.findByStudentId(studentId);
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(16 * 1024);
+    reportCardToPdf(st, grades, att, buf);
+    String folder = st.getGroup() != null ? zipSafe(st.getGroup().getName()) + "/" : "";
+    return new ReportCard(folder + zipSafe(st.getFullname()) + "_" + st.getId() + ".pdf", buf.toByteArray());
+  }
+
+  private void reportCardToPdf(Student st, List<Grade> grades, List<Attendance> att, OutputStream out) {
+    Document doc = new Document(PageSize.A4, 40, 40, 40, 40);
+    PdfWriter.getInstance(doc, out).setCloseStream(false);
+    doc.open();
+    com.lowagie.text.Font tf = pdfStyles.font(14, com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font hf = pdfStyles.font(10, com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font cf = pdfStyles.font(10, com.lowagie.text.Font.NORMAL);
+    com.lowagie.text.Font sf = pdfStyles.font(10, com.lowagie.text.Font.ITALIC);
+    addPdfTitle(doc, "Табель успеваемости", tf);
+    addPdfSubtitle(doc, "Учащийся: " + st.getFullname() + "   Группа: " + safeGroupName(st), sf);
+    doc.add(new Paragraph(" "));
+
+    Map<String, List<Grade>> bySubject = new TreeMap<>();
+    for (Grade g : grades) bySubject.computeIfAbsent(g.getSubject().getName(), k -> new ArrayList<>()).add(g);
+
+    PdfPTable table = new PdfPTable(4);
+    table.setWidthPercentage(100);
+    table.setWidths(new float[]{3f, 5f, 1.5f, 1.5f});
+    for (String h : new String[]{"Предмет", "Оценки", "Средний балл", "Итоговая"}) addPdfHeaderCell(table, h, hf);
+    for (Map.Entry<String, List<Grade>> e : bySubject.entrySet()) {
+      List<Grade> sg = e.getValue();
+      sg.sort(Comparator.comparing(Grade::getGradeDate, Comparator.nullsLast(Comparator.naturalOrder())));
+      String marks = sg.stream().map(g -> String.valueOf(g.getGrade())).collect(java.util.stream.Collectors.joining(", "));
+      double avg = sg.stream().mapToInt(Grade::getGrade).average().orElse(0);
+      String fin = sg.stream().filter(g -> g.getWorkType() == WorkType.FINAL)
+              .reduce((a, b) -> b).map(g -> String.valueOf(g.getGrade())).orElse("—");
+      addPdfCell(table, e.getKey(),                     cf, Element.ALIGN_LEFT);
+      addPdfCell(table, marks,                          cf, Element.ALIGN_LEFT);
+      addPdfCell(table, String.format("%.2f", avg),     cf, Element.ALIGN_CENTER);
+      addPdfCell(table, fin,                            cf, Element.ALIGN_CENTER);
+    }
+    doc.add(table);
+
+    long absences = att.stream().filter(a -> a.getStatus() == AttendanceStatus.ABSENT || a.getStatus() == AttendanceStatus.EXCUSED).count();
+    long excused  = att.stream().filter(a -> a.getStatus() == AttendanceStatus.EXCUSED).count();
+    long lates    = att.stream().filter(a -> a.getStatus() == AttendanceStatus.LATE).count();
+    Paragraph attendance = new Paragraph(String.format(
+            "Пропусков: %d (по уважительной причине: %d)   Опозданий: %d", absences, excused, lates), cf);
+    attendance.setSpacingBefore(10);
+    doc.add(attendance);
+    if (!grades.isEmpty()) {
+      Paragraph footer = new Paragraph(String.format("Общий средний балл: %.2f",
+              grades.stream().mapToInt(Grade::getGrade).average().orElse(0)), sf);
+      footer.setSpacingBefore(8);
+      footer.setAlignment(Element.ALIGN_RIGHT);
+      doc.add(footer);
     }
+    doc.close();
+  }
+
+  /** Имя файла в архиве без разделителей путей и знаков, запрещённых в Windows */
+  private String zipSafe(String name) {
+    return name.replaceAll("[\\\\/:*?\"<>|]", "_").trim();
   }
 
   // ══════════════════════════════════════════════════════════════
   //  STATISTICS
   // ══════════════════════════════════════════════════════════════
 
-  public byte[] exportStatisticsToExcel(Long groupId) throws IOException {
-    List<Student>    students  = groupId != null ? studentRepository.findByGroupId(groupId) : studentRepository.findAll();
-    List<Grade>      allGrades = gradeRepository.findAll();
-    List<Attendance> allAtt    = attendanceRepository.findAll();
+  public void writeStatisticsExcel(Long groupId, OutputStream out) throws IOException {
+    List<Student> students = groupId != null ? studentRepository.findByGroupId(groupId) : studentRepository.findAll();
+    Map<Long, StudentRisk> risks = riskScoringService.risks(students.stream().map(Student::getId).toList());
 
-    try (Workbook wb = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+    try (SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW)) {
       Sheet sheet = wb.createSheet("Статистика");
       CellStyle hs = buildHeaderStyle(wb);
       String[] cols = {"Учащийся","Группа","Средний балл","Плохих оценок","Всего оценок","Пропуски","Всего посещений","Опозданий","Статус риска"};
-      writeHeaderRow(sheet, cols, hs);
+      ColumnWidthEstimator widths = new ColumnWidthEstimator(cols.length);
+      writeHeaderRow(sheet, cols, hs, widths);
 
       CellStyle highStyle = wb.createCellStyle();
       highStyle.setFillForegroundColor(IndexedColors.ROSE.getIndex());
@@ -156,84 +334,66 @@ public class ExportService {
 
       int r = 1;
       for (Student st : students) {
-        List<Grade>      sg = allGrades.stream().filter(g -> g.getStudent().getId().equals(st.getId())).toList();
-        List<Attendance> sa = allAtt.stream().filter(a -> a.getStudent().getId().equals(st.getId())).toList();
-        double avg       = sg.isEmpty() ? 0.0 : Math.round(sg.stream().mapToInt(Grade::getGrade).average().orElse(0) * 100.0) / 100.0;
-        long badGrades   = sg.stream().filter(g -> g.getGrade() < 5).count();
-        long absences    = sa.stream().filter(a -> a.getStatus() == AttendanceStatus.ABSENT || a.getStatus() == AttendanceStatus.EXCUSED).count();
-        long lates       = sa.stream().filter(a -> a.getStatus() == AttendanceStatus.LATE).count();
-        String risk      = riskLabel(avg, absences, badGrades);
+        StudentRisk risk = risks.get(st.getId());
+        if (risk == null) continue; // учащийся удалён после чтения списка
 
         Row row = sheet.createRow(r++);
-        row.createCell(0).setCellValue(st.getFullname());
-        row.createCell(1).setCellValue(st.getGroup() != null ? st.getGroup().getName() : "");
-        row.createCell(2).setCellValue(sg.isEmpty() ? "" : String.valueOf(avg));
-        row.createCell(3).setCellValue(badGrades);
-        row.createCell(4).setCellValue(sg.size());
-        row.createCell(5).setCellValue(absences);
-        row.createCell(6).setCellValue(sa.size());
-        row.createCell(7).setCellValue(lates);
-        Cell riskCell = row.createCell(8);
-        riskCell.setCellValue(risk);
-        if ("Высокий риск".equals(risk))          riskCell.setCellStyle(highStyle);
-        else if ("Требует внимания".equals(risk))  riskCell.setCellStyle(medStyle);
+        setCell(row, 0, st.getFullname(), widths);
+        setCell(row, 1, st.getGroup() != null ? st.getGroup().getName() : "", widths);
+        setCell(row, 2, risk.getAverage() != null ? String.valueOf(risk.getAverage()) : "", widths);
+        setCell(row, 3, risk.getBadGrades(), widths);
+        setCell(row, 4, risk.getTotalGrades(), widths);
+        setCell(row, 5, risk.getAbsences(), widths);
+        setCell(row, 6, risk.getAttendanceTotal(), widths);
+        setCell(row, 7, risk.getLates(), widths);
+        Cell riskCell = setCell(row, 8, risk.getRiskLevel().label(), widths);
+        if (risk.getRiskLevel() == RiskLevel.HIGH)        riskCell.setCellStyle(highStyle);
+        else if (risk.getRiskLevel() == RiskLevel.MEDIUM) riskCell.setCellStyle(medStyle);
       }
-      for (int i = 0; i < cols.length; i++) sheet.autoSizeColumn(i);
+      widths.apply(sheet);
       wb.write(out);
-      return out.toByteArray();
     }
   }
 
-  public byte[] exportStatisticsToPdf(Long groupId) throws IOException {
-    List<Student>    students  = groupId != null ? studentRepository.findByGroupId(groupId) : studentRepository.findAll();
-    List<Grade>      allGrades = gradeRepository.findAll();
-    List<Attendance> allAtt    = attendanceRepository.findAll();
-
-    try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-      Document doc = new Document(PageSize.A4.rotate(), 25, 25, 25, 25);
-      PdfWriter.getInstance(doc, out);
-      doc.open();
-      BaseFont bf = loadCyrillicFont();
-      com.lowagie.text.Font tf = new com.lowagie.text.Font(bf, 14, com.lowagie.text.Font.BOLD);
-      com.lowagie.text.Font hf = new com.lowagie.text.Font(bf, 8,  com.lowagie.text.Font.BOLD);
-      com.lowagie.text.Font cf = new com.lowagie.text.Font(bf, 8,  com.lowagie.text.Font.NORMAL);
-      com.lowagie.text.Font sf = new com.lowagie.text.Font(bf, 8,  com.lowagie.text.Font.ITALIC);
-      addPdfTitle(doc, "Статистика успеваемости и посещаемости", tf);
-      doc.add(new Paragraph(" "));
-      PdfPTable table = new PdfPTable(9);
-      table.setWidthPercentage(100);
-      table.setWidths(new float[]{3f, 2f, 1.4f, 1.4f, 1.4f, 1.4f, 1.6f, 1.2f, 2f});
-      for (String h : new String[]{"Учащийся","Группа","Ср.балл","Плохих","Всего оц.","Пропуски","Всего пос.","Опозд.","Риск"})
-        addPdfHeaderCell(table, h, hf);
-      Color highColor = new Color(255, 200, 200);
-      Color medColor  = new Color(255, 245, 180);
-      for (Student st : students) {
-        List<Grade>      sg = allGrades.stream().filter(g -> g.getStudent().getId().equals(st.getId())).toList();
-        List<Attendance> sa = allAtt.stream().filter(a -> a.getStudent().getId().equals(st.getId())).toList();
-        double avg     = sg.isEmpty() ? 0.0 : Math.round(sg.stream().mapToInt(Grade::getGrade).average().orElse(0) * 100.0) / 100.0;
-        long badGrades = sg.stream().filter(g -> g.getGrade() < 5).count();
-        long absences  = sa.stream().filter(a -> a.getStatus() == AttendanceStatus.ABSENT || a.getStatus() == AttendanceStatus.EXCUSED).count();
-        long lates     = sa.stream().filter(a -> a.getStatus() == AttendanceStatus.LATE).count();
-        String risk    = riskLabel(avg, absences, badGrades);
-        Color rowBg = "Высокий риск".equals(risk) ? highColor : "Требует внимания".equals(risk) ? medColor : null;
-        addPdfCellC(table, st.getFullname(),                                     cf, Element.ALIGN_LEFT,   rowBg);
-        addPdfCellC(table, st.getGroup() != null ? st.getGroup().getName() : "—",cf, Element.ALIGN_LEFT,   rowBg);
-        addPdfCellC(table, sg.isEmpty() ? "—" : String.valueOf(avg),             cf, Element.ALIGN_CENTER, rowBg);
-        addPdfCellC(table, String.valueOf(badGrades),                             cf, Element.ALIGN_CENTER, rowBg);
-        addPdfCellC(table, String.valueOf(sg.size()),                             cf, Element.ALIGN_CENTER, rowBg);
-        addPdfCellC(table, String.valueOf(absences),                              cf, Element.ALIGN_CENTER, rowBg);
-        addPdfCellC(table, String.valueOf(sa.size()),                             cf, Element.ALIGN_CENTER, rowBg);
-        addPdfCellC(table, String.valueOf(lates),                                 cf, Element.ALIGN_CENTER, rowBg);
-        addPdfCellC(table, risk,                                                  cf, Element.ALIGN_CENTER, rowBg);
-      }
-      doc.add(table);
-      Paragraph footer = new Paragraph("Всего учащихся: " + students.size(), sf);
-      footer.setSpacingBefore(8);
-      footer.setAlignment(Element.ALIGN_RIGHT);
-      doc.add(footer);
-      doc.close();
-      return out.toByteArray();
+  public void writeStatisticsPdf(Long groupId, OutputStream out) throws IOException {
+    List<Student> students = groupId != null ? studentRepository.findByGroupId(groupId) : studentRepository.findAll();
+    Map<Long, StudentRisk> risks = riskScoringService.risks(students.stream().map(Student::getId).toList());
+
+    Document doc = new Document(PageSize.A4.rotate(), 25, 25, 25, 25);
+    PdfWriter.getInstance(doc, out).setCloseStream(false);
+    doc.open();
+    com.lowagie.text.Font tf = pdfStyles.font(14, com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font hf = pdfStyles.font(8,  com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font cf = pdfStyles.font(8,  com.lowagie.text.Font.NORMAL);
+    com.lowagie.text.Font sf = pdfStyles.font(8,  com.lowagie.text.Font.ITALIC);
+    addPdfTitle(doc, "Статистика успеваемости и посещаемости", tf);
+    doc.add(new Paragraph(" "));
+    PdfPTable table = new PdfPTable(9);
+    table.setWidthPercentage(100);
+    table.setWidths(new float[]{3f, 2f, 1.4f, 1.4f, 1.4f, 1.4f, 1.6f, 1.2f, 2f});
+    for (String h : new String[]{"Учащийся","Группа","Ср.балл","Плохих","Всего оц.","Пропуски","Всего пос.","Опозд.","Риск"})
+      addPdfHeaderCell(table, h, hf);
+    for (Student st : students) {
+      StudentRisk risk = risks.get(st.getId());
+      if (risk == null) continue; // учащийся удалён после чтения списка
+      Color rowBg = risk.getRiskLevel() == RiskLevel.HIGH ? PdfStyles.HIGH_RISK_BACKGROUND
+            : risk.getRiskLevel() == RiskLevel.MEDIUM ? PdfStyles.MEDIUM_RISK_BACKGROUND : null;
+      addPdfCellC(table, st.getFullname(),                                     cf, Element.ALIGN_LEFT,   rowBg);
+      addPdfCellC(table, st.getGroup() != null ? st.getGroup().getName() : "—",cf, Element.ALIGN_LEFT,   rowBg);
+      addPdfCellC(table, risk.getAverage() != null ? String.valueOf(risk.getAverage()) : "—", cf, Element.ALIGN_CENTER, rowBg);
+      addPdfCellC(table, String.valueOf(risk.getBadGrades()),                   cf, Element.ALIGN_CENTER, rowBg);
+      addPdfCellC(table, String.valueOf(risk.getTotalGrades()),                 cf, Element.ALIGN_CENTER, rowBg);
+      addPdfCellC(table, String.valueOf(risk.getAbsences()),                    cf, Element.ALIGN_CENTER, rowBg);
+      addPdfCellC(table, String.valueOf(risk.getAttendanceTotal()),             cf, Element.ALIGN_CENTER, rowBg);
+      addPdfCellC(table, String.valueOf(risk.getLates()),                       cf, Element.ALIGN_CENTER, rowBg);
+      addPdfCellC(table, risk.getRiskLevel().label(),                           cf, Element.ALIGN_CENTER, rowBg);
     }
+    doc.add(table);
+    Paragraph footer = new Paragraph("Всего учащихся: " + students.size(), sf);
+    footer.setSpacingBefore(8);
+    footer.setAlignment(Element.ALIGN_RIGHT);
+    doc.add(footer);
+    doc.close();
   }
 
   // ══════════════════════════════════════════════════════════════
@@ -241,79 +401,85 @@ public class ExportService {
   // ══════════════════════════════════════════════════════════════
 
   public byte[] exportFilterResultsToExcel(String entityLabel, List<Map<String, Object>> rows) throws IOException {
-    try (Workbook wb = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+    return toBytes(out -> writeFilterResultsExcel(entityLabel, rows, out));
+  }
+
+  public byte[] exportFilterResultsToPdf(String entityLabel, List<Map<String, Object>> rows) throws IOException {
+    return toBytes(out -> writeFilterResultsPdf(entityLabel, rows, out));
+  }
+
+  public void writeFilterResultsExcel(String entityLabel, List<Map<String, Object>> rows, OutputStream out) throws IOException {
+    try (SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW)) {
       Sheet sheet = wb.createSheet("Результаты");
-      if (rows.isEmpty()) { wb.write(out); return out.toByteArray(); }
+      if (rows.isEmpty()) { wb.write(out); return; }
 
       List<String> cols = new java.util.ArrayList<>(rows.get(0).keySet());
       CellStyle hs = buildHeaderStyle(wb);
-      Row header = sheet.createRow(0);
-      for (int i = 0; i < cols.size(); i++) {
-        Cell cell = header.createCell(i);
-        cell.setCellValue(cols.get(i));
-        cell.setCellStyle(hs);
-      }
+      ColumnWidthEstimator widths = new ColumnWidthEstimator(cols.size());
+      writeHeaderRow(sheet, cols.toArray(String[]::new), hs, widths);
       int r = 1;
       for (Map<String, Object> row : rows) {
         Row exRow = sheet.createRow(r++);
         for (int i = 0; i < cols.size(); i++) {
           Object val = row.get(cols.get(i));
-          exRow.createCell(i).setCellValue(val != null ? val.toString() : "");
+          setCell(exRow, i, val != null ? val.toString() : "", widths);
         }
       }
-      for (int i = 0; i < cols.size(); i++) sheet.autoSizeColumn(i);
+      widths.apply(sheet);
       wb.write(out);
-      return out.toByteArray();
     }
   }
 
-  public byte[] exportFilterResultsToPdf(String entityLabel, List<Map<String, Object>> rows) throws IOException {
-    try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-      Document doc = new Document(PageSize.A4.rotate(), 20, 20, 20, 20);
-      PdfWriter.getInstance(doc, out);
-      doc.open();
-      BaseFont bf = loadCyrillicFont();
-      com.lowagie.text.Font tf = new com.lowagie.text.Font(bf, 13, com.lowagie.text.Font.BOLD);
-      com.lowagie.text.Font hf = new com.lowagie.text.Font(bf, 8,  com.lowagie.text.Font.BOLD);
-      com.lowagie.text.Font cf = new com.lowagie.text.Font(bf, 8,  com.lowagie.text.Font.NORMAL);
-      com.lowagie.text.Font sf = new com.lowagie.text.Font(bf, 8,  com.lowagie.text.Font.ITALIC);
-      addPdfTitle(doc, "Результаты фильтрации: " + entityLabel, tf);
-      doc.add(new Paragraph(" "));
-
-      if (rows.isEmpty()) {
-        doc.add(new Paragraph("Нет данных", cf));
-        doc.close();
-        return out.toByteArray();
-      }
+  public void writeFilterResultsPdf(String entityLabel, List<Map<String, Object>> rows, OutputStream out) throws IOException {
+    Document doc = new Document(PageSize.A4.rotate(), 20, 20, 20, 20);
+    PdfWriter.getInstance(doc, out).setCloseStream(false);
+    doc.open();
+    com.lowagie.text.Font tf = pdfStyles.font(13, com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font hf = pdfStyles.font(8,  com.lowagie.text.Font.BOLD);
+    com.lowagie.text.Font cf = pdfStyles.font(8,  com.lowagie.text.Font.NORMAL);
+    com.lowagie.text.Font sf = pdfStyles.font(8,  com.lowagie.text.Font.ITALIC);
+    addPdfTitle(doc, "Результаты фильтрации: " + entityLabel, tf);
+    doc.add(new Paragraph(" "));
+
+    if (rows.isEmpty()) {
+      doc.add(new Paragraph("Нет данных", cf));
+      doc.close();
+      return;
+    }
 
-      List<String> cols = new java.util.ArrayList<>(rows.get(0).keySet());
-      PdfPTable table = new PdfPTable(cols.size());
-      table.setWidthPercentage(100);
-      for (String col : cols) addPdfHeaderCell(table, col, hf);
-      for (Map<String, Object> row : rows) {
-        for (String col : cols) {
-          Object val = row.get(col);
-          addPdfCell(table, val != null ? val.toString() : "—", cf, Element.ALIGN_LEFT);
-        }
+    List<String> cols = new java.util.ArrayList<>(rows.get(0).keySet());
+    PdfPTable table = new PdfPTable(cols.size());
+    table.setWidthPercentage(100);
+    for (String col : cols) addPdfHeaderCell(table, col, hf);
+    for (Map<String, Object> row : rows) {
+      for (String col : cols) {
+        Object val = row.get(col);
+        addPdfCell(table, val != null ? val.toString() : "—", cf, Element.ALIGN_LEFT);
       }
-      doc.add(table);
-      Paragraph footer = new Paragraph("Всего строк: " + rows.size(), sf);
-      footer.setSpacingBefore(8);
-      footer.setAlignment(Element.ALIGN_RIGHT);
-      doc.add(footer);
-      doc.close();
-      return out.toByteArray();
     }
+    doc.add(table);
+    Paragraph footer = new Paragraph("Всего строк: " + rows.size(), sf);
+    footer.setSpacingBefore(8);
+    footer.setAlignment(Element.ALIGN_RIGHT);
+    doc.add(footer);
+    doc.close();
   }
 
   // ══════════════════════════════════════════════════════════════
   //  Helpers
   // ══════════════════════════════════════════════════════════════
 
-  private String riskLabel(double avg, long absences, long badGrades) {
-    if (avg < 4 || absences >= 10)                  return "Высокий риск";
-    if (avg < 6 || absences >= 5 || badGrades >= 3) return "Требует внимания";
-    return "Норма";
+  /** Генератор, пишущий документ в поток */
+  @FunctionalInterface
+  private interface Renderer {
+    void render(OutputStream out) throws IOException;
+  }
+
+  /** Результаты фильтра отдаются как byte[]; остальные выгрузки пишутся сразу в поток или файл */
+  private byte[] toBytes(Renderer renderer) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    renderer.render(out);
+    return out.toByteArray();
   }
 
   private String safeGroupName(Student s) {
@@ -329,13 +495,28 @@ public class ExportService {
     return s;
   }
 
-  private void writeHeaderRow(Sheet sheet, String[] cols, CellStyle style) {
+  private void writeHeaderRow(Sheet sheet, String[] cols, CellStyle style, ColumnWidthEstimator widths) {
     Row header = sheet.createRow(0);
     for (int i = 0; i < cols.length; i++) {
       Cell cell = header.createCell(i); cell.setCellValue(cols[i]); cell.setCellStyle(style);
+      widths.trackHeader(i, cols[i]);
     }
   }
 
+  private Cell setCell(Row row, int col, String value, ColumnWidthEstimator widths) {
+    Cell cell = row.createCell(col);
+    cell.setCellValue(value);
+    widths.track(col, value);
+    return cell;
+  }
+
+  private Cell setCell(Row row, int col, long value, ColumnWidthEstimator widths) {
+    Cell cell = row.createCell(col);
+    cell.setCellValue(value);
+    widths.track(col, value);
+    return cell;
+  }
+
   private void addPdfTitle(Document doc, String text, com.lowagie.text.Font font) throws DocumentException {
     Paragraph p = new Paragraph(text, font); p.setAlignment(Element.ALIGN_CENTER); doc.add(p);
   }
@@ -346,7 +527,7 @@ public class ExportService {
 
   private void addPdfHeaderCell(PdfPTable table, String text, com.lowagie.text.Font font) {
     PdfPCell cell = new PdfPCell(new Phrase(text, font));
-    cell.setBackgroundColor(new Color(180, 210, 240));
+    cell.setBackgroundColor(PdfStyles.HEADER_BACKGROUND);
     cell.setPadding(5); cell.setHorizontalAlignment(Element.ALIGN_CENTER);
     table.addCell(cell);
   }
@@ -362,24 +543,6 @@ public class ExportService {
     table.addCell(cell);
   }
 
-  private BaseFont loadCyrillicFont() {
-    try (InputStream is = getClass().getResourceAsStream("/fonts/FreeSans.ttf")) {
-      if (is != null) {
-        byte[] bytes = is.readAllBytes();
-        return BaseFont.createFont("FreeSans.ttf", BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true, bytes, null);
-      }
-    } catch (Exception ignored) {}
-    for (String path : new String[]{
-            "/usr/share/fonts/truetype/freefont/FreeSans.ttf",
-            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
-            "/usr/share/fonts/truetype/liberation/LiberationSans-Regular.ttf",
-            "/usr/share/fonts/dejavu/DejaVuSans.ttf",
-            "C:/Windows/Fonts/arial.ttf", "C:/Windows/Fonts/ArialUni.ttf"
-    }) { try { return BaseFont.createFont(path, BaseFont.IDENTITY_H, BaseFont.EMBEDDED); } catch (Exception ignored) {} }
-    try { return BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED); }
-    catch (Exception e) { throw new RuntimeException("Cannot load any font for PDF", e); }
-  }
-
   private String workTypeLabel(String type) {
     return switch (type) {
       case "CURRENT" -> "Текущая"; case "CONTROL" -> "Контрольная";
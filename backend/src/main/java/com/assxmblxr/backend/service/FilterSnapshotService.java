@@ -0,0 +1,127 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.dto.FilterExecuteRequest;
+import com.assxmblxr.backend.dto.FilterSortDto;
+import com.assxmblxr.backend.exceptions.FilterSnapshotException;
+import com.assxmblxr.backend.filter.EntityRegistry;
+import com.assxmblxr.backend.filter.ResultSnapshot;
+import com.assxmblxr.backend.repository.GenericFilterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Снимки результатов фильтрации. Фильтр выполняется один раз и отдаёт только id; дальше
+ * страницы, другие сортировки и выгрузки читают сущности по первичному ключу порциями
+ * и не пересчитывают ни условие фильтра, ни число строк.
+ * <p>
+ * Снимки живут в памяти, принадлежат пользователю и удаляются, если к ним не обращались
+ * дольше TTL. У пользователя не больше {@code max-per-user} снимков — новый вытесняет самый старый.
+ */
+@Slf4j
+@Service
+public class FilterSnapshotService {
+  private final GenericFilterRepository filterRepository;
+  private final Duration ttl;
+  private final int maxRows;
+  private final int maxPerUser;
+
+  private final Map<String, ResultSnapshot> snapshots = new ConcurrentHashMap<>();
+
+  public FilterSnapshotService(GenericFilterRepository filterRepository,
+                               @Value("${filter.snapshot.ttl-minutes:15}") long ttlMinutes,
+                               @Value("${filter.snapshot.max-rows:1000000}") int maxRows,
+                               @Value("${filter.snapshot.max-per-user:5}") int maxPerUser) {
+    this.filterRepository = filterRepository;
+    this.ttl = Duration.ofMinutes(ttlMinutes);
+    this.maxRows = maxRows;
+    this.maxPerUser = maxPerUser;
+  }
+
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  /**
+   * Выполняет фильтр и запоминает id подходящих сущностей.
+   * @throws IllegalArgumentException для агрегатного запроса: у групп нет id
+   */
+  public ResultSnapshot create(FilterExecuteRequest request, String owner) {
+    if (request.isAggregate()) {
+      throw new IllegalArgumentException("Снимок строится только для выборки сущностей, не для агрегатов");
+    }
+    Class<?> entityClass = EntityRegistry.resolve(request.getRootEntity());
+    EntityRegistry.checkSortable(entityClass, request.getSort());
+    long started = System.currentTimeMillis();
+    long[] ids = filterRepository.matchingIds(entityClass, request.getBlocks(), request.getSort(), maxRows);
+
+    ResultSnapshot snapshot = new ResultSnapshot(UUID.randomUUID().toString(), owner, request.getRootEntity(),
+            entityClass, request.getSort(), ids);
+    evictOldest(owner);
+    snapshots.put(snapshot.getId(), snapshot);
+    log.debug("Filter snapshot {} for {}: {} rows in {} ms", snapshot.getId(), owner, ids.length,
+            System.currentTimeMillis() - started);
+    return snapshot;
+  }
+
+  /** Снимок владельца; чужие и истёкшие снимки для него не существуют */
+  public ResultSnapshot get(String id, String owner) {
+    ResultSnapshot snapshot = snapshots.get(id);
+    if (snapshot == null || !snapshot.getOwner().equals(owner) || snapshot.isExpired(ttl)) {
+      throw new FilterSnapshotException("Снимок не найден или истёк", id);
+    }
+    snapshot.touch();
+    return snapshot;
+  }
+
+  /**
+   * Страница снимка. Без {@code sort} — в порядке исходного запроса; с другой сортировкой
+   * id снимка один раз пересортировываются запросом к БД.
+   */
+  public Page<Map<String, Object>> page(String id, String owner, int page, int size, List<FilterSortDto> sort) {
+    ResultSnapshot snapshot = get(id, owner);
+    long[] ordered = ordered(snapshot, sort);
+    int from = (int) Math.min((long) page * size, ordered.length);
+    int to = Math.min(from + size, ordered.length);
+    List<Map<String, Object>> rows = filterRepository.rowsByIds(snapshot.getEntityClass(), ordered, from, to);
+    return new PageImpl<>(rows, PageRequest.of(page, size), ordered.length);
+  }
+
+  /** Все строки снимка для выгрузки */
+  public List<Map<String, Object>> allRows(String id, String owner, List<FilterSortDto> sort) {
+    ResultSnapshot snapshot = get(id, owner);
+    long[] ordered = ordered(snapshot, sort);
+    return filterRepository.rowsByIds(snapshot.getEntityClass(), ordered, 0, ordered.length);
+  }
+
+  public boolean delete(String id, String owner) {
+    ResultSnapshot snapshot = snapshots.get(id);
+    return snapshot != null && snapshot.getOwner().equals(owner) && snapshots.remove(id, snapshot);
+  }
+
+  /** Удаляет снимки, к которым не обращались дольше TTL */
+  @Scheduled(fixedRate = 60_000)
+  public void cleanupExpired() {
+    snapshots.values().removeIf(snapshot -> snapshot.isExpired(ttl));
+  }
+
+  private long[] ordered(ResultSnapshot snapshot, List<FilterSortDto> sort) {
+    return snapshot.ordered(sort, () -> filterRepository.orderedIds(snapshot.getEntityClass(), sort, snapshot.getIds()));
+  }
+
+  private void evictOldest(String owner) {
+    List<ResultSnapshot> own = snapshots.values().stream()
+            .filter(s -> s.getOwner().equals(owner))
+            .sorted(Comparator.comparing(ResultSnapshot::getLastAccess))
+            .toList();
+    for (int i = 0; i <= own.size() - maxPerUser; i++) snapshots.remove(own.get(i).getId());
+  }
+}
\ No newline at end of file
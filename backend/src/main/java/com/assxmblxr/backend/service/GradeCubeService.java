@@ -0,0 +1,154 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.analytics.GradeCube;
+import com.assxmblxr.backend.entity.*;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.repository.GradeRepository;
+import com.assxmblxr.backend.repository.StudentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Загружает {@link GradeCube} при старте и поддерживает его по закоммиченным записям
+ * оценок и учащихся. До окончания первой загрузки куба нет — аналитика идёт в БД.
+ * <p>
+ * События применяются в отдельном потоке по одному: поток, закоммитивший запись,
+ * не ждёт ни запроса строки куба, ни полной перезагрузки после каскадного удаления.
+ */
+@Slf4j
+@Service
+public class GradeCubeService {
+  private final GradeRepository gradeRepository;
+  private final StudentRepository studentRepository;
+  private final TransactionTemplate readOnlyTx;
+
+  private final GradeCube cube = new GradeCube();
+  private volatile boolean ready;
+
+  private final ExecutorService updater = Executors.newSingleThreadExecutor(r -> new Thread(r, "grade-cube-updater"));
+  /** Перезагрузка и применение событий не пересекаются */
+  private final ReentrantLock updates = new ReentrantLock();
+  /** Перезагрузка уже в очереди — следующие каскадные удаления её не дублируют */
+  private final AtomicBoolean reloadQueued = new AtomicBoolean();
+
+  public GradeCubeService(GradeRepository gradeRepository, StudentRepository studentRepository,
+                          PlatformTransactionManager transactionManager) {
+    this.gradeRepository = gradeRepository;
+    this.studentRepository = studentRepository;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
+
+  /** Куб, если он загружен */
+  public Optional<GradeCube> cube() {
+    return ready ? Optional.of(cube) : Optional.empty();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onReady() {
+    scheduleReload();
+  }
+
+  /**
+   * Полная перезагрузка. Исключает применение событий: запись, закоммиченная во время
+   * загрузки, применяется после неё повторно, а повторное применение безвредно.
+   */
+  public void reload() {
+    updates.lock();
+    try {
+      reloadQueued.set(false);
+      long started = System.currentTimeMillis();
+      readOnlyTx.executeWithoutResult(status -> cube.reload(sink -> {
+        for (Object[] row : studentRepository.findGroupAssignments()) {
+          sink.studentGroup((Long) row[0], (Long) row[1]);
+        }
+        try (Stream<Object[]> rows = gradeRepository.streamCubeRows()) {
+          rows.forEach(row -> sink.grade((Long) row[0], (Long) row[1], (Long) row[2], (Integer) row[3],
+                  (WorkType) row[4], (LocalDate) row[5]));
+        }
+      }));
+      ready = true;
+      log.info("Grade cube loaded: {} grades in {} ms", cube.size(), System.currentTimeMillis() - started);
+    } finally {
+      updates.unlock();
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    Class<?> type = event.entityType();
+    if (event.operation() == ChangeOperation.DELETE
+            && (type == Subject.class || type == Teacher.class || type == Group.class)) {
+      // каскадное удаление оценок, которое по событию не восстановить
+      scheduleReload();
+    } else if (type == Grade.class || type == Student.class) {
+      updater.execute(() -> apply(event));
+    }
+  }
+
+  private void scheduleReload() {
+    if (reloadQueued.compareAndSet(false, true)) updater.execute(this::reloadQuietly);
+  }
+
+  private void reloadQuietly() {
+    try {
+      reload();
+    } catch (RuntimeException e) {
+      log.warn("Grade cube reload failed: {}", e.getMessage(), e);
+    }
+  }
+
+  /** Если строку прочитать не удалось, куб перезагружается целиком, чтобы не остаться устаревшим */
+  private void apply(EntityChangedEvent event) {
+    updates.lock();
+    try {
+      if (!ready) return; // загрузка ещё впереди и увидит это изменение
+      Class<?> type = event.entityType();
+      Long id = event.entityId();
+      if (type == Grade.class && id != null) {
+        if (event.operation() == ChangeOperation.DELETE) {
+          cube.remove(id);
+          return;
+        }
+        List<Object[]> rows = gradeRepository.findCubeRow(id);
+        if (rows.isEmpty()) {
+          cube.remove(id);
+        } else {
+          Object[] row = rows.get(0);
+          cube.upsert(id, (Long) row[1], (Long) row[2], (Integer) row[3], (WorkType) row[4], (LocalDate) row[5]);
+        }
+      } else if (type == Student.class && id != null) {
+        if (event.operation() == ChangeOperation.DELETE) {
+          cube.removeStudent(id);
+        } else {
+          studentRepository.findGroupIdById(id).ifPresent(groupId -> cube.setStudentGroup(id, groupId));
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn("Grade cube update failed, reloading: {}", e.getMessage(), e);
+      scheduleReload();
+    } finally {
+      updates.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    updater.shutdownNow();
+  }
+}
\ No newline at end of file
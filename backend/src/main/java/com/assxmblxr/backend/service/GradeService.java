@@ -3,25 +3,31 @@ package com.assxmblxr.backend.service;
 import com.assxmblxr.backend.dto.GradeRequest;
 import com.assxmblxr.backend.dto.GradeResponse;
 import com.assxmblxr.backend.dto.PageResponse;
+import com.assxmblxr.backend.entity.ChangeOperation;
 import com.assxmblxr.backend.entity.Grade;
 import com.assxmblxr.backend.entity.Student;
 import com.assxmblxr.backend.entity.Subject;
 import com.assxmblxr.backend.entity.Teacher;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.events.EntityChangedEvent.Scope;
 import com.assxmblxr.backend.exceptions.GradeException;
 import com.assxmblxr.backend.exceptions.StudentException;
 import com.assxmblxr.backend.exceptions.SubjectException;
 import com.assxmblxr.backend.exceptions.TeacherException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.repository.GradeRepository;
 import com.assxmblxr.backend.repository.StudentRepository;
 import com.assxmblxr.backend.repository.SubjectRepository;
 import com.assxmblxr.backend.repository.TeacherRepository;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,13 +37,16 @@ public class GradeService {
   private final StudentRepository studentRepository;
   private final SubjectRepository subjectRepository;
   private final TeacherRepository teacherRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   public GradeService(GradeRepository gradeRepository, StudentRepository studentRepository,
-                      SubjectRepository subjectRepository, TeacherRepository teacherRepository) {
+                      SubjectRepository subjectRepository, TeacherRepository teacherRepository,
+                      ApplicationEventPublisher eventPublisher) {
     this.gradeRepository = gradeRepository;
     this.studentRepository = studentRepository;
     this.subjectRepository = subjectRepository;
     this.teacherRepository = teacherRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   @Transactional
@@ -50,13 +59,17 @@ public class GradeService {
     grade.setWorkType(request.getWorkType());
     grade.setGradeDate(request.getGradeDate() != null ? request.getGradeDate() : LocalDate.now());
     grade.setComment(request.getComment());
-    return toResponse(gradeRepository.save(grade));
+    Grade saved = gradeRepository.save(grade);
+    eventPublisher.publishEvent(new EntityChangedEvent(Grade.class, saved.getId(), ChangeOperation.CREATE, scopeOf(saved)));
+    return toResponse(saved);
   }
 
   @Transactional
   public GradeResponse updateGrade(Long id, GradeRequest request) {
     Grade grade = gradeRepository.findById(id)
             .orElseThrow(() -> new GradeException("Оценка не найдена", id));
+    VersionConflictException.check(request.getVersion(), grade.getVersion(), id);
+    Scope before = scopeOf(grade);
     grade.setStudent(getStudentById(request.getStudentId()));
     grade.setSubject(getSubjectById(request.getSubjectId()));
     grade.setTeacher(request.getTeacherId() != null ? getTeacherById(request.getTeacherId()) : null);
@@ -64,12 +77,19 @@ public class GradeService {
     grade.setWorkType(request.getWorkType());
     if (request.getGradeDate() != null) grade.setGradeDate(request.getGradeDate());
     grade.setComment(request.getComment());
-    return toResponse(gradeRepository.save(grade));
+    Grade saved = gradeRepository.saveAndFlush(grade);
+    eventPublisher.publishEvent(new EntityChangedEvent(Grade.class, id, ChangeOperation.UPDATE,
+            before.merge(scopeOf(saved))));
+    return toResponse(saved);
   }
 
   @Transactional
   public boolean deleteGrade(Long id) {
-    return gradeRepository.findById(id).map(g -> { gradeRepository.delete(g); return true; }).orElse(false);
+    return gradeRepository.findById(id).map(g -> {
+      gradeRepository.delete(g);
+      eventPublisher.publishEvent(new EntityChangedEvent(Grade.class, id, ChangeOperation.DELETE, scopeOf(g)));
+      return true;
+    }).orElse(false);
   }
 
   // ── Pageable ──────────────────────────────────────────────────────────────
@@ -111,6 +131,11 @@ public class GradeService {
             .stream().map(this::toResponse).collect(Collectors.toList());
   }
 
+  /** Оценки по набору id; отсутствующие id просто не попадают в результат */
+  public List<GradeResponse> getGradesByIds(Collection<Long> ids) {
+    return gradeRepository.findAllById(ids).stream().map(this::toResponse).toList();
+  }
+
   // ── helpers ───────────────────────────────────────────────────────────────
 
   private PageResponse<GradeResponse> toPageResponse(Page<Grade> p) {
@@ -133,9 +158,14 @@ public class GradeService {
     r.setWorkType(grade.getWorkType());
     r.setGradeDate(grade.getGradeDate());
     r.setComment(grade.getComment());
+    r.setVersion(grade.getVersion());
     return r;
   }
 
+  private static Scope scopeOf(Grade grade) {
+    return Scope.of(grade.getStudent().getGroup().getId(), grade.getSubject().getId(), grade.getStudent().getId());
+  }
+
   private Teacher getTeacherById(Long id) {
     return teacherRepository.findById(id).orElseThrow(() -> new TeacherException("Учитель не найден", id));
   }
@@ -1,8 +1,13 @@
 package com.assxmblxr.backend.service;
 
+import com.assxmblxr.backend.entity.ChangeOperation;
 import com.assxmblxr.backend.entity.Group;
+import com.assxmblxr.backend.events.EntityChangedEvent;
 import com.assxmblxr.backend.exceptions.GroupException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.repository.GroupRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -10,9 +15,11 @@ import java.util.List;
 @Service
 public class GroupService {
   private final GroupRepository groupRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public GroupService(GroupRepository groupRepository) {
+  public GroupService(GroupRepository groupRepository, ApplicationEventPublisher eventPublisher) {
     this.groupRepository = groupRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   public Group getGroupByName(String name) {
@@ -29,19 +36,30 @@ public class GroupService {
   }
 
   public Group createGroup(Group group) {
-    return groupRepository.save(group);
+    Group saved = groupRepository.save(group);
+    eventPublisher.publishEvent(new EntityChangedEvent(Group.class, saved.getId(), ChangeOperation.CREATE));
+    return saved;
   }
 
   public Group updateGroup(Long id, Group updated) {
     Group existing = groupRepository.findById(id)
             .orElseThrow(() -> new GroupException("Группа не найдена", id));
+    VersionConflictException.check(updated.getVersion(), existing.getVersion(), id);
     existing.setName(updated.getName());
-    return groupRepository.save(existing);
+    Group saved = groupRepository.saveAndFlush(existing);
+    eventPublisher.publishEvent(new EntityChangedEvent(Group.class, id, ChangeOperation.UPDATE));
+    return saved;
   }
 
+  @Transactional
   public boolean deleteGroup(Long id) {
     return groupRepository.findById(id)
-            .map(group -> { groupRepository.delete(group); return true; })
+            .map(group -> {
+              // До удаления: журнал изменений фиксирует расписание, удаляемое каскадом
+              eventPublisher.publishEvent(new EntityChangedEvent(Group.class, id, ChangeOperation.DELETE));
+              groupRepository.delete(group);
+              return true;
+            })
             .orElse(false);
   }
 }
\ No newline at end of file
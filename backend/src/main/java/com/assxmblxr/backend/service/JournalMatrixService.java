@@ -0,0 +1,102 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.dto.JournalMatrixResponse;
+import com.assxmblxr.backend.dto.JournalMatrixResponse.AttendanceCells;
+import com.assxmblxr.backend.dto.JournalMatrixResponse.GradeCells;
+import com.assxmblxr.backend.entity.AttendanceStatus;
+import com.assxmblxr.backend.entity.Student;
+import com.assxmblxr.backend.entity.WorkType;
+import com.assxmblxr.backend.exceptions.GroupException;
+import com.assxmblxr.backend.exceptions.SubjectException;
+import com.assxmblxr.backend.repository.AttendanceRepository;
+import com.assxmblxr.backend.repository.GradeRepository;
+import com.assxmblxr.backend.repository.GroupRepository;
+import com.assxmblxr.backend.repository.StudentRepository;
+import com.assxmblxr.backend.repository.SubjectRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Журнал группы по предмету: учащиеся × даты. Собирается из двух запросов
+ * по индексам (subject_id, дата), без загрузки сущностей оценок и посещаемости.
+ * Все чтения идут в одном снимке REPEATABLE READ: учащийся, добавленный в группу между
+ * запросами, не может появиться в ячейках, которых нет в списке учащихся.
+ */
+@Service
+@RequiredArgsConstructor
+public class JournalMatrixService {
+  public static final int MAX_DAYS = 366;
+
+  private static final List<String> WORK_TYPES = Arrays.stream(WorkType.values()).map(Enum::name).toList();
+  private static final List<String> STATUSES = Arrays.stream(AttendanceStatus.values()).map(Enum::name).toList();
+
+  private final GradeRepository gradeRepository;
+  private final AttendanceRepository attendanceRepository;
+  private final StudentRepository studentRepository;
+  private final GroupRepository groupRepository;
+  private final SubjectRepository subjectRepository;
+
+  @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+  public JournalMatrixResponse getMatrix(Long groupId, Long subjectId, LocalDate from, LocalDate to) {
+    if (from.isAfter(to)) throw new IllegalArgumentException("Дата начала позже даты окончания");
+    if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+      throw new IllegalArgumentException("Период журнала не больше " + MAX_DAYS + " дней");
+    }
+    if (!groupRepository.existsById(groupId)) throw new GroupException("Группа не найдена", groupId);
+    if (!subjectRepository.existsById(subjectId)) throw new SubjectException("Предмет не найден", subjectId);
+
+    List<Student> students = studentRepository.findByGroupId(groupId, Sort.by("fullname", "id"));
+    List<Object[]> gradeRows = gradeRepository.findJournalCells(groupId, subjectId, from, to);
+    List<Object[]> attendanceRows = attendanceRepository.findJournalCells(groupId, subjectId, from, to);
+
+    Map<Long, Integer> studentIndex = new HashMap<>();
+    long[] studentIds = new long[students.size()];
+    List<String> studentNames = new ArrayList<>(students.size());
+    for (int i = 0; i < students.size(); i++) {
+      studentIds[i] = students.get(i).getId();
+      studentNames.add(students.get(i).getFullname());
+      studentIndex.put(studentIds[i], i);
+    }
+
+    TreeSet<LocalDate> dateSet = new TreeSet<>();
+    for (Object[] row : gradeRows) dateSet.add((LocalDate) row[2]);
+    for (Object[] row : attendanceRows) dateSet.add((LocalDate) row[2]);
+    List<LocalDate> dates = new ArrayList<>(dateSet);
+    Map<LocalDate, Integer> dateIndex = new HashMap<>();
+    for (int i = 0; i < dates.size(); i++) dateIndex.put(dates.get(i), i);
+
+    int n = gradeRows.size();
+    GradeCells grades = new GradeCells(new int[n], new int[n], new int[n], new int[n], new long[n], new long[n]);
+    for (int i = 0; i < n; i++) {
+      Object[] row = gradeRows.get(i);
+      WorkType workType = (WorkType) row[4];
+      grades.getId()[i] = (Long) row[0];
+      grades.getStudent()[i] = studentIndex.get((Long) row[1]);
+      grades.getDate()[i] = dateIndex.get((LocalDate) row[2]);
+      grades.getGrade()[i] = (Integer) row[3];
+      grades.getWorkType()[i] = workType != null ? workType.ordinal() : -1;
+      grades.getVersion()[i] = (Long) row[5];
+    }
+
+    int m = attendanceRows.size();
+    AttendanceCells attendance = new AttendanceCells(new int[m], new int[m], new int[m], new long[m], new long[m]);
+    for (int i = 0; i < m; i++) {
+      Object[] row = attendanceRows.get(i);
+      attendance.getId()[i] = (Long) row[0];
+      attendance.getStudent()[i] = studentIndex.get((Long) row[1]);
+      attendance.getDate()[i] = dateIndex.get((LocalDate) row[2]);
+      attendance.getStatus()[i] = ((AttendanceStatus) row[3]).ordinal();
+      attendance.getVersion()[i] = (Long) row[4];
+    }
+
+    return new JournalMatrixResponse(groupId, subjectId, from, to, studentIds, studentNames, dates,
+            WORK_TYPES, STATUSES, grades, attendance);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.dto.AttendanceResponse;
+import com.assxmblxr.backend.dto.GradeResponse;
+import com.assxmblxr.backend.dto.JournalDeltaResponse;
+import com.assxmblxr.backend.dto.ScheduleResponse;
+import com.assxmblxr.backend.entity.ChangeLogEntry;
+import com.assxmblxr.backend.entity.SyncEntityType;
+import com.assxmblxr.backend.repository.ChangeLogRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Сборка дельты журнала для клиента по токену синхронизации.
+ * <p>
+ * Токен — граница завершённых транзакций ({@code pg_snapshot_xmin}) на момент прошлого
+ * ответа, а не номер записи журнала: id выдаётся при вставке, виден при коммите, и долгая
+ * транзакция может закоммитить запись с id меньше уже выданного токена. Ответ содержит записи
+ * транзакций с номерами из [since, граница сейчас) — все они уже завершены, поэтому каждая
+ * запись попадает ровно в один ответ, сколько бы ни длилась записавшая её транзакция.
+ */
+@Service
+@RequiredArgsConstructor
+public class JournalSyncService {
+  public static final int MAX_LIMIT = 5000;
+
+  private final ChangeLogRepository changeLogRepository;
+  private final GradeService gradeService;
+  private final AttendanceService attendanceService;
+  private final ScheduleService scheduleService;
+
+  /**
+   * @param since токен из предыдущего ответа; null — у клиента нет локальной копии
+   * @param limit примерный максимум записей журнала за один ответ: транзакция между
+   *              ответами не делится, поэтому крупная транзакция отдаётся целиком
+   */
+  public JournalDeltaResponse getDelta(Long since, int limit) {
+    JournalDeltaResponse response = new JournalDeltaResponse();
+    long horizon = changeLogRepository.findTxHorizon();
+
+    if (since == null || since > horizon || purgedAfter(since)) {
+      // Нет копии, токен из будущего (БД пересоздана) или журнал уже очищен дальше токена
+      response.setToken(horizon);
+      response.setResetRequired(true);
+      return response;
+    }
+
+    int capped = Math.max(1, Math.min(limit, MAX_LIMIT));
+    List<ChangeLogEntry> entries = changeLogRepository.findByTxIdGreaterThanEqualAndTxIdLessThanOrderByTxIdAscIdAsc(
+            since, horizon, PageRequest.of(0, capped + 1));
+    boolean hasMore = entries.size() > capped;
+    long token = horizon;
+    if (hasMore) {
+      // Обрезаем по границе транзакции: следующая порция начнётся с первой не вошедшей
+      long nextTx = entries.get(capped).getTxId();
+      List<ChangeLogEntry> whole = entries.stream().filter(e -> e.getTxId() < nextTx).toList();
+      if (whole.isEmpty()) {
+        whole = changeLogRepository.findByTxIdOrderByIdAsc(nextTx);
+        token = nextTx + 1;
+      } else {
+        token = nextTx;
+      }
+      entries = whole;
+    }
+
+    Map<SyncEntityType, Set<Long>> touched = new EnumMap<>(SyncEntityType.class);
+    for (ChangeLogEntry e : entries) {
+      touched.computeIfAbsent(e.getEntityType(), k -> new LinkedHashSet<>()).add(e.getEntityId());
+    }
+
+    Set<Long> gradeIds = touched.getOrDefault(SyncEntityType.GRADE, Set.of());
+    if (!gradeIds.isEmpty()) {
+      List<GradeResponse> rows = gradeService.getGradesByIds(gradeIds);
+      response.setGrades(rows);
+      response.setDeletedGrades(missing(gradeIds, rows.stream().map(GradeResponse::getId).toList()));
+    }
+    Set<Long> attendanceIds = touched.getOrDefault(SyncEntityType.ATTENDANCE, Set.of());
+    if (!attendanceIds.isEmpty()) {
+      List<AttendanceResponse> rows = attendanceService.getByIds(attendanceIds);
+      response.setAttendance(rows);
+      response.setDeletedAttendance(missing(attendanceIds, rows.stream().map(AttendanceResponse::getId).toList()));
+    }
+    Set<Long> scheduleIds = touched.getOrDefault(SyncEntityType.SCHEDULE, Set.of());
+    if (!scheduleIds.isEmpty()) {
+      List<ScheduleResponse> rows = scheduleService.getByIds(scheduleIds);
+      response.setSchedule(rows);
+      response.setDeletedSchedule(missing(scheduleIds, rows.stream().map(ScheduleResponse::getId).toList()));
+    }
+
+    response.setToken(token);
+    response.setHasMore(hasMore);
+    return response;
+  }
+
+  /**
+   * Могли ли пропасть записи после токена: очистка удаляет самые старые записи, так что
+   * если она что-то удаляла (первая запись журнала уже не с id 1) и все оставшиеся записи
+   * новее токена, удалённые могли быть и новее него.
+   */
+  private boolean purgedAfter(long since) {
+    Long minId = changeLogRepository.findMinId();
+    Long minTx = changeLogRepository.findMinTxId();
+    return minId != null && minId > 1 && minTx != null && since < minTx;
+  }
+
+  private static List<Long> missing(Set<Long> requested, List<Long> found) {
+    Set<Long> present = new HashSet<>(found);
+    return requested.stream().filter(id -> !present.contains(id)).toList();
+  }
+}
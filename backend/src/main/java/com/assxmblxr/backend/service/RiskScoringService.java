@@ -0,0 +1,193 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.components.ChangeTracker;
+import com.assxmblxr.backend.dto.PageResponse;
+import com.assxmblxr.backend.dto.StudentRiskResponse;
+import com.assxmblxr.backend.entity.*;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.repository.AnalyticsRepository;
+import com.assxmblxr.backend.repository.AnalyticsRepository.RiskInput;
+import com.assxmblxr.backend.repository.StudentRiskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Предрассчитанные статусы риска учащихся. Полный пересчёт — ночью и при старте;
+ * после записи оценок, посещаемости или учащихся затронутые учащиеся помечаются
+ * и пересчитываются пакетом раз в несколько секунд, так что массовый ввод оценок
+ * класса даёт один запрос, а не тридцать. Каждый пересчёт меняет ETag аналитики
+ * через {@link ChangeTracker}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RiskScoringService {
+  private static final int BATCH_SIZE = 500;
+
+  /** Допустимые поля сортировки списка: параметр запроса -> путь в StudentRisk */
+  private static final Map<String, String> SORT_FIELDS = Map.of(
+          "severity", "severity",
+          "average", "average",
+          "absences", "absences",
+          "badGrades", "badGrades",
+          "name", "student.fullname");
+
+  private final AnalyticsRepository analyticsRepository;
+  private final StudentRiskRepository studentRiskRepository;
+  private final ChangeTracker changeTracker;
+
+  private final Set<Long> dirtyStudents = ConcurrentHashMap.newKeySet();
+  /** При старте таблица может быть пустой или устаревшей — первый проход пересчитывает всё */
+  private final AtomicBoolean fullRecomputeNeeded = new AtomicBoolean(true);
+
+  // ── пересчёт ──────────────────────────────────────────────────────────────
+
+  @Scheduled(cron = "0 15 4 * * *")
+  public void scheduleFullRecompute() {
+    fullRecomputeNeeded.set(true);
+  }
+
+  /**
+   * Пересчитывает помеченных учащихся или всех, если нужен полный пересчёт. Если пересчёт
+   * упал, работа возвращается в очередь и повторяется на следующем проходе.
+   */
+  @Scheduled(fixedDelay = 5_000)
+  public void flushPending() {
+    if (fullRecomputeNeeded.getAndSet(false)) {
+      dirtyStudents.clear();
+      try {
+        int n = recompute(null);
+        log.info("Risk scores recomputed for {} students", n);
+      } catch (RuntimeException e) {
+        fullRecomputeNeeded.set(true);
+        log.warn("Full risk recompute failed, will retry: {}", e.getMessage(), e);
+      }
+      return;
+    }
+    if (dirtyStudents.isEmpty()) return;
+    List<Long> ids = new ArrayList<>();
+    for (Iterator<Long> it = dirtyStudents.iterator(); it.hasNext(); ) {
+      ids.add(it.next());
+      it.remove();
+    }
+    for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+      try {
+        recompute(ids.subList(i, Math.min(ids.size(), i + BATCH_SIZE)));
+      } catch (RuntimeException e) {
+        List<Long> rest = ids.subList(i, ids.size());
+        dirtyStudents.addAll(rest);
+        log.warn("Risk recompute failed for {} students, will retry: {}", rest.size(), e.getMessage(), e);
+        return;
+      }
+    }
+  }
+
+  private int recompute(Collection<Long> studentIds) {
+    LocalDateTime now = LocalDateTime.now();
+    List<StudentRisk> risks = analyticsRepository.riskInputs(studentIds).stream()
+            .map(input -> toRisk(input, now)).toList();
+    for (int i = 0; i < risks.size(); i += BATCH_SIZE) {
+      analyticsRepository.upsertRisks(risks.subList(i, Math.min(risks.size(), i + BATCH_SIZE)));
+    }
+    if (!risks.isEmpty()) changeTracker.changed(StudentRisk.class);
+    return risks.size();
+  }
+
+  private StudentRisk toRisk(RiskInput in, LocalDateTime now) {
+    Double average = in.average() != null ? Math.round(in.average() * 100.0) / 100.0 : null;
+    RiskLevel level = RiskLevel.evaluate(average != null ? average : 0.0, in.absences(), in.badGrades());
+    return StudentRisk.builder()
+            .studentId(in.studentId())
+            .groupId(in.groupId())
+            .riskLevel(level)
+            .severity(level.severity())
+            .average(average)
+            .badGrades(in.badGrades())
+            .totalGrades(in.totalGrades())
+            .absences(in.absences())
+            .lates(in.lates())
+            .attendanceTotal(in.attendanceTotal())
+            .computedAt(now)
+            .build();
+  }
+
+  /** Помечает учащихся, чьи данные изменились; без известной области — полный пересчёт */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    Class<?> type = event.entityType();
+    if (type == Grade.class || type == Attendance.class || type == Student.class) {
+      Set<Long> students = event.scope().studentIds();
+      if (students.isEmpty()) fullRecomputeNeeded.set(true);
+      else dirtyStudents.addAll(students);
+    } else if (event.operation() == ChangeOperation.DELETE
+            && (type == Subject.class || type == Teacher.class)) {
+      // каскадное удаление оценок и посещаемости предмета или учителя
+      fullRecomputeNeeded.set(true);
+    }
+  }
+
+  // ── чтение ────────────────────────────────────────────────────────────────
+
+  /**
+   * Статусы риска учащихся для выгрузок. Учащиеся, которых фоновый пересчёт ещё не застал
+   * (только что добавлены), считаются на месте тем же правилом; удалённых в ответе нет.
+   */
+  public Map<Long, StudentRisk> risks(List<Long> studentIds) {
+    Map<Long, StudentRisk> risks = new HashMap<>();
+    for (int i = 0; i < studentIds.size(); i += BATCH_SIZE) {
+      studentRiskRepository.findAllById(studentIds.subList(i, Math.min(studentIds.size(), i + BATCH_SIZE)))
+              .forEach(risk -> risks.put(risk.getStudentId(), risk));
+    }
+    List<Long> missing = studentIds.stream().filter(id -> !risks.containsKey(id)).toList();
+    LocalDateTime now = LocalDateTime.now();
+    for (int i = 0; i < missing.size(); i += BATCH_SIZE) {
+      analyticsRepository.riskInputs(missing.subList(i, Math.min(missing.size(), i + BATCH_SIZE)))
+              .forEach(input -> risks.put(input.studentId(), toRisk(input, now)));
+    }
+    return risks;
+  }
+
+  /**
+   * Страница учащихся с заданными уровнями риска.
+   * @param sort одно из severity, average, absences, badGrades, name
+   */
+  @Transactional
+  public PageResponse<StudentRiskResponse> getAtRisk(Set<RiskLevel> levels, Long groupId,
+                                                     int page, int size, String sort, Sort.Direction direction) {
+    String property = SORT_FIELDS.get(sort);
+    if (property == null) throw new IllegalArgumentException("Недопустимое поле сортировки: " + sort);
+    // Внутри одного уровня сначала худшие: низкий балл, много пропусков
+    Sort order = Sort.by(direction, property)
+            .and(Sort.by(Sort.Direction.ASC, "average"))
+            .and(Sort.by(Sort.Direction.DESC, "absences"))
+            .and(Sort.by("studentId"));
+    PageRequest pageable = PageRequest.of(page, size, order);
+    Set<RiskLevel> effective = levels == null || levels.isEmpty() ? EnumSet.of(RiskLevel.HIGH, RiskLevel.MEDIUM) : levels;
+
+    Page<StudentRisk> result = groupId != null
+            ? studentRiskRepository.findByLevelsAndGroup(effective, groupId, pageable)
+            : studentRiskRepository.findByLevels(effective, pageable);
+    return new PageResponse<>(result.getContent().stream().map(this::toResponse).toList(),
+            result.getNumber(), result.getSize(), result.getTotalElements(), result.getTotalPages(), result.isLast());
+  }
+
+  private StudentRiskResponse toResponse(StudentRisk r) {
+    Student s = r.getStudent();
+    return new StudentRiskResponse(r.getStudentId(), s.getFullname(), r.getGroupId(),
+            s.getGroup() != null ? s.getGroup().getName() : null,
+            r.getRiskLevel(), r.getRiskLevel().label(), r.getAverage(), r.getBadGrades(), r.getTotalGrades(),
+            r.getAbsences(), r.getLates(), r.getAttendanceTotal(), r.getComputedAt());
+  }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.dto.FilterExecuteRequest;
+import com.assxmblxr.backend.dto.SavedFilterExecuteRequest;
+import com.assxmblxr.backend.dto.SavedFilterRequest;
+import com.assxmblxr.backend.entity.ChangeOperation;
+import com.assxmblxr.backend.entity.SavedFilter;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.exceptions.SavedFilterException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
+import com.assxmblxr.backend.filter.CompiledFilter;
+import com.assxmblxr.backend.filter.EntityRegistry;
+import com.assxmblxr.backend.repository.GenericFilterRepository;
+import com.assxmblxr.backend.repository.SavedFilterRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сохранённые фильтры. Программа разбирается и проверяется при сохранении, скомпилированный
+ * план держится в памяти до изменения фильтра (после перезапуска компилируется при первом
+ * выполнении), так что выполнение по id — это только привязка параметров и запрос.
+ * <p>
+ * Фильтры с {@code cacheResults} кэшируют страницы результата по значениям параметров.
+ * Запись в любую из таблиц, которые читает фильтр или из которых пересчитываются прочитанные
+ * поля (amount группы), сбрасывает его страницы; удаление — все страницы, потому что
+ * каскадом пропадают строки, о которых отдельных событий нет.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SavedFilterService {
+  private static final int MAX_CACHED_PAGES = 1_000;
+  /** Ограничения программы: текст JSON и число слотов */
+  private static final int MAX_DEFINITION_LENGTH = 64 * 1024;
+  private static final int MAX_PARAMETERS = 50;
+
+  private final SavedFilterRepository savedFilterRepository;
+  private final GenericFilterRepository filterRepository;
+  private final ObjectMapper objectMapper;
+
+  private record Plan(Long version, CompiledFilter compiled) {}
+
+  private record PageKey(Long filterId, Long version, Map<String, Object> parameters, int page, int size) {}
+
+  private record CachedPage(Set<Class<?>> touched, Page<Map<String, Object>> page) {}
+
+  private final Map<Long, Plan> plans = new ConcurrentHashMap<>();
+  private final Map<PageKey, CachedPage> pages = new ConcurrentHashMap<>();
+  /** Растёт при каждой инвалидации; загруженное во время инвалидации в кэш не кладётся */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public List<SavedFilter> getOwn(String owner) {
+    return savedFilterRepository.findByOwnerOrderByName(owner);
+  }
+
+  /** Фильтр владельца; чужие фильтры для него не существуют */
+  public SavedFilter get(Long id, String owner) {
+    return savedFilterRepository.findByIdAndOwner(id, owner)
+            .orElseThrow(() -> new SavedFilterException("Фильтр не найден", id));
+  }
+
+  /**
+   * @throws IllegalArgumentException если программа фильтра не компилируется, слишком велика
+   *                                  или имя занято
+   */
+  @Transactional
+  public SavedFilter create(SavedFilterRequest request, String owner) {
+    if (savedFilterRepository.existsByOwnerAndName(owner, request.getName())) {
+      throw new IllegalArgumentException("Фильтр с таким названием уже есть: " + request.getName());
+    }
+    FilterExecuteRequest definition = definition(request.getFilter());
+    CompiledFilter compiled = compile(definition);
+    LocalDateTime now = LocalDateTime.now();
+    SavedFilter saved = savedFilterRepository.saveAndFlush(SavedFilter.builder()
+            .owner(owner)
+            .name(request.getName())
+            .rootEntity(definition.getRootEntity())
+            .definition(write(definition))
+            .parameters(parameterNames(compiled))
+            .cacheResults(request.isCacheResults())
+            .createdAt(now)
+            .updatedAt(now)
+            .build());
+    plans.put(saved.getId(), new Plan(saved.getVersion(), compiled));
+    return saved;
+  }
+
+  @Transactional
+  public SavedFilter update(Long id, SavedFilterRequest request, String owner) {
+    SavedFilter existing = get(id, owner);
+    VersionConflictException.check(request.getVersion(), existing.getVersion(), id);
+    if (!existing.getName().equals(request.getName())
+            && savedFilterRepository.existsByOwnerAndName(owner, request.getName())) {
+      throw new IllegalArgumentException("Фильтр с таким названием уже есть: " + request.getName());
+    }
+    FilterExecuteRequest definition = definition(request.getFilter());
+    CompiledFilter compiled = compile(definition);
+    existing.setName(request.getName());
+    existing.setRootEntity(definition.getRootEntity());
+    existing.setDefinition(write(definition));
+    existing.setParameters(parameterNames(compiled));
+    existing.setCacheResults(request.isCacheResults());
+    existing.setUpdatedAt(LocalDateTime.now());
+    SavedFilter saved = savedFilterRepository.saveAndFlush(existing);
+    plans.put(id, new Plan(saved.getVersion(), compiled));
+    pages.keySet().removeIf(key -> key.filterId().equals(id));
+    return saved;
+  }
+
+  @Transactional
+  public boolean delete(Long id, String owner) {
+    return savedFilterRepository.findByIdAndOwner(id, owner)
+            .map(filter -> {
+              savedFilterRepository.delete(filter);
+              plans.remove(id);
+              pages.keySet().removeIf(key -> key.filterId().equals(id));
+              return true;
+            })
+            .orElse(false);
+  }
+
+  /**
+   * Страница результата со значениями слотов.
+   * @throws IllegalArgumentException если значений не хватает, есть лишние или они не разбираются
+   */
+  public Page<Map<String, Object>> execute(Long id, SavedFilterExecuteRequest request, String owner) {
+    SavedFilter filter = get(id, owner);
+    CompiledFilter compiled = plan(filter);
+    Map<String, Object> parameters = compiled.bind(request.getParameters());
+    int size = request.getSize() > 0 ? request.getSize() : 50;
+    PageRequest pageable = PageRequest.of(request.getPage(), size);
+    if (!filter.isCacheResults()) return filterRepository.execute(compiled, parameters, pageable);
+
+    PageKey key = new PageKey(id, filter.getVersion(), parameters, request.getPage(), size);
+    CachedPage cached = pages.get(key);
+    if (cached != null) return cached.page();
+
+    long generation = invalidations.get();
+    Page<Map<String, Object>> page = filterRepository.execute(compiled, parameters, pageable);
+    if (invalidations.get() == generation) {
+      if (pages.size() >= MAX_CACHED_PAGES) pages.clear();
+      pages.put(key, new CachedPage(compiled.touched(), page));
+    }
+    return page;
+  }
+
+  /** Сохранённая программа фильтра в том виде, в каком её прислал клиент */
+  public FilterExecuteRequest read(SavedFilter filter) {
+    try {
+      return objectMapper.readValue(filter.getDefinition(), FilterExecuteRequest.class);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Повреждена программа фильтра " + filter.getId(), e);
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    invalidations.incrementAndGet();
+    if (event.operation() == ChangeOperation.DELETE) {
+      pages.clear();
+    } else {
+      pages.values().removeIf(page -> page.touched().contains(event.entityType()));
+    }
+  }
+
+  // ── компиляция ────────────────────────────────────────────────────────────
+
+  private CompiledFilter plan(SavedFilter filter) {
+    Plan plan = plans.get(filter.getId());
+    if (plan != null && plan.version().equals(filter.getVersion())) return plan.compiled();
+    CompiledFilter compiled = compile(read(filter));
+    plans.put(filter.getId(), new Plan(filter.getVersion(), compiled));
+    return compiled;
+  }
+
+  private CompiledFilter compile(FilterExecuteRequest definition) {
+    Class<?> entityClass = EntityRegistry.resolve(definition.getRootEntity());
+    return filterRepository.compile(entityClass, definition);
+  }
+
+  /** Программа без страницы: страница задаётся при каждом выполнении */
+  private static FilterExecuteRequest definition(FilterExecuteRequest filter) {
+    filter.setPage(0);
+    filter.setSize(0);
+    return filter;
+  }
+
+  private String write(FilterExecuteRequest definition) {
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(definition);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Не удалось сохранить программу фильтра", e);
+    }
+    if (json.length() > MAX_DEFINITION_LENGTH) {
+      throw new IllegalArgumentException("Программа фильтра длиннее " + MAX_DEFINITION_LENGTH + " символов");
+    }
+    return json;
+  }
+
+  private static String parameterNames(CompiledFilter compiled) {
+    if (compiled.parameters().size() > MAX_PARAMETERS) {
+      throw new IllegalArgumentException("В фильтре больше " + MAX_PARAMETERS + " параметров");
+    }
+    return String.join(",", compiled.parameters().keySet());
+  }
+}
\ No newline at end of file
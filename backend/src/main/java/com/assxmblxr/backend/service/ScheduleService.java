@@ -3,18 +3,23 @@ package com.assxmblxr.backend.service;
 import com.assxmblxr.backend.dto.ScheduleRequest;
 import com.assxmblxr.backend.dto.ScheduleResponse;
 import com.assxmblxr.backend.entity.*;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.events.EntityChangedEvent.Scope;
 import com.assxmblxr.backend.exceptions.GroupException;
 import com.assxmblxr.backend.exceptions.ScheduleException;
 import com.assxmblxr.backend.exceptions.SubjectException;
 import com.assxmblxr.backend.exceptions.TeacherException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.repository.GroupRepository;
 import com.assxmblxr.backend.repository.ScheduleRepository;
 import com.assxmblxr.backend.repository.SubjectRepository;
 import com.assxmblxr.backend.repository.TeacherRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -24,6 +29,7 @@ public class ScheduleService {
   private final GroupRepository groupRepository;
   private final SubjectRepository subjectRepository;
   private final TeacherRepository teacherRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Transactional
   public ScheduleResponse create(ScheduleRequest request) {
@@ -35,26 +41,37 @@ public class ScheduleService {
             .lessonNumber(request.getLessonNumber())
             .classroom(request.getClassroom())
             .build();
-    return toResponse(scheduleRepository.save(s));
+    Schedule saved = scheduleRepository.save(s);
+    eventPublisher.publishEvent(new EntityChangedEvent(Schedule.class, saved.getId(), ChangeOperation.CREATE, scopeOf(saved)));
+    return toResponse(saved);
   }
 
   @Transactional
   public ScheduleResponse update(Long id, ScheduleRequest request) {
     Schedule s = scheduleRepository.findById(id)
             .orElseThrow(() -> new ScheduleException("Запись расписания не найдена", id));
+    VersionConflictException.check(request.getVersion(), s.getVersion(), id);
+    Scope before = scopeOf(s);
     s.setGroup(groupById(request.getGroupId()));
     s.setSubject(subjectById(request.getSubjectId()));
     s.setTeacher(request.getTeacherId() != null ? teacherById(request.getTeacherId()) : null);
     s.setDayOfWeek(request.getDayOfWeek());
     s.setLessonNumber(request.getLessonNumber());
     s.setClassroom(request.getClassroom());
-    return toResponse(scheduleRepository.save(s));
+    Schedule saved = scheduleRepository.saveAndFlush(s);
+    eventPublisher.publishEvent(new EntityChangedEvent(Schedule.class, id, ChangeOperation.UPDATE,
+            before.merge(scopeOf(saved))));
+    return toResponse(saved);
   }
 
   @Transactional
   public boolean delete(Long id) {
     return scheduleRepository.findById(id)
-            .map(s -> { scheduleRepository.delete(s); return true; }).orElse(false);
+            .map(s -> {
+              scheduleRepository.delete(s);
+              eventPublisher.publishEvent(new EntityChangedEvent(Schedule.class, id, ChangeOperation.DELETE, scopeOf(s)));
+              return true;
+            }).orElse(false);
   }
 
   public ScheduleResponse getById(Long id) {
@@ -78,6 +95,11 @@ public class ScheduleService {
     return scheduleRepository.findByTeacherId(teacherId).stream().map(this::toResponse).toList();
   }
 
+  /** Записи по набору id; отсутствующие id просто не попадают в результат */
+  public List<ScheduleResponse> getByIds(Collection<Long> ids) {
+    return scheduleRepository.findAllById(ids).stream().map(this::toResponse).toList();
+  }
+
   private ScheduleResponse toResponse(Schedule s) {
     ScheduleResponse r = new ScheduleResponse();
     r.setId(s.getId());
@@ -90,9 +112,14 @@ public class ScheduleService {
     r.setDayOfWeek(s.getDayOfWeek());
     r.setLessonNumber(s.getLessonNumber());
     r.setClassroom(s.getClassroom());
+    r.setVersion(s.getVersion());
     return r;
   }
 
+  private static Scope scopeOf(Schedule s) {
+    return Scope.of(s.getGroup().getId(), s.getSubject().getId());
+  }
+
   private Group groupById(Long id) {
     return groupRepository.findById(id).orElseThrow(() -> new GroupException("Группа не найдена", id));
   }
@@ -1,14 +1,19 @@
 package com.assxmblxr.backend.service;
 
 import com.assxmblxr.backend.dto.StudentRequest;
+import com.assxmblxr.backend.entity.ChangeOperation;
 import com.assxmblxr.backend.entity.Group;
 import com.assxmblxr.backend.entity.Student;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.events.EntityChangedEvent.Scope;
 import com.assxmblxr.backend.exceptions.GroupException;
 import com.assxmblxr.backend.exceptions.StudentException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.repository.GroupRepository;
 import com.assxmblxr.backend.repository.StudentRepository;
 
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -17,10 +22,13 @@ import java.util.List;
 public class StudentService {
   private final StudentRepository studentRepository;
   private final GroupRepository groupRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public StudentService(StudentRepository studentRepository, GroupRepository groupRepository) {
+  public StudentService(StudentRepository studentRepository, GroupRepository groupRepository,
+                        ApplicationEventPublisher eventPublisher) {
     this.studentRepository = studentRepository;
     this.groupRepository = groupRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   /**
@@ -44,6 +52,8 @@ public class StudentService {
     student.recalcAge();
     studentRepository.save(student);
     updateGroupAmount(List.of(group));
+    eventPublisher.publishEvent(new EntityChangedEvent(Student.class, student.getId(), ChangeOperation.CREATE,
+            Scope.of(group.getId(), null, student.getId())));
     return student;
   }
 
@@ -57,6 +67,9 @@ public class StudentService {
     return studentRepository.findById(id)
             .map(student -> {
               Group group = student.getGroup();
+              // До удаления: журнал изменений фиксирует оценки и посещаемость, удаляемые каскадом
+              eventPublisher.publishEvent(new EntityChangedEvent(Student.class, id, ChangeOperation.DELETE,
+                      Scope.of(group.getId(), null, student.getId())));
               studentRepository.delete(student);
               updateGroupAmount(List.of(group));
               return true;
@@ -87,11 +100,13 @@ public class StudentService {
    * @param dto новые значения параметров студента.
    * @return обновлённый объект студента
    * @exception StudentException указан несуществующий ID
+   * @exception VersionConflictException студент был изменён после того, как клиент получил версию dto.version
    */
   @Transactional
   public Student updateStudent(Long id, StudentRequest dto) {
     Student student = studentRepository.findById(id)
             .orElseThrow(() -> new StudentException("Студент с id " + id + " не найден", id));
+    VersionConflictException.check(dto.getVersion(), student.getVersion(), id);
 
     Group oldGroup = student.getGroup();
 
@@ -109,7 +124,9 @@ public class StudentService {
     } else {
       updateGroupAmount(List.of(newGroup));
     }
-    studentRepository.save(student);
+    studentRepository.saveAndFlush(student);
+    eventPublisher.publishEvent(new EntityChangedEvent(Student.class, id, ChangeOperation.UPDATE,
+            Scope.of(oldGroup.getId(), null, id).merge(Scope.of(newGroup.getId(), null))));
     return student;
   }
 
@@ -1,11 +1,15 @@
 package com.assxmblxr.backend.service;
 
 import com.assxmblxr.backend.dto.SubjectDTO;
+import com.assxmblxr.backend.entity.ChangeOperation;
 import com.assxmblxr.backend.entity.Subject;
 import com.assxmblxr.backend.entity.Teacher;
+import com.assxmblxr.backend.events.EntityChangedEvent;
 import com.assxmblxr.backend.exceptions.SubjectException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.repository.SubjectRepository;
 import com.assxmblxr.backend.repository.TeacherRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,10 +23,13 @@ public class SubjectService {
 
   private final SubjectRepository subjectRepository;
   private final TeacherRepository teacherRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public SubjectService(SubjectRepository subjectRepository, TeacherRepository teacherRepository) {
+  public SubjectService(SubjectRepository subjectRepository, TeacherRepository teacherRepository,
+                        ApplicationEventPublisher eventPublisher) {
     this.subjectRepository = subjectRepository;
     this.teacherRepository = teacherRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   private SubjectDTO toDTO(Subject subject) {
@@ -33,6 +40,7 @@ public class SubjectService {
             .id(subject.getId())
             .name(subject.getName())
             .teacherIds(teacherIds)
+            .version(subject.getVersion())
             .build();
   }
 
@@ -48,13 +56,16 @@ public class SubjectService {
             .teachers(teachers)
             .build();
 
-    return toDTO(subjectRepository.save(subject));
+    Subject saved = subjectRepository.save(subject);
+    eventPublisher.publishEvent(new EntityChangedEvent(Subject.class, saved.getId(), ChangeOperation.CREATE));
+    return toDTO(saved);
   }
 
   @Transactional
   public SubjectDTO updateSubject(Long id, SubjectDTO dto) {
     Subject subject = subjectRepository.findById(id)
             .orElseThrow(() -> new SubjectException("Subject not found", id));
+    VersionConflictException.check(dto.getVersion(), subject.getVersion(), id);
 
     subject.setName(dto.getName());
 
@@ -64,7 +75,9 @@ public class SubjectService {
     }
     subject.setTeachers(teachers);
 
-    return toDTO(subjectRepository.save(subject));
+    Subject saved = subjectRepository.saveAndFlush(subject);
+    eventPublisher.publishEvent(new EntityChangedEvent(Subject.class, id, ChangeOperation.UPDATE));
+    return toDTO(saved);
   }
 
   public SubjectDTO getSubject(Long id) {
@@ -80,6 +93,8 @@ public class SubjectService {
   public boolean deleteSubject(Long id) {
     return subjectRepository.findById(id)
             .map(subject -> {
+              // До удаления: журнал изменений фиксирует строки, удаляемые каскадом
+              eventPublisher.publishEvent(new EntityChangedEvent(Subject.class, id, ChangeOperation.DELETE));
               subjectRepository.delete(subject);
               return true;
             }).orElse(false);
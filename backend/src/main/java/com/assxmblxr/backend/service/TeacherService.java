@@ -2,13 +2,17 @@ package com.assxmblxr.backend.service;
 
 import com.assxmblxr.backend.dto.TeacherRequest;
 import com.assxmblxr.backend.dto.TeacherResponse;
+import com.assxmblxr.backend.entity.ChangeOperation;
 import com.assxmblxr.backend.entity.Subject;
 import com.assxmblxr.backend.entity.Teacher;
+import com.assxmblxr.backend.events.EntityChangedEvent;
 import com.assxmblxr.backend.exceptions.SubjectException;
 import com.assxmblxr.backend.exceptions.TeacherException;
+import com.assxmblxr.backend.exceptions.VersionConflictException;
 import com.assxmblxr.backend.repository.SubjectRepository;
 import com.assxmblxr.backend.repository.TeacherRepository;
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.HashSet;
@@ -20,10 +24,13 @@ import java.util.stream.Collectors;
 public class TeacherService {
   private final TeacherRepository teacherRepository;
   private final SubjectRepository subjectRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public TeacherService(TeacherRepository teacherRepository, SubjectRepository subjectRepository) {
+  public TeacherService(TeacherRepository teacherRepository, SubjectRepository subjectRepository,
+                        ApplicationEventPublisher eventPublisher) {
     this.teacherRepository = teacherRepository;
     this.subjectRepository = subjectRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   @Transactional
@@ -37,6 +44,7 @@ public class TeacherService {
             .build();
 
     Teacher saved = teacherRepository.save(teacher);
+    eventPublisher.publishEvent(new EntityChangedEvent(Teacher.class, saved.getId(), ChangeOperation.CREATE));
     return toResponse(saved);
   }
 
@@ -44,12 +52,14 @@ public class TeacherService {
   public TeacherResponse updateTeacher(Long id, TeacherRequest request) {
     Teacher teacher = teacherRepository.findById(id)
             .orElseThrow(() -> new TeacherException("Учитель не найден", id));
+    VersionConflictException.check(request.getVersion(), teacher.getVersion(), id);
 
     teacher.setFullname(request.getFullname());
     teacher.setPhone(request.getPhone());
     teacher.setSubjects(getSubjectsByIds(request.getSubjectIds()));
 
-    Teacher updated = teacherRepository.save(teacher);
+    Teacher updated = teacherRepository.saveAndFlush(teacher);
+    eventPublisher.publishEvent(new EntityChangedEvent(Teacher.class, id, ChangeOperation.UPDATE));
     return toResponse(updated);
   }
 
@@ -57,6 +67,8 @@ public class TeacherService {
   public boolean deleteTeacher(Long id) {
     return teacherRepository.findById(id)
             .map(teacher -> {
+              // До удаления: журнал изменений фиксирует строки, удаляемые каскадом
+              eventPublisher.publishEvent(new EntityChangedEvent(Teacher.class, id, ChangeOperation.DELETE));
               teacherRepository.delete(teacher);
               return true;
             })
@@ -96,6 +108,7 @@ public class TeacherService {
             teacher.getSubjects().stream().map(Subject::getId).collect(Collectors.toSet())
             : new HashSet<>();
     response.setSubjectIds(subjectIds);
+    response.setVersion(teacher.getVersion());
     return response;
   }
 }
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.assxmblxr.backend.service;
+
+import com.assxmblxr.backend.dto.TrendPeriod;
+import com.assxmblxr.backend.dto.TrendResponse;
+import com.assxmblxr.backend.entity.Schedule;
+import com.assxmblxr.backend.events.EntityChangedEvent;
+import com.assxmblxr.backend.repository.AnalyticsRepository;
+import com.assxmblxr.backend.repository.AnalyticsRepository.Criteria;
+import com.assxmblxr.backend.repository.AnalyticsRepository.PeriodAggregate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Временные ряды успеваемости и посещаемости со скользящими средними.
+ * <p>
+ * Суммы закрытых периодов (до начала текущей недели или месяца) кэшируются по срезу:
+ * при каждом запросе из БД читается только открытый период, а когда закрывается новый —
+ * догружается только он. Запись оценки или посещаемости задним числом сбрасывает
+ * кэш затронутых срезов по области события.
+ * <p>
+ * Суммы по периодам считает БД ({@code date_trunc ... GROUP BY}), а скользящие суммы —
+ * {@link #buildPoints} за один проход по уже агрегированным периодам. Окно в SQL
+ * ({@code SUM(...) OVER (ROWS BETWEEN n PRECEDING ...)}) охватывало бы и закрытые, и открытый
+ * период, поэтому каждый запрос снова читал бы всю историю среза и кэш закрытых периодов
+ * терял бы смысл. Кроме того, ROWS считает строки, а не недели: периоды без записей пришлось
+ * бы достраивать через generate_series, а здесь они просто заполняются нулями.
+ */
+@Service
+@RequiredArgsConstructor
+public class TrendService {
+  public static final int MAX_WINDOW = 52;
+  private static final int MAX_CACHED_SERIES = 5_000;
+
+  private final AnalyticsRepository analyticsRepository;
+
+  private record SeriesKey(Long studentId, Long groupId, Long subjectId, TrendPeriod period) {}
+
+  /** Суммы всех периодов, начавшихся до closedBefore */
+  private record ClosedSeries(LocalDate closedBefore, List<PeriodAggregate> periods) {}
+
+  private final Map<SeriesKey, ClosedSeries> closedSeries = new ConcurrentHashMap<>();
+  /** Растёт при каждой инвалидации; загруженное во время инвалидации в кэш не кладётся */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public TrendResponse getTrend(Long studentId, Long groupId, Long subjectId, TrendPeriod period,
+                                int window, LocalDate from, LocalDate to) {
+    if (window < 1 || window > MAX_WINDOW) {
+      throw new IllegalArgumentException("Окно должно быть от 1 до " + MAX_WINDOW + " периодов");
+    }
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new IllegalArgumentException("Дата начала позже даты окончания");
+    }
+    SeriesKey key = new SeriesKey(studentId, groupId, subjectId, period);
+    LocalDate currentStart = period.startOf(LocalDate.now());
+
+    List<PeriodAggregate> periods = new ArrayList<>(closedPeriods(key, currentStart));
+    periods.addAll(load(key, currentStart, null));
+
+    LocalDate fromPeriod = from != null ? period.startOf(from) : null;
+    List<TrendResponse.Point> points = buildPoints(periods, period, window).stream()
+            .filter(p -> fromPeriod == null || !p.getPeriodStart().isBefore(fromPeriod))
+            .filter(p -> to == null || !p.getPeriodStart().isAfter(to))
+            .toList();
+    return new TrendResponse(studentId, groupId, subjectId, period, window, points);
+  }
+
+  private List<PeriodAggregate> closedPeriods(SeriesKey key, LocalDate currentStart) {
+    ClosedSeries cached = closedSeries.get(key);
+    if (cached != null && cached.closedBefore().equals(currentStart)) return cached.periods();
+
+    long generation = invalidations.get();
+    List<PeriodAggregate> periods;
+    if (cached != null && cached.closedBefore().isBefore(currentStart)) {
+      // С прошлого запроса закрылись новые периоды — догружаем только их
+      periods = new ArrayList<>(cached.periods());
+      periods.addAll(load(key, cached.closedBefore(), currentStart.minusDays(1)));
+    } else {
+      periods = load(key, null, currentStart.minusDays(1));
+    }
+    if (invalidations.get() == generation) {
+      if (closedSeries.size() >= MAX_CACHED_SERIES) closedSeries.clear();
+      closedSeries.put(key, new ClosedSeries(currentStart, List.copyOf(periods)));
+    }
+    return periods;
+  }
+
+  private List<PeriodAggregate> load(SeriesKey key, LocalDate from, LocalDate to) {
+    Criteria criteria = new Criteria(key.studentId(), key.groupId(), key.subjectId(), from, to);
+    return analyticsRepository.periodAggregates(criteria, key.period().sqlUnit());
+  }
+
+  /** Заполняет пропущенные периоды нулями и считает скользящие суммы за window периодов */
+  private List<TrendResponse.Point> buildPoints(List<PeriodAggregate> periods, TrendPeriod period, int window) {
+    if (periods.isEmpty()) return List.of();
+    Map<LocalDate, PeriodAggregate> byStart = new HashMap<>();
+    for (PeriodAggregate p : periods) byStart.put(p.periodStart(), p);
+    LocalDate first = periods.get(0).periodStart();
+    LocalDate last = periods.get(periods.size() - 1).periodStart();
+
+    List<TrendResponse.Point> points = new ArrayList<>();
+    Deque<PeriodAggregate> inWindow = new ArrayDeque<>(window + 1);
+    long gradeCount = 0, gradeSum = 0, attCount = 0, attPresent = 0;
+    for (LocalDate d = first; !d.isAfter(last); d = period.next(d)) {
+      PeriodAggregate p = byStart.getOrDefault(d, new PeriodAggregate(d, 0, 0, 0, 0));
+      inWindow.addLast(p);
+      gradeCount += p.gradeCount(); gradeSum += p.gradeSum();
+      attCount += p.attendanceCount(); attPresent += p.attendancePresent();
+      if (inWindow.size() > window) {
+        PeriodAggregate old = inWindow.removeFirst();
+        gradeCount -= old.gradeCount(); gradeSum -= old.gradeSum();
+        attCount -= old.attendanceCount(); attPresent -= old.attendancePresent();
+      }
+      points.add(new TrendResponse.Point(d, p.gradeCount(),
+              ratio(p.gradeSum(), p.gradeCount(), 100), ratio(gradeSum, gradeCount, 100),
+              p.attendanceCount(),
+              ratio(p.attendancePresent(), p.attendanceCount(), 1000), ratio(attPresent, attCount, 1000)));
+    }
+    return points;
+  }
+
+  private static Double ratio(long numerator, long denominator, int scale) {
+    return denominator == 0 ? null : Math.round((double) numerator / denominator * scale) / (double) scale;
+  }
+
+  /** Сбрасывает кэш срезов, которых касается закоммиченное изменение; пустое измерение области — «все» */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntityChanged(EntityChangedEvent event) {
+    if (event.entityType() == Schedule.class) return;
+    invalidations.incrementAndGet();
+    EntityChangedEvent.Scope scope = event.scope();
+    closedSeries.keySet().removeIf(k -> matches(k.studentId(), scope.studentIds())
+            && matches(k.groupId(), scope.groupIds())
+            && matches(k.subjectId(), scope.subjectIds()));
+  }
+
+  private static boolean matches(Long keyValue, Set<Long> ids) {
+    return keyValue == null || ids.isEmpty() || ids.contains(keyValue);
+  }
+}
\ No newline at end of file
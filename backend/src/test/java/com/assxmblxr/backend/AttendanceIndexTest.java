@@ -0,0 +1,72 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.analytics.AttendanceIndex;
+import com.assxmblxr.backend.entity.AttendanceStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class AttendanceIndexTest {
+    private static final LocalDate MON = LocalDate.of(2025, 9, 1);
+    private static final LocalDate TUE = MON.plusDays(1);
+
+    @Test
+    public void testCountsAndAbsentStudents() {
+        AttendanceIndex index = new AttendanceIndex();
+        index.reload(sink -> {
+            sink.studentGroup(1, 10);
+            sink.studentGroup(2, 20);
+            sink.record(1, 1, 5, MON, AttendanceStatus.ABSENT);
+            sink.record(2, 1, 6, MON, AttendanceStatus.EXCUSED);
+            sink.record(3, 1, 5, TUE, AttendanceStatus.LATE);
+            sink.record(4, 2, 5, TUE, AttendanceStatus.ABSENT);
+            sink.record(5, 2, 5, MON, AttendanceStatus.PRESENT);
+        });
+
+        assertEquals(1, index.count(1, 5L, AttendanceIndex.ABSENCES));
+        assertEquals(2, index.count(1, null, AttendanceIndex.ABSENCES));
+        assertEquals(3, index.count(1, null, EnumSet.allOf(AttendanceStatus.class)));
+        assertEquals(1, index.count(1, null, Set.of(AttendanceStatus.LATE)));
+
+        assertEquals(Map.of(1L, 2L), index.studentsWith(AttendanceIndex.ABSENCES, List.of(MON), null));
+        assertEquals(Map.of(1L, 2L, 2L, 1L), index.studentsWith(AttendanceIndex.ABSENCES, List.of(MON, TUE), null));
+        assertEquals(Map.of(2L, 1L), index.studentsWith(AttendanceIndex.ABSENCES, List.of(MON, TUE), 20L));
+
+        // запись 1 исправили на «присутствовал», запись 4 удалили
+        index.upsert(1, 1, 5, MON, AttendanceStatus.PRESENT);
+        index.remove(4);
+        assertEquals(0, index.count(1, 5L, AttendanceIndex.ABSENCES));
+        assertEquals(Map.of(1L, 1L), index.studentsWith(AttendanceIndex.ABSENCES, List.of(MON, TUE), null));
+        assertEquals(Map.of(), index.studentsWith(Set.of(AttendanceStatus.ABSENT), List.of(TUE), 20L));
+    }
+
+    @Test
+    public void testUpsertMovesRecordBetweenStudentsAndSubjects() {
+        AttendanceIndex index = new AttendanceIndex();
+        index.reload(sink -> {
+            sink.record(1, 1, 5, MON, AttendanceStatus.ABSENT);
+            sink.record(2, 1, 5, TUE, AttendanceStatus.ABSENT);
+        });
+
+        // запись исправили: другой учащийся, предмет, дата и статус
+        index.upsert(1, 2, 6, TUE, AttendanceStatus.EXCUSED);
+        assertEquals(1, index.count(1, 5L, AttendanceIndex.ABSENCES));
+        assertEquals(1, index.count(2, 6L, AttendanceIndex.ABSENCES));
+        assertEquals(0, index.count(2, 5L, AttendanceIndex.ABSENCES));
+        assertEquals(Map.of(), index.studentsWith(AttendanceIndex.ABSENCES, List.of(MON), null));
+
+        // новая запись с id за пределами загруженных
+        index.upsert(5000, 3, 5, MON, AttendanceStatus.LATE);
+        assertEquals(1, index.count(3, null, Set.of(AttendanceStatus.LATE)));
+        assertEquals(0, index.count(3, null, AttendanceIndex.ABSENCES));
+        index.remove(5000);
+        index.remove(5000);
+        assertEquals(0, index.count(3, null, EnumSet.allOf(AttendanceStatus.class)));
+    }
+}
\ No newline at end of file
@@ -5,12 +5,14 @@ import static org.mockito.Mockito.*;
 import com.assxmblxr.backend.components.AutoGradeUpdate;
 import com.assxmblxr.backend.entity.Group;
 import com.assxmblxr.backend.entity.Student;
+import com.assxmblxr.backend.events.GraduatesDetectedEvent;
 import com.assxmblxr.backend.service.GroupService;
 import com.assxmblxr.backend.service.StudentService;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 
@@ -22,6 +24,9 @@ public class AutoGradeUpdateTest {
     @Mock
     private GroupService groupService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AutoGradeUpdate autoGradeUpdate;
 
@@ -70,6 +75,7 @@ public class AutoGradeUpdateTest {
 
         autoGradeUpdate.updateAllStudents();
 
+        verify(eventPublisher, times(1)).publishEvent(any(GraduatesDetectedEvent.class));
         System.out.println("Студент: " + student.getFullname() +
                 ", группа: " + student.getGroup().getName());
     }
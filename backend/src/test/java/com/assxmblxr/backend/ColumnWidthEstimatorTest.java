@@ -0,0 +1,54 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.export.ColumnWidthEstimator;
+import org.junit.jupiter.api.Test;
+
+public class ColumnWidthEstimatorTest {
+
+    @Test
+    public void testWidestValueWins() {
+        ColumnWidthEstimator widths = new ColumnWidthEstimator(2);
+        widths.track(0, "Иванов");
+        widths.track(0, "Константинопольский");
+        widths.track(0, "Ли");
+
+        ColumnWidthEstimator single = new ColumnWidthEstimator(1);
+        single.track(0, "Константинопольский");
+
+        assertEquals(single.widthUnits(0), widths.widthUnits(0));
+        assertEquals(0, widths.widthUnits(1));
+    }
+
+    @Test
+    public void testCyrillicWiderThanNarrowLatin() {
+        ColumnWidthEstimator widths = new ColumnWidthEstimator(2);
+        widths.track(0, "ЖШЩЮ");
+        widths.track(1, "illi");
+
+        assertTrue(widths.widthUnits(0) > widths.widthUnits(1));
+    }
+
+    @Test
+    public void testHeaderIsBoldAndNumbersAreTracked() {
+        ColumnWidthEstimator widths = new ColumnWidthEstimator(2);
+        widths.trackHeader(0, "12345");
+        widths.track(1, 12345L);
+
+        assertTrue(widths.widthUnits(0) > widths.widthUnits(1));
+    }
+
+    @Test
+    public void testWidthIsCappedAndUsesLongestLine() {
+        ColumnWidthEstimator widths = new ColumnWidthEstimator(2);
+        widths.track(0, "Ж".repeat(1000));
+        widths.track(1, "ab\nabcdef\nabc");
+
+        ColumnWidthEstimator line = new ColumnWidthEstimator(1);
+        line.track(0, "abcdef");
+
+        assertEquals(255 * 256, widths.widthUnits(0));
+        assertEquals(line.widthUnits(0), widths.widthUnits(1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.analytics.CompressedBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+public class CompressedBitmapTest {
+
+    private static CompressedBitmap random(Random rnd, BitSet expected, int count, int bound) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < count; i++) {
+            int v = rnd.nextInt(bound);
+            bitmap.add(v);
+            expected.set(v);
+        }
+        return bitmap;
+    }
+
+    private static BitSet toBitSet(CompressedBitmap bitmap) {
+        BitSet bits = new BitSet();
+        bitmap.forEach(bits::set);
+        return bits;
+    }
+
+    @Test
+    public void testAndOrMatchBitSet() {
+        Random rnd = new Random(42);
+        BitSet sparse = new BitSet(), dense = new BitSet();
+        // разреженная карта — массивы, плотная — битовые карты блоков
+        CompressedBitmap a = random(rnd, sparse, 3_000, 300_000);
+        CompressedBitmap b = random(rnd, dense, 60_000, 200_000);
+
+        BitSet and = (BitSet) sparse.clone();
+        and.and(dense);
+        BitSet or = (BitSet) sparse.clone();
+        or.or(dense);
+
+        assertEquals(sparse.cardinality(), a.cardinality());
+        assertEquals(dense.cardinality(), b.cardinality());
+        assertEquals(and, toBitSet(a.and(b)));
+        assertEquals(and, toBitSet(b.and(a)));
+        assertEquals(or, toBitSet(a.or(b)));
+        assertEquals(and.cardinality(), a.andCardinality(b));
+        assertEquals(and.cardinality(), b.andCardinality(a));
+    }
+
+    @Test
+    public void testRemoveFromDenseBlock() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < 5_000; i++) bitmap.add(i);
+        for (int i = 0; i < 5_000; i += 2) bitmap.remove(i);
+
+        assertEquals(2_500, bitmap.cardinality());
+        assertTrue(bitmap.contains(4_999));
+        assertFalse(bitmap.contains(4_998));
+
+        for (int i = 1; i < 5_000; i += 2) bitmap.remove(i);
+        assertTrue(bitmap.isEmpty());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.export.CsvWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class CsvWriterTest {
+
+    private static String write(Object... values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvWriter csv = new CsvWriter(out)) {
+            csv.row(values);
+        }
+        return out.toString(StandardCharsets.UTF_8).substring(1);
+    }
+
+    @Test
+    public void testQuotesOnlyWhenNeeded() throws IOException {
+        assertEquals("Иванов,\"a,b\",\"say \"\"hi\"\"\",,5\r\n", write("Иванов", "a,b", "say \"hi\"", null, 5));
+    }
+
+    @Test
+    public void testFormulaIsNeutralised() throws IOException {
+        assertEquals("\"'=1+1\",\"'+7\",\"'-x\",\"'@SUM(A1)\",\"'\tA\",\"'\rB\"\r\n",
+                write("=1+1", "+7", "-x", "@SUM(A1)", "\tA", "\rB"));
+    }
+
+    @Test
+    public void testNumbersAreNotNeutralised() throws IOException {
+        assertEquals("-5,-1.5\r\n", write(-5, -1.5));
+    }
+}
\ No newline at end of file
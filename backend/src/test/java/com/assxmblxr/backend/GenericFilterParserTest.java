@@ -0,0 +1,122 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.dto.FilterBlockDto;
+import com.assxmblxr.backend.entity.Subject;
+import com.assxmblxr.backend.entity.Teacher;
+import com.assxmblxr.backend.filter.GenericFilterParser;
+import com.assxmblxr.backend.filter.HibernateSqlRenderer;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Условия на одну коллекцию в цепочке AND проверяют один её элемент и попадают в один EXISTS;
+ * OR и NOT дают отдельные EXISTS.
+ */
+public class GenericFilterParserTest {
+    private static final Pattern EXISTS = Pattern.compile("\\bexists\\b", Pattern.CASE_INSENSITIVE);
+    private static SessionFactory factory;
+
+    @BeforeAll
+    public static void buildFactory() {
+        factory = new Configuration()
+                .addAnnotatedClass(Teacher.class)
+                .addAnnotatedClass(Subject.class)
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .setProperty("hibernate.connection.provider_class", HibernateSqlRendererTest.NoConnections.class.getName())
+                .buildSessionFactory();
+    }
+
+    @AfterAll
+    public static void closeFactory() {
+        factory.close();
+    }
+
+    private static FilterBlockDto block(String type) {
+        FilterBlockDto b = new FilterBlockDto();
+        b.setType(type);
+        return b;
+    }
+
+    private static FilterBlockDto condition(String field, String operator, String value) {
+        FilterBlockDto b = block("IF");
+        b.setField(field);
+        b.setOperator(operator);
+        b.setValue(value);
+        return b;
+    }
+
+    private static final FilterBlockDto NAME = condition("subjects.name", "STRING_EQUAL", "Математика");
+    private static final FilterBlockDto ID = condition("subjects.id", "GREATER_THAN", "3");
+    private static final FilterBlockDto FULLNAME = condition("fullname", "STARTS_WITH", "Ив");
+
+    private static String sql(FilterBlockDto... blocks) {
+        try (SessionImplementor session = (SessionImplementor) factory.openSession()) {
+            CriteriaBuilder cb = session.getCriteriaBuilder();
+            CriteriaQuery<Teacher> q = cb.createQuery(Teacher.class);
+            Root<Teacher> root = q.from(Teacher.class);
+            q.select(root).where(new GenericFilterParser(cb, q, root).parse(List.of(blocks)));
+            return HibernateSqlRenderer.render(session.createQuery(q), session).sql();
+        }
+    }
+
+    private static int existsCount(String sql) {
+        Matcher m = EXISTS.matcher(sql);
+        int n = 0;
+        while (m.find()) n++;
+        return n;
+    }
+
+    /** Условия внутри каждого EXISTS, по порядку */
+    private static List<String> existsBodies(String sql) {
+        List<String> bodies = new ArrayList<>();
+        Matcher m = EXISTS.matcher(sql);
+        while (m.find()) {
+            int depth = 0, start = sql.indexOf('(', m.end());
+            for (int i = start; i < sql.length(); i++) {
+                if (sql.charAt(i) == '(') depth++;
+                else if (sql.charAt(i) == ')' && --depth == 0) {
+                    bodies.add(sql.substring(start, i + 1));
+                    break;
+                }
+            }
+        }
+        return bodies;
+    }
+
+    @Test
+    public void testAndOnSameCollectionSharesOneElement() {
+        String sql = sql(NAME, block("AND"), FULLNAME, block("AND"), ID);
+        assertEquals(1, existsCount(sql), sql);
+        String body = existsBodies(sql).get(0);
+        assertTrue(body.contains("lower(") && body.contains(">?"), body);
+    }
+
+    @Test
+    public void testImplicitAndSharesOneElement() {
+        assertEquals(1, existsCount(sql(NAME, ID)));
+    }
+
+    @Test
+    public void testOrAndNotGetTheirOwnExists() {
+        assertEquals(2, existsCount(sql(NAME, block("OR"), ID)));
+        assertEquals(2, existsCount(sql(NAME, block("AND"), block("NOT"), ID)));
+        // после OR цепочка AND начинается заново: (NAME OR FULLNAME) AND ID
+        assertEquals(2, existsCount(sql(NAME, block("OR"), FULLNAME, block("AND"), ID)));
+        assertEquals(2, existsCount(sql(NAME, block("END"), block("AND"), ID)));
+    }
+}
@@ -0,0 +1,76 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.analytics.GradeCube;
+import com.assxmblxr.backend.analytics.GradeHistogram;
+import com.assxmblxr.backend.entity.WorkType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class GradeCubeTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 9, 1);
+
+    private GradeCube cube() {
+        GradeCube cube = new GradeCube();
+        cube.reload(sink -> {
+            sink.studentGroup(1, 10);
+            sink.studentGroup(2, 10);
+            sink.studentGroup(3, 20);
+            sink.grade(100, 1, 5, 8, WorkType.CURRENT, DAY);
+            sink.grade(101, 1, 5, 6, WorkType.CONTROL, DAY.plusDays(7));
+            sink.grade(102, 2, 5, 4, null, DAY.plusDays(14));
+            sink.grade(103, 3, 6, 10, WorkType.CURRENT, null);
+        });
+        return cube;
+    }
+
+    @Test
+    public void testSliceByGroupSubjectAndDates() {
+        GradeCube cube = cube();
+
+        assertEquals(3, GradeHistogram.count(cube.histogram(null, 10L, null, null, null).buckets()));
+        assertEquals(1, GradeHistogram.count(cube.histogram(null, 20L, 6L, null, null).buckets()));
+        // оценка без даты в срез с датами не попадает
+        assertEquals(3, GradeHistogram.count(cube.histogram(null, null, null, DAY, null).buckets()));
+        assertEquals(1, GradeHistogram.count(cube.histogram(null, null, null, DAY.plusDays(1), DAY.plusDays(7)).buckets()));
+        // неизвестный id — пустой срез
+        assertEquals(0, GradeHistogram.count(cube.histogram(99L, null, null, null, null).buckets()));
+    }
+
+    @Test
+    public void testUpsertRemoveAndGroupChange() {
+        GradeCube cube = cube();
+        cube.upsert(101, 1, 5, 2, WorkType.CONTROL, DAY);
+        cube.remove(100);
+        cube.setStudentGroup(3, 10);
+
+        assertEquals(3, cube.size());
+        List<GradeCube.SubjectTotal> totals = cube.totalsBySubject(null, 10L);
+        assertEquals(2, totals.size());
+        assertEquals(new GradeCube.SubjectTotal(5, 2, 6), totals.get(0));
+
+        cube.removeStudent(1);
+        assertEquals(2, cube.size());
+        assertEquals(0, GradeHistogram.count(cube.histogram(1L, null, null, null, null).buckets()));
+    }
+
+    @Test
+    public void testStatisticsMatchSql() {
+        long[] buckets = new long[11];
+        buckets[2] = 1;
+        buckets[4] = 2;
+        buckets[9] = 1;
+        // значения 2, 4, 4, 9: как percentile_cont и stddev_samp в PostgreSQL
+        assertEquals(4.75, GradeHistogram.average(buckets), 1e-9);
+        assertEquals(2.6, GradeHistogram.percentile(buckets, 0.1), 1e-9);
+        assertEquals(4.0, GradeHistogram.percentile(buckets, 0.5), 1e-9);
+        assertEquals(5.25, GradeHistogram.percentile(buckets, 0.75), 1e-9);
+        assertEquals(Math.sqrt(26.75 / 3), GradeHistogram.stddev(buckets), 1e-9);
+        assertEquals(2, GradeHistogram.min(buckets));
+        assertEquals(9, GradeHistogram.max(buckets));
+        assertNull(GradeHistogram.percentile(new long[11], 0.5));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.entity.Group;
+import com.assxmblxr.backend.entity.Student;
+import com.assxmblxr.backend.filter.HibernateSqlRenderer;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.Version;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * HibernateSqlRenderer опирается на внутренние классы Hibernate. Тест собирает фабрику
+ * сессий без подключения к БД и проверяет перевод запроса с параметром и LIMIT/OFFSET.
+ */
+public class HibernateSqlRendererTest {
+    private static SessionFactory factory;
+
+    /** Перевод в SQL не должен обращаться к БД */
+    public static class NoConnections implements ConnectionProvider {
+        @Override
+        public Connection getConnection() throws SQLException {
+            throw new SQLException("No database in this test");
+        }
+
+        @Override
+        public void closeConnection(Connection connection) {
+        }
+
+        @Override
+        public boolean supportsAggressiveRelease() {
+            return false;
+        }
+
+        @Override
+        public boolean isUnwrappableAs(Class<?> type) {
+            return false;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> type) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @BeforeAll
+    public static void buildFactory() {
+        factory = new Configuration()
+                .addAnnotatedClass(Group.class)
+                .addAnnotatedClass(Student.class)
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .setProperty("hibernate.connection.provider_class", NoConnections.class.getName())
+                .buildSessionFactory();
+    }
+
+    @AfterAll
+    public static void closeFactory() {
+        factory.close();
+    }
+
+    @Test
+    public void testWrittenForHibernate66() {
+        assertTrue(Version.getVersionString().startsWith("6.6."),
+                "HibernateSqlRenderer проверен на Hibernate 6.6, сейчас " + Version.getVersionString());
+    }
+
+    @Test
+    public void testRendersParametersAndLimit() {
+        try (SessionImplementor session = (SessionImplementor) factory.openSession()) {
+            CriteriaBuilder cb = session.getCriteriaBuilder();
+            CriteriaQuery<Student> q = cb.createQuery(Student.class);
+            Root<Student> root = q.from(Student.class);
+            q.select(root).where(cb.greaterThan(root.get("age"), cb.parameter(Integer.class, "minAge")));
+            TypedQuery<Student> query = session.createQuery(q)
+                    .setParameter("minAge", 15)
+                    .setFirstResult(20)
+                    .setMaxResults(10);
+
+            HibernateSqlRenderer.Rendered rendered = HibernateSqlRenderer.render(query, session);
+
+            assertTrue(rendered.sql().contains("from students"), rendered.sql());
+            assertEquals(3, rendered.sql().chars().filter(c -> c == '?').count(), rendered.sql());
+            assertEquals(List.of(15, 20, 10), rendered.parameters());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.assxmblxr.backend;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.assxmblxr.backend.dto.FilterSortDto;
+import com.assxmblxr.backend.filter.ResultSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class ResultSnapshotTest {
+    private static FilterSortDto sort(String field, String direction) {
+        FilterSortDto s = new FilterSortDto();
+        s.setField(field);
+        s.setDirection(direction);
+        return s;
+    }
+
+    @Test
+    public void testOrderedCachesSorting() {
+        ResultSnapshot snapshot = new ResultSnapshot("s", "user", "Student", Object.class,
+                List.of(sort("fullname", null)), new long[]{1, 2, 3});
+        int[] sorts = {0};
+        // сортировка запроса и пустая — исходный порядок без пересортировки
+        assertSame(snapshot.getIds(), snapshot.ordered(List.of(sort("fullname", "asc")), () -> null));
+        assertSame(snapshot.getIds(), snapshot.ordered(List.of(), () -> null));
+
+        long[] reversed = snapshot.ordered(List.of(sort("fullname", "DESC")), () -> {
+            sorts[0]++;
+            return new long[]{3, 2, 1};
+        });
+        assertArrayEquals(new long[]{3, 2, 1}, reversed);
+        assertSame(reversed, snapshot.ordered(List.of(sort("fullname", "desc")), () -> {
+            sorts[0]++;
+            return null;
+        }));
+        assertEquals(1, sorts[0]);
+    }
+
+    @Test
+    public void testOrderingsAreCapped() {
+        ResultSnapshot snapshot = new ResultSnapshot("s", "user", "Student", Object.class,
+                List.of(), new long[]{1, 2});
+        long[] first = snapshot.ordered(List.of(sort("a", null)), () -> new long[]{2, 1});
+        for (String field : List.of("b", "c", "d", "e")) {
+            snapshot.ordered(List.of(sort(field, null)), () -> new long[]{1, 2});
+        }
+        // самая старая сортировка вытеснена и считается заново
+        long[] again = snapshot.ordered(List.of(sort("a", null)), () -> new long[]{2, 1});
+        assertNotSame(first, again);
+        assertArrayEquals(first, again);
+    }
+}
\ No newline at end of file